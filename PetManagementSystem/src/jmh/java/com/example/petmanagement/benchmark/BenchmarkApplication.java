@@ -0,0 +1,90 @@
+package com.example.petmanagement.benchmark;
+
+import com.example.petmanagement.PetManagementApplication;
+import com.example.petmanagement.index.FilterIndex;
+import com.example.petmanagement.seed.DataGenerator;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+
+/**
+ * Starts the application without the web layer (or, for the HTTP benchmarks, with it) on its in-memory H2
+ * database and seeds it for a benchmark.
+ */
+final class BenchmarkApplication {
+
+    static final String CITY = "Benchcity";
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start() {
+        return start(new String[0]);
+    }
+
+    /**
+     * @param properties {@code key=value} passed as command line arguments, so that they override
+     *                   application.properties as well as the defaults, which only log warnings
+     */
+    static ConfigurableApplicationContext start(String... properties) {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    /**
+     * Like {@link #start(String...)}, with Tomcat listening on a free port, see {@link #baseUrl}.
+     */
+    static ConfigurableApplicationContext startServer(String... properties) {
+        return start(WebApplicationType.SERVLET, properties);
+    }
+
+    static String baseUrl(ConfigurableApplicationContext context) {
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType type, String... properties) {
+        return new SpringApplicationBuilder(PetManagementApplication.class)
+                .web(type)
+                .properties("spring.jpa.show-sql=false", "logging.level.root=WARN", "server.port=0")
+                .run(Arrays.stream(properties).map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    /**
+     * Adds owners living at one address of {@link #CITY}, every other owner being a woman, and spreads
+     * pets over them round robin, every other pet being a dog and the others cats.
+     *
+     * @param context      started application
+     * @param owners       number of users to add
+     * @param petsPerOwner number of pets per user
+     */
+    static void seed(ConfigurableApplicationContext context, int owners, int petsPerOwner) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        int pets = owners * petsPerOwner;
+        jdbc.update("INSERT INTO address (id, city, type, address_name, number) "
+                + "VALUES (1000, '" + CITY + "', 'street', 'Bench', '1')");
+        jdbc.update("INSERT INTO \"user\" (id, name, first_name, address_id, age, gender, deceased) "
+                + "SELECT 1000 + X, 'Bench', CONCAT('Owner', X), 1000, 30, "
+                + "CASEWHEN(MOD(X, 2) = 0, 'FEMALE', 'MALE'), false FROM SYSTEM_RANGE(1, " + owners + ")");
+        jdbc.update("INSERT INTO pet (id, name, age, type, deceased) "
+                + "SELECT 1000 + X, CONCAT('Pet', X), 1, CASEWHEN(MOD(X, 2) = 0, 'dog', 'cat'), false "
+                + "FROM SYSTEM_RANGE(1, " + pets + ")");
+        jdbc.update("INSERT INTO user_pet (user_id, pet_id) "
+                + "SELECT 1001 + MOD(X - 1, " + owners + "), 1000 + X FROM SYSTEM_RANGE(1, " + pets + ")");
+        context.getBean(FilterIndex.class).rebuild();
+    }
+
+    /**
+     * Adds synthetic users, pets and addresses spread over other cities, so that queries filter the benchmark's
+     * rows out of a production sized dataset. Call it after {@link #seed}: it takes ids after the existing ones.
+     *
+     * @param context started application
+     * @param users   number of users to generate, none when 0
+     */
+    static void generate(ConfigurableApplicationContext context, long users) {
+        if (users > 0) {
+            context.getBean(DataGenerator.class).generate(DataGenerator.Plan.of(users));
+        }
+    }
+}
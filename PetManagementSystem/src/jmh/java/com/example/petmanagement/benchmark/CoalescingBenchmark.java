@@ -0,0 +1,50 @@
+package com.example.petmanagement.benchmark;
+
+import com.example.petmanagement.dto.UserResponseDto;
+import com.example.petmanagement.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of one popular listing called with the same arguments from several threads at once, with and without
+ * request coalescing. The listing of every dog owner of the seeded city is read by SQL (the filter index is off),
+ * so that each execution costs a few milliseconds of database work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class CoalescingBenchmark {
+
+    @Param({"true", "false"})
+    public boolean coalescing;
+
+    @Param({"1000"})
+    public int owners;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkApplication.start("coalescing.enabled=" + coalescing, "filter-index.enabled=false");
+        BenchmarkApplication.seed(context, owners, 1);
+        userService = context.getBean(UserService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<UserResponseDto> usersByPetTypeAndCity() {
+        return userService.getUsersByPetTypeAndCity("dog", BenchmarkApplication.CITY);
+    }
+}
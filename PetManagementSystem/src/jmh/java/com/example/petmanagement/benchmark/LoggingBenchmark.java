@@ -0,0 +1,79 @@
+package com.example.petmanagement.benchmark;
+
+import com.example.petmanagement.controller.PetController;
+import com.example.petmanagement.dto.PetRequestDto;
+import com.example.petmanagement.dto.PetResponseDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request throughput of the controller and service layers with each logging setup, from several threads:
+ * <ul>
+ *     <li>{@code OFF}: nothing is logged, the upper bound</li>
+ *     <li>{@code CONSOLE}: the former setup, every request log and every pretty printed statement written
+ *     synchronously to the console</li>
+ *     <li>{@code ASYNC}: the default pipeline of logback.xml, sampled JSON through a bounded queue and
+ *     only the slow statements</li>
+ * </ul>
+ * The console of the forked JVM is read by JMH: redirect the run ({@code > jmh.log}) to keep the terminal
+ * out of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+    @Param({"OFF", "CONSOLE", "ASYNC"})
+    public String logging;
+
+    private ConfigurableApplicationContext context;
+    private PetController petController;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        // Read by logback.xml when Spring Boot initializes the logging system
+        switch (logging) {
+            case "OFF" -> context = BenchmarkApplication.start("logging.level.root=OFF");
+            case "CONSOLE" -> {
+                System.setProperty("LOG_APPENDER", "CONSOLE");
+                System.setProperty("LOG_SAMPLE_REQUESTS", "1");
+                context = BenchmarkApplication.start("logging.level.root=INFO", "spring.jpa.show-sql=true",
+                        "spring.jpa.properties.hibernate.format_sql=true");
+            }
+            case "ASYNC" -> context = BenchmarkApplication.start("logging.level.root=INFO");
+            default -> throw new IllegalArgumentException("Unknown logging setup " + logging);
+        }
+        petController = context.getBean(PetController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    /**
+     * Pets of a user of the sample data: the application is not seeded, the explicit ids of
+     * {@link BenchmarkApplication#seed} would collide with the pets created by {@link #createPet}. The request
+     * has no If-None-Match, the pets are read every time.
+     */
+    @Benchmark
+    public List<PetResponseDto> petsOfUser() {
+        return petController.getUserPets(1L, new ServletWebRequest(
+                new MockHttpServletRequest("GET", "/api/pets/1/pets"), new MockHttpServletResponse()));
+    }
+
+    @Benchmark
+    public PetResponseDto createPet() {
+        return petController.createPet(new PetRequestDto("Logged", 3, "dog"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.petmanagement.benchmark;
+
+import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.model.Pet;
+import com.example.petmanagement.repository.PetRepository;
+import com.example.petmanagement.service.PetService;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a listing as managed entities mapped afterwards with reading it projected into DTOs.
+ * Run with {@code -prof gc} (the profile default) to see the allocation per operation next to the latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadPathBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnly;
+    private EntityManager entityManager;
+    private PetRepository petRepository;
+    private PetService petService;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seed(context, 1, rows);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        entityManager = context.getBean(EntityManager.class);
+        petRepository = context.getBean(PetRepository.class);
+        petService = context.getBean(PetService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    /**
+     * The listing as it was read before: managed entities, snapshotted for dirty checking, then mapped.
+     */
+    @Benchmark
+    public List<PetResponseDto> entities() {
+        return readOnly.execute(status -> entityManager.createQuery(
+                        "SELECT p FROM Pet p WHERE p.deceased = false "
+                                + "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.address.city = :city) "
+                                + "ORDER BY p.name, p.id", Pet.class)
+                .setParameter("city", BenchmarkApplication.CITY)
+                .setMaxResults(rows)
+                .getResultList()
+                .stream()
+                .map(petService::mapToPetResponseDto)
+                .toList());
+    }
+
+    /**
+     * The same listing selected straight into the response DTO.
+     */
+    @Benchmark
+    public List<PetResponseDto> projection() {
+        return readOnly.execute(status ->
+                petRepository.findByCityAfter(BenchmarkApplication.CITY, "", 0L, PageRequest.ofSize(rows)));
+    }
+}
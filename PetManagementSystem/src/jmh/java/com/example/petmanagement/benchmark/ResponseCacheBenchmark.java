@@ -0,0 +1,62 @@
+package com.example.petmanagement.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP throughput of the two cached listings, over a real Tomcat connector and from several threads, with and
+ * without the off-heap response cache. The by-city page holds 100 of the seeded pets (about 6 KB of JSON).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class ResponseCacheBenchmark {
+
+    @Param({"true", "false"})
+    public boolean responseCache;
+
+    @Param({"1000"})
+    public int owners;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest byCity;
+    private HttpRequest petsOfUser;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkApplication.startServer("response-cache.enabled=" + responseCache);
+        BenchmarkApplication.seed(context, owners, 1);
+        String baseUrl = BenchmarkApplication.baseUrl(context);
+        client = HttpClient.newHttpClient();
+        byCity = HttpRequest.newBuilder(URI.create(baseUrl + "/api/pets/by-city?city="
+                + BenchmarkApplication.CITY + "&size=100")).build();
+        petsOfUser = HttpRequest.newBuilder(URI.create(baseUrl + "/api/pets/1001/pets")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] byCity() throws IOException, InterruptedException {
+        return client.send(byCity, HttpResponse.BodyHandlers.ofByteArray()).body();
+    }
+
+    @Benchmark
+    public byte[] petsOfUser() throws IOException, InterruptedException {
+        return client.send(petsOfUser, HttpResponse.BodyHandlers.ofByteArray()).body();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.petmanagement.benchmark;
+
+import com.example.petmanagement.dto.AddressDto;
+import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.dto.UserResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * JSON serialization of the response bodies, with the object mapper defaults Spring Boot applies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /**
+     * Number of pets of the page, and of users of the user list.
+     */
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private Page<PetResponseDto> petPage;
+    private List<UserResponseDto> users;
+
+    @Setup(Level.Trial)
+    public void createData() {
+        List<PetResponseDto> pets = IntStream.range(0, size)
+                .mapToObj(i -> new PetResponseDto((long) i, "Pet" + i, 2, i % 2 == 0 ? "dog" : "cat", false))
+                .toList();
+        petPage = new PageImpl<>(pets, PageRequest.of(0, size), size * 10L);
+        users = IntStream.range(0, size)
+                .mapToObj(i -> {
+                    Set<PetResponseDto> owned = new LinkedHashSet<>(pets.subList(i, Math.min(i + 2, size)));
+                    return new UserResponseDto((long) i, "Name" + i, "First" + i,
+                            new AddressDto("Paris", "street", "Main", String.valueOf(i)), 30, "FEMALE", false, owned);
+                })
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] petPage() throws Exception {
+        return objectMapper.writeValueAsBytes(petPage);
+    }
+
+    @Benchmark
+    public byte[] userList() throws Exception {
+        return objectMapper.writeValueAsBytes(users);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.petmanagement.benchmark;
+
+import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.dto.UserResponseDto;
+import com.example.petmanagement.service.PetService;
+import com.example.petmanagement.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full service calls, transaction and SQL included, against the in-memory H2 database seeded with
+ * {@code owners} users of one city, each owning one pet, among {@code backgroundUsers} synthetic users of other
+ * cities. With {@code filterIndex} off, the city listings are filtered by SQL instead of the in-process bitmaps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int owners;
+
+    @Param({"0", "1000000"})
+    public int backgroundUsers;
+
+    @Param({"true", "false"})
+    public boolean filterIndex;
+
+    private ConfigurableApplicationContext context;
+    private PetService petService;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkApplication.start("filter-index.enabled=" + filterIndex);
+        BenchmarkApplication.seed(context, owners, 1);
+        BenchmarkApplication.generate(context, backgroundUsers);
+        petService = context.getBean(PetService.class);
+        userService = context.getBean(UserService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<PetResponseDto> petsByCityFirstPage() {
+        return petService.getPetsByCity(BenchmarkApplication.CITY, 0, 10);
+    }
+
+    @Benchmark
+    public Page<PetResponseDto> petsByWomenInCityFirstPage() {
+        return petService.getPetsByWomenInCity(BenchmarkApplication.CITY, 0, 10);
+    }
+
+    @Benchmark
+    public List<PetResponseDto> petsByOwner() {
+        return petService.getPetsByOwnerId(1001L);
+    }
+
+    /**
+     * Returns every dog owner of the city, half of the seeded users.
+     */
+    @Benchmark
+    public List<UserResponseDto> usersByPetTypeAndCity() {
+        return userService.getUsersByPetTypeAndCity("dog", BenchmarkApplication.CITY);
+    }
+}
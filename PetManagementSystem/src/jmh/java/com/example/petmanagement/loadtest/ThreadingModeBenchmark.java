@@ -0,0 +1,88 @@
+package com.example.petmanagement.loadtest;
+
+import com.example.petmanagement.PetManagementApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Platform against virtual request threads, over HTTP, with the load test's default mix (80% listings, 20% pet
+ * assignments). Every operation sends {@code concurrency} requests at once, above Tomcat's 200 platform threads,
+ * and waits for all of them: divide the time by {@code concurrency} for the time per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ThreadingModeBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"400"})
+    public int concurrency;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private Fixtures fixtures;
+    private LoadTest.OperationPicker picker;
+
+    @Setup(Level.Trial)
+    public void startApplication() throws Exception {
+        context = new SpringApplicationBuilder(PetManagementApplication.class)
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "bulkhead.acquire-timeout-ms=30000",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN")
+                .run();
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder().executor(clientExecutor).build();
+        LoadTestConfig config = LoadTestConfig.parse("--url=http://localhost:" + port, "--users=100", "--pets=5000");
+        fixtures = Fixtures.create(client, config);
+        picker = new LoadTest.OperationPicker(config.mix(), new Random(config.seed()));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+        clientExecutor.shutdownNow();
+    }
+
+    /**
+     * @return number of successful requests, the others were rejected, failed or had nothing left to act on
+     */
+    @Benchmark
+    public long mix() {
+        List<CompletableFuture<Boolean>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Operation.Call call = picker.next().call(fixtures);
+            if (call != null) {
+                responses.add(client.sendAsync(call.request(), HttpResponse.BodyHandlers.discarding())
+                        .thenApply(response -> {
+                            boolean success = response.statusCode() < 300;
+                            if (success) {
+                                call.onSuccess().run();
+                            }
+                            return success;
+                        }));
+            }
+        }
+        return responses.stream().filter(CompletableFuture::join).count();
+    }
+}
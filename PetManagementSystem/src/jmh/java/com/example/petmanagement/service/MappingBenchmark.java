@@ -0,0 +1,102 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.dto.AddressDto;
+import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.dto.UserPetRowDto;
+import com.example.petmanagement.dto.UserRequestDto;
+import com.example.petmanagement.dto.UserResponseDto;
+import com.example.petmanagement.model.Address;
+import com.example.petmanagement.model.Pet;
+import com.example.petmanagement.model.User;
+import com.example.petmanagement.model.UserPet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DTO mapping and request validation, without any database.
+ * It lives in the service package to reach the package-private mapping and validation methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    /**
+     * Number of pets of the mapped user.
+     */
+    @Param({"1", "10", "100"})
+    public int pets;
+
+    private final PetService petService = new PetService(null, null, null, null, null);
+    private final UserService userService = new UserService(null, null, null, petService, null, null, null, null, null);
+
+    private Pet pet;
+    private User user;
+    private List<UserPetRowDto> rows;
+    private UserRequestDto request;
+
+    @Setup(Level.Trial)
+    public void createData() {
+        Address address = new Address();
+        address.setCity("Paris");
+        address.setType("street");
+        address.setAddressName("Main");
+        address.setNumber("123");
+
+        user = new User();
+        user.setId(1L);
+        user.setName("Vasani");
+        user.setFirstName("Samir");
+        user.setAddress(address);
+        user.setAge(30);
+        user.setGender("MALE");
+
+        rows = new ArrayList<>();
+        for (int i = 0; i < pets; i++) {
+            Pet owned = new Pet();
+            owned.setId((long) i);
+            owned.setName("Pet" + i);
+            owned.setAge(2);
+            owned.setType(i % 2 == 0 ? "dog" : "cat");
+            new UserPet(user, owned);
+            rows.add(new UserPetRowDto(1L, "Vasani", "Samir", "Paris", "street", "Main", "123", 30, "MALE", false,
+                    owned.getId(), owned.getName(), owned.getAge(), owned.getType(), false));
+        }
+        pet = user.getPets().iterator().next();
+        request = new UserRequestDto("Vasani", "Samir", new AddressDto("Paris", "street", "Main", "123"), 30, "male");
+    }
+
+    @Benchmark
+    public PetResponseDto mapPet() {
+        return petService.mapToPetResponseDto(pet);
+    }
+
+    /**
+     * Mapping of a managed user with its pets, as done after writes.
+     */
+    @Benchmark
+    public UserResponseDto mapUserEntity() {
+        return userService.mapToUserResponse(user);
+    }
+
+    /**
+     * Assembly of the same user from projected rows, as done by the user listings.
+     */
+    @Benchmark
+    public UserResponseDto assembleUserRows() {
+        return new UserRowAssembler(rows.iterator()).next();
+    }
+
+    @Benchmark
+    public void validateUserRequest(Blackhole blackhole) {
+        userService.validateUserRequest(request);
+        blackhole.consume(request);
+    }
+}
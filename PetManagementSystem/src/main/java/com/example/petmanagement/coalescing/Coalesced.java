@@ -0,0 +1,29 @@
+package com.example.petmanagement.coalescing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a read only service method whose concurrent calls with the same key share one execution, see
+ * {@link RequestCoalescer}. The result is handed to every caller as is, so it must not be modified by them.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Coalesced {
+
+    /**
+     * SpEL expression over the parameters (e.g. {@code #city}) identifying identical calls; equal values share
+     * an execution. Empty for all the arguments.
+     */
+    String key() default "";
+
+    /**
+     * Longest time in ms a call waits for the execution it joined before running its own; -1 for
+     * {@code coalescing.timeout-ms}.
+     */
+    long timeoutMs() default -1;
+}
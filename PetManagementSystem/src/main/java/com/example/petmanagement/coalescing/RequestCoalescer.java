@@ -0,0 +1,156 @@
+package com.example.petmanagement.coalescing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.Ordered;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single flight of the {@link Coalesced} read methods: the first call of a key runs, the identical calls arriving
+ * while it is in progress wait for it and return its result (or throw its exception) instead of running the same
+ * queries again. Nothing is kept once it completes, the next call runs again: this is not a cache.
+ * <p>
+ * A call only joins an execution started after the last commit of a writing transaction, so a client always reads
+ * its own committed writes. Calls made inside a transaction run on their own, as they may see uncommitted changes.
+ * It wraps the transactional advice, so waiting callers do not hold a connection.
+ * A caller waiting longer than the timeout runs its own execution.
+ * <p>
+ * Each call increments the {@code coalescing.calls} counter of its class and method, tagged with its result:
+ * {@code executed}, {@code joined}, {@code timed_out} or {@code bypassed} (in a transaction or disabled).
+ * The coalescing rate of a method is its joined calls over all its calls.
+ * Disabled with {@code coalescing.enabled=false}.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class RequestCoalescer implements TransactionExecutionListener {
+
+    static final String METRIC_NAME = "coalescing.calls";
+
+    // Resolved on the first call: aspects are created while the other beans are, possibly before the registry
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final boolean enabled;
+    private final long timeoutMillis;
+
+    private final Map<Flight, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Method, Expression> keys = new ConcurrentHashMap<>();
+    private final ExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final AtomicLong commits = new AtomicLong();
+
+    public RequestCoalescer(ObjectProvider<MeterRegistry> meterRegistry,
+                            @Value("${coalescing.enabled:true}") boolean enabled,
+                            @Value("${coalescing.timeout-ms:5000}") long timeoutMillis) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Around("@annotation(coalesced)")
+    public Object coalesce(ProceedingJoinPoint joinPoint, Coalesced coalesced) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            count(method, "bypassed");
+            return joinPoint.proceed();
+        }
+        Flight flight = new Flight(method, key(method, joinPoint.getArgs(), coalesced), commits.get());
+        CompletableFuture<Object> execution = new CompletableFuture<>();
+        CompletableFuture<Object> joined = inFlight.putIfAbsent(flight, execution);
+        if (joined == null) {
+            count(method, "executed");
+            return execute(joinPoint, flight, execution);
+        }
+        long timeout = coalesced.timeoutMs() >= 0 ? coalesced.timeoutMs() : timeoutMillis;
+        try {
+            Object result = joined.get(timeout, TimeUnit.MILLISECONDS);
+            count(method, "joined");
+            return result;
+        } catch (ExecutionException ex) {
+            count(method, "joined");
+            throw ex.getCause();
+        } catch (TimeoutException ex) {
+            count(method, "timed_out");
+            return joinPoint.proceed();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            count(method, "timed_out");
+            return joinPoint.proceed();
+        }
+    }
+
+    /**
+     * A writing transaction committed: the executions in progress may have read before it, later calls start new ones.
+     */
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        if (!transaction.isReadOnly()) {
+            commits.incrementAndGet();
+        }
+    }
+
+    private Object execute(ProceedingJoinPoint joinPoint, Flight flight, CompletableFuture<Object> execution)
+            throws Throwable {
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable ex) {
+            inFlight.remove(flight, execution);
+            execution.completeExceptionally(ex);
+            throw ex;
+        }
+        // Removed first: a call arriving once the result exists runs again rather than getting it, see the class
+        inFlight.remove(flight, execution);
+        execution.complete(result);
+        return result;
+    }
+
+    private Object key(Method method, Object[] args, Coalesced coalesced) {
+        if (coalesced.key().isEmpty()) {
+            return Arrays.asList(args);
+        }
+        Expression expression = keys.computeIfAbsent(method, m -> parser.parseExpression(coalesced.key()));
+        return expression.getValue(new MethodBasedEvaluationContext(null, method, args, parameterNames));
+    }
+
+    private void count(Method method, String result) {
+        Counter.builder(METRIC_NAME)
+                .description("Calls of a coalesced method, by whether they ran or shared an execution")
+                .tag("class", method.getDeclaringClass().getName())
+                .tag("method", method.getName())
+                .tag("result", result)
+                .register(meterRegistry.getObject())
+                .increment();
+    }
+
+    /**
+     * Identical calls: same method, same key and no writing commit in between.
+     */
+    private record Flight(Method method, Object key, long commits) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.petmanagement.config;
+
+import com.example.petmanagement.exception.ServiceUnavailableException;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control of the virtual thread mode: a global semaphore, with as many permits as the connection pool has
+ * connections, guards the handlers and everything they call, and each endpoint may hold at most
+ * {@code bulkhead.endpoint-share} of those permits.
+ * Platform threads were bounded by the Tomcat pool; virtual threads are not, and without it every request beyond
+ * the pool size would wait inside Hikari with a connection timeout, holding its memory, while new ones keep coming.
+ * Here they wait at most {@code bulkhead.acquire-timeout-ms} before any work and are rejected with 503 and
+ * Retry-After. The global permits bound the requests in progress whatever the number of endpoints, and the share
+ * keeps one slow endpoint (e.g. an export) from taking every connection from the others.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class DatabaseBulkhead implements HandlerInterceptor, WebMvcConfigurer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseBulkhead.class);
+
+    private static final String PERMIT_ATTRIBUTE = DatabaseBulkhead.class.getName() + ".permit";
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    private final Semaphore global;
+    private final int endpointPermits;
+    private final long acquireTimeoutMillis;
+    private final Map<Method, Semaphore> semaphores = new ConcurrentHashMap<>();
+
+    /**
+     * @param permits       concurrent requests over all endpoints, 0 for the size of the connection pool
+     * @param endpointShare fraction of them a single endpoint may hold, at least one permit
+     */
+    public DatabaseBulkhead(DataSource dataSource,
+                            @Value("${bulkhead.permits:0}") int permits,
+                            @Value("${bulkhead.endpoint-share:0.5}") double endpointShare,
+                            @Value("${bulkhead.acquire-timeout-ms:1000}") long acquireTimeoutMillis) {
+        if (!(endpointShare > 0 && endpointShare <= 1)) {
+            throw new IllegalArgumentException("bulkhead.endpoint-share must be in (0, 1], was " + endpointShare);
+        }
+        int total = permits > 0 ? permits : poolSize(dataSource);
+        this.global = new Semaphore(total);
+        this.endpointPermits = Math.max(1, (int) (total * endpointShare));
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        LOGGER.info("Virtual threads enabled, admitting {} concurrent requests, {} per endpoint", total,
+                endpointPermits);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this).addPathPatterns("/api/**");
+    }
+
+    /**
+     * @throws ServiceUnavailableException if no permit frees up within the timeout
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws InterruptedException {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        Semaphore semaphore = semaphores.computeIfAbsent(handlerMethod.getMethod(),
+                method -> new Semaphore(endpointPermits));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        if (!semaphore.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            LOGGER.warn("Rejected {} {}: {} requests of this endpoint already in progress", request.getMethod(),
+                    request.getRequestURI(), endpointPermits);
+            throw new ServiceUnavailableException("Too many concurrent requests, retry later");
+        }
+        boolean admitted;
+        try {
+            admitted = global.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            semaphore.release();
+            throw ex;
+        }
+        if (!admitted) {
+            semaphore.release();
+            LOGGER.warn("Rejected {} {}: every connection already in use", request.getMethod(),
+                    request.getRequestURI());
+            throw new ServiceUnavailableException("Too many concurrent requests, retry later");
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, semaphore);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Semaphore semaphore) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            semaphore.release();
+            global.release();
+        }
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        return dataSource instanceof HikariConfigMXBean hikari ? hikari.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.petmanagement.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads pinned to their carrier thread, from the {@code jdk.VirtualThreadPinned} JFR event.
+ * A virtual thread that blocks inside a {@code synchronized} block or a native frame keeps its carrier busy, so a
+ * few pinned threads are enough to stall all the others: Hibernate, H2 and logback are the usual suspects on the
+ * request path.
+ * Every pinning longer than {@code pinning.threshold-ms} is counted by library and blocking frame; the first one of
+ * each frame is logged with its stack, the totals when the application stops.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class PinningMonitor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PinningMonitor.class);
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+
+    /**
+     * Libraries the pinning is attributed to, by package prefix.
+     */
+    private static final Map<String, String> LIBRARIES = Map.of(
+            "org.hibernate.", "Hibernate",
+            "org.h2.", "H2",
+            "ch.qos.logback.", "Logback",
+            "com.zaxxer.hikari.", "Hikari");
+
+    /**
+     * Count and total pinned time of one place.
+     */
+    public record Pinning(long count, Duration total) {
+    }
+
+    private final Duration threshold;
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> nanos = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    public PinningMonitor(@Value("${pinning.threshold-ms:20}") long thresholdMillis) {
+        this.threshold = Duration.ofMillis(thresholdMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::record);
+        stream.startAsync();
+        LOGGER.info("Reporting virtual threads pinned for more than {} ms", threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        stream.close();
+        if (!counts.isEmpty()) {
+            LOGGER.warn("Virtual thread pinning by place: {}", report());
+        }
+    }
+
+    /**
+     * @return pinnings by "library: frame", the frame being the innermost one of the application or a library
+     */
+    public Map<String, Pinning> report() {
+        return counts.keySet().stream().collect(Collectors.toMap(place -> place,
+                place -> new Pinning(counts.get(place).sum(), Duration.ofNanos(nanos.get(place).sum())),
+                (a, b) -> a, TreeMap::new));
+    }
+
+    private void record(RecordedEvent event) {
+        List<RecordedFrame> frames = frames(event.getStackTrace());
+        String place = place(frames);
+        counts.computeIfAbsent(place, key -> new LongAdder()).increment();
+        nanos.computeIfAbsent(place, key -> new LongAdder()).add(event.getDuration().toNanos());
+        if (counts.get(place).sum() == 1) {
+            LOGGER.warn("Virtual thread pinned for {} ms in {}:{}", event.getDuration().toMillis(), place,
+                    frames.stream().limit(LOGGED_FRAMES).map(frame -> "\n\tat " + describe(frame))
+                            .collect(Collectors.joining()));
+        }
+    }
+
+    /**
+     * Attributes the pinning to the innermost frame of a watched library, else to the innermost frame outside the
+     * JDK, else to the innermost frame.
+     */
+    private static String place(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            for (Map.Entry<String, String> library : LIBRARIES.entrySet()) {
+                if (type.startsWith(library.getKey())) {
+                    return library.getValue() + ": " + describe(frame);
+                }
+            }
+        }
+        return frames.stream()
+                .filter(frame -> !frame.getMethod().getType().getName().startsWith("java."))
+                .findFirst()
+                .or(() -> frames.stream().findFirst())
+                .map(frame -> "Other: " + describe(frame))
+                .orElse("Other: unknown");
+    }
+
+    private static List<RecordedFrame> frames(RecordedStackTrace stackTrace) {
+        return stackTrace == null ? List.of() : stackTrace.getFrames();
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.petmanagement.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Records how many rows every repository method returns, as the {@code repository.rows} summary tagged with the
+ * repository and the method, next to the {@code spring.data.repository.invocations} timers of Spring Boot.
+ * A collection counts its elements, a page or slice the elements of the page, an optional or an entity one row.
+ * Streams are counted as they are consumed and recorded when closed. Counts and other scalar results are ignored.
+ */
+@Component
+public class RepositoryRowMetrics implements BeanPostProcessor {
+
+    static final String METRIC_NAME = "repository.rows";
+
+    // Resolved on the first call: a post processor is created before the registry could be
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public RepositoryRowMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, information) -> proxyFactory.addAdvice(
+                            new RowCountingInterceptor(information.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+    }
+
+    private final class RowCountingInterceptor implements MethodInterceptor {
+        private final String repository;
+
+        private RowCountingInterceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            if (result instanceof Stream<?> stream) {
+                DistributionSummary rows = summary(invocation);
+                AtomicLong count = new AtomicLong();
+                return stream.peek(row -> count.incrementAndGet()).onClose(() -> rows.record(count.get()));
+            }
+            long rows = rows(result, invocation.getMethod().getReturnType());
+            if (rows >= 0) {
+                summary(invocation).record(rows);
+            }
+            return result;
+        }
+
+        private DistributionSummary summary(MethodInvocation invocation) {
+            return DistributionSummary.builder(METRIC_NAME)
+                    .description("Rows returned by a repository method")
+                    .baseUnit("rows")
+                    .tag("repository", repository)
+                    .tag("method", invocation.getMethod().getName())
+                    .register(meterRegistry.getObject());
+        }
+
+        /**
+         * @return number of rows, -1 if the result is not made of rows
+         */
+        private static long rows(Object result, Class<?> returnType) {
+            if (result instanceof Collection<?> collection) {
+                return collection.size();
+            }
+            if (result instanceof Slice<?> slice) {
+                return slice.getNumberOfElements();
+            }
+            if (result instanceof Optional<?> optional) {
+                return optional.isPresent() ? 1 : 0;
+            }
+            if (returnType == void.class || returnType.isPrimitive() || Number.class.isAssignableFrom(returnType)
+                    || returnType == Boolean.class) {
+                return -1;
+            }
+            return result == null ? 0 : 1;
+        }
+    }
+}
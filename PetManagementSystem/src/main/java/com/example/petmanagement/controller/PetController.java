@@ -1,22 +1,32 @@
 package com.example.petmanagement.controller;
 
+import com.example.petmanagement.dto.BulkDeceaseResponseDto;
 import com.example.petmanagement.dto.PetRequestDto;
 import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.dto.PetSliceResponseDto;
 import com.example.petmanagement.dto.UserRequestDto;
 import com.example.petmanagement.dto.UserResponseDto;
+import com.example.petmanagement.service.BulkDeceaseService;
+import com.example.petmanagement.service.ETagged;
+import com.example.petmanagement.service.ExportService;
 import com.example.petmanagement.service.PetService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Objects;
 
@@ -37,6 +47,16 @@ public class PetController {
      */
     private final PetService petService;
 
+    /**
+     * Service for streaming exports.
+     */
+    private final ExportService exportService;
+
+    /**
+     * Service for marking many pets as deceased at once.
+     */
+    private final BulkDeceaseService bulkDeceaseService;
+
     /**
      * Creates a new Pet with the provided details.
      *
@@ -61,11 +81,17 @@ public class PetController {
         return petService.createPet(petRequestDto);
     }
 
+    /**
+     * Page of the active pets of a city. It carries an ETag: a request whose If-None-Match holds it gets
+     * 304 Not Modified, without the page being read or serialized, as long as the page is unchanged.
+     * Without If-None-Match the tag is computed from the page itself, so a plain read runs no extra query.
+     */
     @GetMapping("/by-city")
     @Operation(summary = "Get pets by city",
             description = "Retrieves a list of non deceased pets located in the specified city.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Pets retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Pets unchanged since the ETag of If-None-Match"),
             @ApiResponse(responseCode = "404", description = "City not found"),
             @ApiResponse(responseCode = "400", description = "Invalid city name provided"),
             @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
@@ -74,8 +100,18 @@ public class PetController {
     public Page<PetResponseDto> getPetsByCity(
             @RequestParam String city,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request) {
         LOGGER.info("Fetching pets in city: {}", city);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) == null) {
+            ETagged<Page<PetResponseDto>> pets = petService.getPetsByCityWithETag(city, page, size);
+            request.checkNotModified(pets.eTag());
+            return pets.body();
+        }
+        // Read before the page: a change committed in between gives a new page with the older ETag, never the opposite
+        if (request.checkNotModified(petService.getPetsByCityETag(city, page, size))) {
+            return null;
+        }
         return petService.getPetsByCity(city,page,size);
     }
 
@@ -98,6 +134,100 @@ public class PetController {
         return petService.getPetsByWomenInCity(city, page, size);
     }
 
+    @GetMapping("/by-city/scroll")
+    @Operation(summary = "Scroll pets by city",
+            description = "Retrieves the slice of non deceased pets in the specified city that follows the cursor, "
+                    + "sorted by name. Pass the returned nextCursor to get the next slice. No total count is computed.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Pets retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid city name, size or cursor provided"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public PetSliceResponseDto scrollPetsByCity(
+            @RequestParam String city,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        LOGGER.info("Scrolling pets in city: {}", city);
+        return petService.getPetsByCityAfter(city, cursor, size);
+    }
+
+    @GetMapping("/by-women-in-city/scroll")
+    @Operation(summary = "Scroll pets owned by women in a city",
+            description = "Retrieves the slice of pets owned by women in the specified city that follows the cursor, "
+                    + "sorted by name. Pass the returned nextCursor to get the next slice. No total count is computed.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Pets retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid city name, size or cursor provided"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public PetSliceResponseDto scrollPetsByWomenOwnersInCity(
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        LOGGER.info("Scrolling pets owned by women in city: {}", city);
+        return petService.getPetsByWomenInCityAfter(city, cursor, size);
+    }
+
+    @GetMapping("/by-city/slice")
+    @Operation(summary = "Get a slice of pets by city",
+            description = "Retrieves a page of non deceased pets in the specified city, sorted by name, and whether "
+                    + "another page follows. No total count is computed.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Pets retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid city name, page or size provided"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public PetSliceResponseDto getPetsByCitySlice(
+            @RequestParam String city,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        LOGGER.info("Fetching slice of pets in city: {}", city);
+        return petService.getPetsByCitySlice(city, page, size);
+    }
+
+    @GetMapping("/by-women-in-city/slice")
+    @Operation(summary = "Get a slice of pets owned by women in a city",
+            description = "Retrieves a page of pets owned by women in the specified city, sorted by name, and whether "
+                    + "another page follows. No total count is computed.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Pets retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid city name, page or size provided"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public PetSliceResponseDto getPetsByWomenOwnersInCitySlice(
+            @RequestParam(required = false) String city,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        LOGGER.info("Fetching slice of pets owned by women in city: {}", city);
+        return petService.getPetsByWomenInCitySlice(city, page, size);
+    }
+
+    /**
+     * Streams the non deceased pets of a city as newline delimited JSON, one pet per line, without paging.
+     *
+     * @param city     city name to filter by, case-sensitive
+     * @param response response the pets are written to while they are read
+     * @throws IOException if the client connection fails
+     */
+    @GetMapping(value = "/by-city/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export pets by city",
+            description = "Streams all non deceased pets located in the specified city as NDJSON, in id order.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Pets streamed successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid city name provided"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public void exportPetsByCity(@RequestParam String city, HttpServletResponse response) throws IOException {
+        LOGGER.info("Exporting pets in city: {}", city);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        exportService.exportPetsByCity(city, response.getOutputStream());
+    }
+
     @PatchMapping("/{id}")
     @ResponseStatus(HttpStatus.ACCEPTED)
     @Operation(summary = "Update pet information",
@@ -133,19 +263,93 @@ public class PetController {
         petService.markPetAsDeceased(id);
     }
 
+    /**
+     * Marks the listed pets as deceased, chunk by chunk.
+     *
+     * @param ids IDs of the pets; unknown and already deceased pets are skipped
+     * @return number of pets marked deceased
+     */
+    @PutMapping("/deceased")
+    @Operation(summary = "Mark pets as deceased",
+            description = "Marks the pets of the ID list as deceased with set based updates, in chunks. "
+                    + "Unknown and already deceased pets are skipped and not counted.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Pets marked as deceased, see the count"),
+            @ApiResponse(responseCode = "400", description = "Empty ID list"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public BulkDeceaseResponseDto markPetsAsDeceased(@RequestBody List<Long> ids) {
+        LOGGER.info("Marking {} pets as deceased", ids == null ? 0 : ids.size());
+        return bulkDeceaseService.markPetsAsDeceased(ids);
+    }
+
+    /**
+     * Marks every active pet of an owner as deceased, chunk by chunk.
+     *
+     * @param userId ID of the owner
+     * @return number of pets marked deceased
+     */
+    @PutMapping("/deceased/by-owner/{userId}")
+    @Operation(summary = "Mark the pets of an owner as deceased",
+            description = "Marks every active pet of the user as deceased with set based updates, in chunks.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Pets marked as deceased, see the count"),
+            @ApiResponse(responseCode = "400", description = "Invalid userId"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public BulkDeceaseResponseDto markPetsOfOwnerAsDeceased(@PathVariable Long userId) {
+        LOGGER.info("Marking the pets of user {} as deceased", userId);
+        return bulkDeceaseService.markPetsOfOwnerAsDeceased(userId);
+    }
+
+    /**
+     * Marks every active pet owned at an address as deceased, chunk by chunk, e.g. when a shelter closes.
+     *
+     * @param addressId ID of the address of the owners
+     * @return number of pets marked deceased
+     */
+    @PutMapping("/deceased/by-address/{addressId}")
+    @Operation(summary = "Mark the pets owned at an address as deceased",
+            description = "Marks every active pet owned by a user of the address as deceased with set based "
+                    + "updates, in chunks.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Pets marked as deceased, see the count"),
+            @ApiResponse(responseCode = "400", description = "Invalid addressId"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public BulkDeceaseResponseDto markPetsAtAddressAsDeceased(@PathVariable Long addressId) {
+        LOGGER.info("Marking the pets owned at address {} as deceased", addressId);
+        return bulkDeceaseService.markPetsAtAddressAsDeceased(addressId);
+    }
+
+    /**
+     * Active pets of a user, with an ETag like {@link #getPetsByCity}.
+     */
     @GetMapping("/{userId}/pets")
     @Operation(summary = "Get all pets owned by a user",
             description = "Retrieves a list of all pets owned by the specified user ID.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Pets retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Pets unchanged since the ETag of If-None-Match"),
             @ApiResponse(responseCode = "404", description = "User not found"),
             @ApiResponse(responseCode = "400", description = "Invalid userId"),
             @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public List<PetResponseDto> getUserPets(@PathVariable Long userId) {
+    public List<PetResponseDto> getUserPets(@PathVariable Long userId, WebRequest request) {
         Objects.requireNonNull(userId, "User ID cannot be null");
         LOGGER.info("Fetching all pets for user ID: {}", userId);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) == null) {
+            ETagged<List<PetResponseDto>> pets = petService.getPetsByOwnerIdWithETag(userId);
+            request.checkNotModified(pets.eTag());
+            return pets.body();
+        }
+        if (request.checkNotModified(petService.getPetsByOwnerIdETag(userId))) {
+            return null;
+        }
         return petService.getPetsByOwnerId(userId);
     }
 }
\ No newline at end of file
@@ -1,19 +1,28 @@
 package com.example.petmanagement.controller;
 
+import com.example.petmanagement.dto.BulkDeceaseResponseDto;
+import com.example.petmanagement.dto.UserImportResponseDto;
 import com.example.petmanagement.dto.UserRequestDto;
 import com.example.petmanagement.dto.UserResponseDto;
+import com.example.petmanagement.service.BulkDeceaseService;
+import com.example.petmanagement.service.ExportService;
+import com.example.petmanagement.service.UserImportService;
 import com.example.petmanagement.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -29,6 +38,21 @@ public class UserController {
      */
     private final UserService userService;
 
+    /**
+     * Service for bulk user creation.
+     */
+    private final UserImportService userImportService;
+
+    /**
+     * Service for streaming exports.
+     */
+    private final ExportService exportService;
+
+    /**
+     * Service for marking many users as deceased at once.
+     */
+    private final BulkDeceaseService bulkDeceaseService;
+
     /**
      * Creates a new user with the provided details.
      *
@@ -54,6 +78,30 @@ public class UserController {
         return userService.createUser(userRequestDto);
     }
 
+    /**
+     * Creates many users at once from a JSON array or a newline delimited JSON stream.
+     * Each row follows the rules of {@link #createUser}; invalid rows are reported without aborting the import.
+     *
+     * @param body JSON array or NDJSON stream of user creation data
+     * @return number of rows received and imported, with the error of every rejected row
+     * @see UserImportResponseDto
+     */
+    @PostMapping(value = "/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Bulk import users",
+            description = "Creates users from a JSON array or an NDJSON stream. Rows are inserted in batches; "
+                    + "rejected rows are listed with their position and reason.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Import processed, see errors for rejected rows"),
+            @ApiResponse(responseCode = "400", description = "Request body could not be read"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public UserImportResponseDto importUsers(InputStream body) {
+        LOGGER.info("Bulk importing users");
+        return userImportService.importUsers(body);
+    }
+
     /**
      * Marks a user as deceased by their ID.
      *
@@ -76,6 +124,47 @@ public class UserController {
         userService.markUserAsDeceased(id);
     }
 
+    /**
+     * Marks the listed users as deceased, chunk by chunk.
+     *
+     * @param ids IDs of the users; unknown and already deceased users are skipped
+     * @return number of users marked deceased
+     */
+    @PutMapping("/deceased")
+    @Operation(summary = "Mark users as deceased",
+            description = "Marks the users of the ID list as deceased with set based updates, in chunks. "
+                    + "Unknown and already deceased users are skipped and not counted.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Users marked as deceased, see the count"),
+            @ApiResponse(responseCode = "400", description = "Empty ID list"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public BulkDeceaseResponseDto markUsersAsDeceased(@RequestBody List<Long> ids) {
+        LOGGER.info("Marking {} users as deceased", ids == null ? 0 : ids.size());
+        return bulkDeceaseService.markUsersAsDeceased(ids);
+    }
+
+    /**
+     * Marks every active user of an address as deceased, chunk by chunk. Their pets are left as they are.
+     *
+     * @param addressId ID of the address
+     * @return number of users marked deceased
+     */
+    @PutMapping("/deceased/by-address/{addressId}")
+    @Operation(summary = "Mark the users of an address as deceased",
+            description = "Marks every active user of the address as deceased with set based updates, in chunks.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Users marked as deceased, see the count"),
+            @ApiResponse(responseCode = "400", description = "Invalid addressId"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public BulkDeceaseResponseDto markUsersAtAddressAsDeceased(@PathVariable Long addressId) {
+        LOGGER.info("Marking the users of address {} as deceased", addressId);
+        return bulkDeceaseService.markUsersAtAddressAsDeceased(addressId);
+    }
+
     /**
      * Updates user information for the specified user ID.
      *
@@ -191,4 +280,34 @@ public class UserController {
             @RequestParam String city) {
         return userService.getUsersByPetTypeAndCity(petType, city);
     }
+
+    /**
+     * Streams the users of {@link #getUsersByPetTypeAndCity} as newline delimited JSON, one user per line,
+     * without building the whole list first.
+     *
+     * @param petType  Type of pet to filter by. Case-sensitive.
+     * @param city     City name to filter by. Case-sensitive.
+     * @param response response the users are written to while they are read
+     * @throws IOException if the client connection fails
+     */
+    @GetMapping(value = "/by-pet-and-city/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            summary = "Export users by pet type and city",
+            description = "Streams active users owning living pets of specified type in the given city as NDJSON, "
+                    + "in id order, each with all of its pets."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Users streamed successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input parameters - petType or city missing/empty"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized access by user"),
+            @ApiResponse(responseCode = "500", description = "Internal server error while processing request")
+    })
+    public void exportUsersByPetTypeAndCity(
+            @RequestParam String petType,
+            @RequestParam String city,
+            HttpServletResponse response) throws IOException {
+        LOGGER.info("Exporting users owning {} in city: {}", petType, city);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        exportService.exportUsersByPetTypeAndCity(petType, city, response.getOutputStream());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.example.petmanagement.counts;
+
+import com.example.petmanagement.repository.PetRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Approximate totals of the paged pet listings, per city. Instead of a COUNT over the listing join on every request,
+ * two grouped queries count every city and a third counts the pets of women in any city, all refreshed every
+ * {@code approximate-counts.refresh-ms} from a background thread. A total lags by the changes of at most one period;
+ * the pages themselves are always read from the database.
+ * <p>
+ * Off unless {@code approximate-counts.enabled}, and empty until the first refresh: callers then count exactly.
+ */
+@Component
+public class ApproximateCounts {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ApproximateCounts.class);
+
+    private final PetRepository petRepository;
+    private final boolean enabled;
+    private final long refreshMillis;
+
+    /**
+     * Null until the first refresh.
+     */
+    private volatile Snapshot snapshot;
+    private ScheduledExecutorService scheduler;
+
+    public ApproximateCounts(PetRepository petRepository,
+                             @Value("${approximate-counts.enabled:false}") boolean enabled,
+                             @Value("${approximate-counts.refresh-ms:60000}") long refreshMillis) {
+        if (refreshMillis < 1) {
+            throw new IllegalArgumentException("approximate-counts.refresh-ms must be positive, was " + refreshMillis);
+        }
+        this.petRepository = petRepository;
+        this.enabled = enabled;
+        this.refreshMillis = refreshMillis;
+    }
+
+    /**
+     * @param petsByCity        active pets per city
+     * @param petsOfWomenByCity active pets having a female owner, per lower case city
+     * @param petsOfWomen       active pets having a female owner, every city
+     */
+    private record Snapshot(Map<String, Long> petsByCity, Map<String, Long> petsOfWomenByCity, long petsOfWomen) {}
+
+    /**
+     * Counts right away, then every period.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("approximate-counts").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::refreshSafely, 0, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Counts every city again. Runs on its own when enabled, public for tests and benchmarks.
+     */
+    public void refresh() {
+        long start = System.nanoTime();
+        snapshot = new Snapshot(toMap(petRepository.countActiveByCity()),
+                toMap(petRepository.countActiveOfWomenByCity()), petRepository.countActiveOfWomen());
+        LOGGER.debug("Approximate counts refreshed in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @param city exact city
+     * @return approximate total of {@code PetRepository.findByCity}, empty if not counted
+     */
+    public OptionalLong petsByCity(String city) {
+        Snapshot current = snapshot;
+        return current == null ? OptionalLong.empty() : OptionalLong.of(current.petsByCity().getOrDefault(city, 0L));
+    }
+
+    /**
+     * @param city case-insensitive, null for every city
+     * @return approximate total of {@code PetRepository.findPetsByWomenOwnersInCity}, empty if not counted
+     */
+    public OptionalLong petsOfWomen(String city) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(city == null
+                ? current.petsOfWomen()
+                : current.petsOfWomenByCity().getOrDefault(city.toLowerCase(Locale.ROOT), 0L));
+    }
+
+    /**
+     * The period is the refresh delay: a failure keeps the previous counts until the next attempt.
+     */
+    private void refreshSafely() {
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Approximate counts not refreshed, keeping the previous ones", ex);
+        }
+    }
+
+    private static Map<String, Long> toMap(List<Object[]> rows) {
+        Map<String, Long> counts = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                counts.put((String) row[0], (Long) row[1]);
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.petmanagement.dto;
+
+/**
+ * Represents the outcome of marking many users or pets as deceased at once.
+ */
+public record BulkDeceaseResponseDto(
+        /**
+         * The number of users or pets marked deceased; unknown and already deceased ones are not counted.
+         */
+        int deceased,
+
+        /**
+         * The number of transactions the update was split into.
+         */
+        int chunks
+) {}
@@ -0,0 +1,24 @@
+package com.example.petmanagement.dto;
+
+/**
+ * One row of a pet read back with its owners after a targeted update: the pet and one of its owners.
+ * A pet owned by several users spans several rows, a pet without owners has one row with null owner columns.
+ */
+public record PetOwnerRowDto(
+        Long id,
+
+        String name,
+
+        Integer age,
+
+        String type,
+
+        boolean deceased,
+
+        /**
+         * Owner columns, both null when the pet has no owner.
+         */
+        Long ownerId,
+
+        String ownerCity
+) {}
@@ -0,0 +1,32 @@
+package com.example.petmanagement.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Represents one slice of pets returned by a keyset (cursor based) or count-free offset listing.
+ * Unlike a page it carries no total count, only the cursor to continue from, or none for an offset listing.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PetSliceResponseDto(
+        /**
+         * The pets of this slice, in (name, id) order.
+         */
+        List<PetResponseDto> content,
+
+        /**
+         * The requested slice size.
+         */
+        int size,
+
+        /**
+         * Indicates whether more pets exist after this slice.
+         */
+        boolean hasNext,
+
+        /**
+         * Opaque token to pass as cursor to fetch the next slice. Absent on the last slice and on offset slices.
+         */
+        String nextCursor
+) {}
@@ -0,0 +1,31 @@
+package com.example.petmanagement.dto;
+
+/**
+ * A pet of a listing with the version of its row: the listing and its ETag read by the same statement.
+ * Not sent as is, see {@link #toResponse()}.
+ */
+public record PetVersionRowDto(
+        Long id,
+
+        String name,
+
+        Integer age,
+
+        String type,
+
+        boolean deceased,
+
+        Long version
+) {
+
+    public PetResponseDto toResponse() {
+        return new PetResponseDto(id, name, age, type, deceased);
+    }
+
+    /**
+     * @return the (id, version) pair the ETag of the listing is computed from
+     */
+    public Object[] idAndVersion() {
+        return new Object[]{id, version};
+    }
+}
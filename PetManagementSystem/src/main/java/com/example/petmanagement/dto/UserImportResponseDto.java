@@ -0,0 +1,33 @@
+package com.example.petmanagement.dto;
+
+import java.util.List;
+
+/**
+ * Represents the outcome of a bulk user import.
+ * Rows are counted from 1 in the order they were received.
+ */
+public record UserImportResponseDto(
+        /**
+         * The number of rows read from the request.
+         */
+        int received,
+
+        /**
+         * The number of users created.
+         */
+        int imported,
+
+        /**
+         * The rows that were rejected, with the reason.
+         */
+        List<RowError> errors
+) {
+
+    /**
+     * A rejected row of the import.
+     *
+     * @param row     1-based position of the row in the request
+     * @param message why the row was rejected
+     */
+    public record RowError(int row, String message) {}
+}
@@ -0,0 +1,40 @@
+package com.example.petmanagement.dto;
+
+/**
+ * One row of a user listing read with a constructor expression: the user with its address and one of its pets.
+ * A user owning several pets spans consecutive rows, a user without pets has one row with null pet columns.
+ */
+public record UserPetRowDto(
+        Long userId,
+
+        String name,
+
+        String firstName,
+
+        String city,
+
+        String addressType,
+
+        String addressName,
+
+        String number,
+
+        Integer age,
+
+        String gender,
+
+        boolean deceased,
+
+        /**
+         * Pet columns, all null when the user has no pet.
+         */
+        Long petId,
+
+        String petName,
+
+        Integer petAge,
+
+        String petType,
+
+        Boolean petDeceased
+) {}
\ No newline at end of file
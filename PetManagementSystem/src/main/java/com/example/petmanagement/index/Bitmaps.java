@@ -0,0 +1,409 @@
+package com.example.petmanagement.index;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * The bitmaps of {@link FilterIndex} and the forward values needed to keep them up to date. Not thread safe.
+ * <p>
+ * Base bitmaps map each value of a filtered column to the ids having it. The listings also filter through the
+ * user_pet join (a pet is listed for the gender and city of its owners, a user for the type of its pets), so the
+ * answers of the joins are kept as derived bitmaps as well: a change withdraws the contribution of every pet and
+ * user it touches, applies itself, then adds their contribution back.
+ */
+final class Bitmaps {
+
+    static final String FEMALE = "FEMALE";
+
+    private static final int[] NONE = {};
+
+    private final Map<String, RoaringBitmap> usersByCity = new HashMap<>();
+    private final Map<String, RoaringBitmap> usersByGender = new HashMap<>();
+    private final RoaringBitmap deceasedUsers = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> petsByType = new HashMap<>();
+    private final RoaringBitmap deceasedPets = new RoaringBitmap();
+
+    /**
+     * Pets having at least one FEMALE owner, overall and per lower case city of such an owner.
+     */
+    private final RoaringBitmap petsOfWomen = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> petsOfWomenByCity = new HashMap<>();
+    /**
+     * Users owning at least one alive pet, per type of such a pet.
+     */
+    private final Map<String, RoaringBitmap> usersByAlivePetType = new HashMap<>();
+
+    /**
+     * One instance per distinct value, shared by the forward arrays.
+     */
+    private final Map<String, String> values = new HashMap<>();
+    private final Map<Integer, String> addressCities = new HashMap<>();
+    private int[] userAddresses = NONE;
+    private String[] userGenders = new String[0];
+    private String[] petTypes = new String[0];
+    private String[] petNames = new String[0];
+    private int[][] petsByUser = new int[0][];
+    private int[][] ownersByPet = new int[0][];
+
+    // ===== Queries ===== //
+
+    /**
+     * @param city case-insensitive, null for every city
+     * @return alive pets having a FEMALE owner in the city
+     */
+    RoaringBitmap alivePetsOfWomen(String city) {
+        RoaringBitmap pets = city == null ? petsOfWomen : petsOfWomenByCity.get(city.toLowerCase(Locale.ROOT));
+        return pets == null ? new RoaringBitmap() : RoaringBitmap.andNot(pets, deceasedPets);
+    }
+
+    /**
+     * @param petType exact pet type
+     * @param city    exact city
+     * @return alive users of the city owning an alive pet of the type
+     */
+    RoaringBitmap aliveUsersOwningAlivePet(String petType, String city) {
+        RoaringBitmap inCity = usersByCity.get(city);
+        RoaringBitmap owning = usersByAlivePetType.get(petType);
+        if (inCity == null || owning == null) {
+            return new RoaringBitmap();
+        }
+        RoaringBitmap users = RoaringBitmap.and(inCity, owning);
+        users.andNot(deceasedUsers);
+        return users;
+    }
+
+    /**
+     * Selects a page of pets in (name, id) order, the order of the pet listings, keeping only
+     * {@code offset + size} candidates at a time.
+     *
+     * @param pets   ids of the pets to page through
+     * @param offset number of pets to skip
+     * @param size   page size
+     * @return ids of the page, in order
+     */
+    List<Long> pageByName(RoaringBitmap pets, long offset, int size) {
+        List<Long> first = firstByName(pets, (int) Math.min(offset + size, pets.getCardinality()), pet -> true);
+        return first.subList((int) Math.min(offset, first.size()), first.size());
+    }
+
+    /**
+     * Keyset variant of {@link #pageByName}: selects the pets that follow the given position in (name, id) order.
+     *
+     * @param pets      ids of the pets to page through
+     * @param afterName name of the last pet of the previous slice, "" for the first slice
+     * @param afterId   id of the last pet of the previous slice, 0 for the first slice
+     * @param size      number of pets to select
+     * @return ids of the slice, in order
+     */
+    List<Long> pageByNameAfter(RoaringBitmap pets, String afterName, long afterId, int size) {
+        return firstByName(pets, (int) Math.min(size, pets.getCardinality()), pet -> {
+            String name = petNames[pet];
+            int order = name == null ? 1 : name.compareTo(afterName);
+            return order > 0 || order == 0 && pet > afterId;
+        });
+    }
+
+    /**
+     * @return the first {@code keep} included pets in (name, id) order, keeping only that many candidates at a time
+     */
+    private List<Long> firstByName(RoaringBitmap pets, int keep, IntPredicate included) {
+        if (keep == 0) {
+            return List.of();
+        }
+        Comparator<Integer> byName = Comparator.<Integer, String>comparing(pet -> petNames[pet],
+                Comparator.nullsLast(Comparator.naturalOrder())).thenComparing(Comparator.naturalOrder());
+        PriorityQueue<Integer> last = new PriorityQueue<>(Math.max(keep, 1), byName.reversed());
+        for (int pet : pets) {
+            if (!included.test(pet)) {
+                continue;
+            }
+            if (last.size() < keep) {
+                last.add(pet);
+            } else if (byName.compare(pet, last.peek()) < 0) {
+                last.poll();
+                last.add(pet);
+            }
+        }
+        List<Long> first = new ArrayList<>(last.size());
+        while (!last.isEmpty()) {
+            first.add((long) last.poll());
+        }
+        return first.reversed();
+    }
+
+    // ===== Changes ===== //
+
+    void putAddress(int addressId, String city) {
+        city = canonical(city);
+        String previous = addressCities.get(addressId);
+        if (city.equals(previous)) {
+            return;
+        }
+        if (previous == null) {
+            addressCities.put(addressId, city);
+            return;
+        }
+        // Addresses are shared and practically never change city: scanning for their users is fine
+        Set<Integer> users = new HashSet<>();
+        for (int user = 0; user < userAddresses.length; user++) {
+            if (userAddresses[user] == addressId) {
+                users.add(user);
+            }
+        }
+        int[] userIds = users.stream().mapToInt(Integer::intValue).toArray();
+        int[] petIds = users.stream().flatMapToInt(user -> Arrays.stream(petsByUser[user])).distinct().toArray();
+        withdraw(petIds, userIds);
+        for (int user : userIds) {
+            remove(usersByCity, previous, user);
+            add(usersByCity, city, user);
+        }
+        addressCities.put(addressId, city);
+        contribute(petIds, userIds);
+    }
+
+    void putUser(int id, int addressId, String gender, boolean deceased) {
+        gender = canonical(gender);
+        ensureUserCapacity(id);
+        int[] pets = petsByUser[id];
+        int[] users = {id};
+        withdraw(pets, users);
+
+        remove(usersByCity, cityOf(id), id);
+        remove(usersByGender, userGenders[id], id);
+        userAddresses[id] = addressId;
+        userGenders[id] = gender;
+        add(usersByCity, cityOf(id), id);
+        add(usersByGender, gender, id);
+        set(deceasedUsers, id, deceased);
+
+        contribute(pets, users);
+    }
+
+    void removeUser(int id) {
+        if (id >= userAddresses.length) {
+            return;
+        }
+        int[] affectedPets = petsByUser[id];
+        int[] users = {id};
+        withdraw(affectedPets, users);
+        remove(usersByCity, cityOf(id), id);
+        remove(usersByGender, userGenders[id], id);
+        userAddresses[id] = 0;
+        userGenders[id] = null;
+        deceasedUsers.remove(id);
+        for (int pet : affectedPets) {
+            ownersByPet[pet] = without(ownersByPet[pet], id);
+        }
+        petsByUser[id] = NONE;
+        contribute(affectedPets, users);
+    }
+
+    void putPet(int id, String name, String type, boolean deceased) {
+        type = canonical(type);
+        ensurePetCapacity(id);
+        int[] pets = {id};
+        int[] owners = ownersByPet[id];
+        withdraw(pets, owners);
+        remove(petsByType, petTypes[id], id);
+        petTypes[id] = type;
+        petNames[id] = canonical(name);
+        add(petsByType, type, id);
+        set(deceasedPets, id, deceased);
+        contribute(pets, owners);
+    }
+
+    void removePet(int id) {
+        if (id >= petTypes.length) {
+            return;
+        }
+        int[] pets = {id};
+        int[] owners = ownersByPet[id];
+        withdraw(pets, owners);
+        for (int owner : owners) {
+            petsByUser[owner] = without(petsByUser[owner], id);
+        }
+        ownersByPet[id] = NONE;
+        remove(petsByType, petTypes[id], id);
+        petTypes[id] = null;
+        petNames[id] = null;
+        deceasedPets.remove(id);
+        contribute(pets, owners);
+    }
+
+    /**
+     * Adds or removes a row of the user_pet join table.
+     */
+    void putOwnership(int userId, int petId, boolean owned) {
+        ensureUserCapacity(userId);
+        ensurePetCapacity(petId);
+        int[] pets = {petId};
+        int[] users = {userId};
+        withdraw(pets, users);
+        petsByUser[userId] = owned ? with(petsByUser[userId], petId) : without(petsByUser[userId], petId);
+        ownersByPet[petId] = owned ? with(ownersByPet[petId], userId) : without(ownersByPet[petId], userId);
+        contribute(pets, users);
+    }
+
+    /**
+     * Adds a row of the user_pet join table, for the initial load; the base values of both ends may come later.
+     */
+    void addOwnership(int userId, int petId) {
+        ensureUserCapacity(userId);
+        ensurePetCapacity(petId);
+        petsByUser[userId] = with(petsByUser[userId], petId);
+        ownersByPet[petId] = with(ownersByPet[petId], userId);
+    }
+
+    /**
+     * Computes every derived bitmap from the base values, once the initial load is done.
+     */
+    void deriveAll() {
+        petsOfWomen.clear();
+        petsOfWomenByCity.clear();
+        usersByAlivePetType.clear();
+        int[] pets = new int[petTypes.length];
+        Arrays.setAll(pets, pet -> pet);
+        int[] users = new int[userAddresses.length];
+        Arrays.setAll(users, user -> user);
+        contribute(pets, users);
+    }
+
+    // ===== Derived bitmaps ===== //
+
+    private void withdraw(int[] pets, int[] users) {
+        for (int pet : pets) {
+            petsOfWomen.remove(pet);
+            for (String city : citiesOfWomenOwning(pet)) {
+                remove(petsOfWomenByCity, city, pet);
+            }
+        }
+        for (int user : users) {
+            for (String type : alivePetTypesOf(user)) {
+                remove(usersByAlivePetType, type, user);
+            }
+        }
+    }
+
+    private void contribute(int[] pets, int[] users) {
+        for (int pet : pets) {
+            for (int owner : ownersByPet[pet]) {
+                if (FEMALE.equals(userGenders[owner])) {
+                    petsOfWomen.add(pet);
+                    break;
+                }
+            }
+            for (String city : citiesOfWomenOwning(pet)) {
+                add(petsOfWomenByCity, city, pet);
+            }
+        }
+        for (int user : users) {
+            for (String type : alivePetTypesOf(user)) {
+                add(usersByAlivePetType, type, user);
+            }
+        }
+    }
+
+    private Set<String> citiesOfWomenOwning(int pet) {
+        Set<String> cities = new HashSet<>(2);
+        for (int owner : ownersByPet[pet]) {
+            String city = cityOf(owner);
+            if (FEMALE.equals(userGenders[owner]) && city != null) {
+                cities.add(city.toLowerCase(Locale.ROOT));
+            }
+        }
+        return cities;
+    }
+
+    private Set<String> alivePetTypesOf(int user) {
+        Set<String> types = new HashSet<>(2);
+        for (int pet : petsByUser[user]) {
+            if (petTypes[pet] != null && !deceasedPets.contains(pet)) {
+                types.add(petTypes[pet]);
+            }
+        }
+        return types;
+    }
+
+    // ===== Forward values ===== //
+
+    private String canonical(String value) {
+        return value == null ? null : values.computeIfAbsent(value, key -> key);
+    }
+
+    private String cityOf(int user) {
+        return userAddresses[user] == 0 ? null : addressCities.get(userAddresses[user]);
+    }
+
+    private void ensureUserCapacity(int id) {
+        if (id >= userAddresses.length) {
+            int length = Math.max(id + 1, userAddresses.length + (userAddresses.length >> 1));
+            int previous = userAddresses.length;
+            userAddresses = Arrays.copyOf(userAddresses, length);
+            userGenders = Arrays.copyOf(userGenders, length);
+            petsByUser = Arrays.copyOf(petsByUser, length);
+            Arrays.fill(petsByUser, previous, length, NONE);
+        }
+    }
+
+    private void ensurePetCapacity(int id) {
+        if (id >= petTypes.length) {
+            int length = Math.max(id + 1, petTypes.length + (petTypes.length >> 1));
+            int previous = petTypes.length;
+            petTypes = Arrays.copyOf(petTypes, length);
+            petNames = Arrays.copyOf(petNames, length);
+            ownersByPet = Arrays.copyOf(ownersByPet, length);
+            Arrays.fill(ownersByPet, previous, length, NONE);
+        }
+    }
+
+    private static int[] with(int[] ids, int id) {
+        for (int existing : ids) {
+            if (existing == id) {
+                return ids;
+            }
+        }
+        int[] extended = Arrays.copyOf(ids, ids.length + 1);
+        extended[ids.length] = id;
+        return extended;
+    }
+
+    private static int[] without(int[] ids, int id) {
+        int[] remaining = Arrays.stream(ids).filter(existing -> existing != id).toArray();
+        return remaining.length == 0 ? NONE : remaining;
+    }
+
+    private static void add(Map<String, RoaringBitmap> bitmaps, String value, int id) {
+        if (value != null) {
+            bitmaps.computeIfAbsent(value, key -> new RoaringBitmap()).add(id);
+        }
+    }
+
+    private static void remove(Map<String, RoaringBitmap> bitmaps, String value, int id) {
+        RoaringBitmap bitmap = value == null ? null : bitmaps.get(value);
+        if (bitmap != null) {
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(value);
+            }
+        }
+    }
+
+    private static void set(RoaringBitmap bitmap, int id, boolean member) {
+        if (member) {
+            bitmap.add(id);
+        } else {
+            bitmap.remove(id);
+        }
+    }
+}
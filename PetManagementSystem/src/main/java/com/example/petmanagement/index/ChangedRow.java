@@ -0,0 +1,24 @@
+package com.example.petmanagement.index;
+
+/**
+ * A row written by a transaction, recorded by {@link FilterIndexListener} or by the services for bulk updates.
+ * It carries the key of the row only: its state is read from the table once the transaction has committed, so that
+ * the index ends up with the latest committed state whatever the order the transactions are applied in.
+ */
+sealed interface ChangedRow {
+
+    record UserRow(long id) implements ChangedRow {
+    }
+
+    record PetRow(long id) implements ChangedRow {
+    }
+
+    /**
+     * A user_pet row, inserted or deleted.
+     */
+    record OwnershipRow(long userId, long petId) implements ChangedRow {
+    }
+
+    record AddressRow(long id) implements ChangedRow {
+    }
+}
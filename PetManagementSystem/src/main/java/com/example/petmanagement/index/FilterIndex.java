@@ -0,0 +1,359 @@
+package com.example.petmanagement.index;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index of the low cardinality filters of the listings: city, gender, pet type and deceased.
+ * Each value is mapped to a compressed bitmap of user or pet ids, so that the id set of a listing is an intersection
+ * of bitmaps and only its page is read from the database.
+ * <p>
+ * It is loaded from the tables once the application is ready, then kept in sync by {@link FilterIndexListener}:
+ * the rows written by a transaction are read again right after it commits, and their committed state applied;
+ * nothing is applied if it rolls back.
+ * Rows written behind Hibernate's back (seeding) need a {@link #rebuild()}.
+ * Until it is built, and for transactions that may write, callers read from the database instead, see {@link #isUsable()}.
+ * Disabled with {@code filter-index.enabled=false}.
+ */
+@Component
+public class FilterIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilterIndex.class);
+
+    /**
+     * Largest number of resolved ids worth reading by primary key, as one IN list.
+     */
+    public static final int MAX_IN_LIST = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Held while the changes of a transaction are read and applied, so that they are applied one at a time.
+     */
+    private final Object applying = new Object();
+    /**
+     * Guarded by {@link #lock}.
+     */
+    private Bitmaps bitmaps = new Bitmaps();
+    /**
+     * Changes applied while a rebuild is loading, replayed on the loaded bitmaps. Guarded by {@link #lock}.
+     */
+    private List<IndexChange> replay;
+    private volatile boolean ready;
+
+    public FilterIndex(JdbcTemplate jdbcTemplate, @Value("${filter-index.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Builds the index unless the startup seeding already did.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!ready) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Loads the index from the tables. Changes committed meanwhile are applied on top of the loaded bitmaps,
+     * readers keep using the previous ones until the new ones are swapped in.
+     */
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        withWriteLock(() -> replay = new ArrayList<>());
+        Bitmaps loaded = null;
+        try {
+            loaded = load();
+        } finally {
+            Bitmaps built = loaded;
+            withWriteLock(() -> {
+                if (built != null) {
+                    replay.forEach(change -> change.applyTo(built));
+                    bitmaps = built;
+                    ready = true;
+                }
+                replay = null;
+            });
+        }
+        LOGGER.info("Filter index built in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @return true when the index is built and the current transaction is read only: a transaction that may write
+     * could miss its own changes, which only reach the index once committed
+     */
+    public boolean isUsable() {
+        return ready && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * @param city case-insensitive, null for every city
+     * @return ids of the alive pets having a FEMALE owner in the city
+     */
+    public RoaringBitmap alivePetsOfWomen(String city) {
+        lock.readLock().lock();
+        try {
+            return bitmaps.alivePetsOfWomen(city);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param petType exact pet type
+     * @param city    exact city
+     * @return ids of the alive users of the city owning an alive pet of the type
+     */
+    public RoaringBitmap aliveUsersOwningAlivePet(String petType, String city) {
+        lock.readLock().lock();
+        try {
+            return bitmaps.aliveUsersOwningAlivePet(petType, city);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param pets   ids of pets, e.g. from {@link #alivePetsOfWomen}
+     * @param offset number of pets to skip
+     * @param size   page size
+     * @return ids of the page of the pets in (name, id) order, the order of the pet listings
+     */
+    public List<Long> pageByName(RoaringBitmap pets, long offset, int size) {
+        lock.readLock().lock();
+        try {
+            return bitmaps.pageByName(pets, offset, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param pets      ids of pets, e.g. from {@link #alivePetsOfWomen}
+     * @param afterName name of the last pet of the previous slice, "" for the first slice
+     * @param afterId   id of the last pet of the previous slice, 0 for the first slice
+     * @param size      slice size
+     * @return ids of the pets following the position in (name, id) order, the order of the pet listings
+     */
+    public List<Long> pageByNameAfter(RoaringBitmap pets, String afterName, long afterId, int size) {
+        lock.readLock().lock();
+        try {
+            return bitmaps.pageByNameAfter(pets, afterName, afterId, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param ids resolved ids
+     * @return the ids in ascending order, e.g. to bind them as an IN list
+     */
+    public static List<Long> toList(RoaringBitmap ids) {
+        List<Long> list = new ArrayList<>(ids.getCardinality());
+        ids.forEach((int id) -> list.add((long) id));
+        return list;
+    }
+
+    /**
+     * Records a user changed by a targeted or bulk update, which {@link FilterIndexListener} does not see.
+     */
+    public void recordUser(long id) {
+        record(new ChangedRow.UserRow(id));
+    }
+
+    /**
+     * Records users changed by a set based update, which {@link FilterIndexListener} does not see.
+     */
+    public void recordUsers(Collection<Long> ids) {
+        ids.forEach(this::recordUser);
+    }
+
+    /**
+     * Records a pet changed by a targeted or bulk update, which {@link FilterIndexListener} does not see.
+     */
+    public void recordPet(long id) {
+        record(new ChangedRow.PetRow(id));
+    }
+
+    /**
+     * Records pets changed by a set based update, which {@link FilterIndexListener} does not see.
+     */
+    public void recordPets(Collection<Long> ids) {
+        ids.forEach(this::recordPet);
+    }
+
+    /**
+     * Applies the change once the current transaction commits, or right away outside of a transaction.
+     */
+    void record(ChangedRow row) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applySafely(List.of(row));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<ChangedRow> pending = (Set<ChangedRow>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<ChangedRow> rows = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, rows);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applySafely(rows);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(FilterIndex.this);
+                }
+            });
+            pending = rows;
+        }
+        pending.add(row);
+    }
+
+    /**
+     * Reads the committed state of the rows and applies it. Transactions are applied one at a time, each reading
+     * after the previous one applied: whatever the order their commits are applied in, the last one reads the
+     * latest state, so two transactions writing the same row cannot leave the older state indexed.
+     * <p>
+     * The transaction is already committed: a change that cannot be applied turns the index off until the next
+     * rebuild instead of failing the request.
+     */
+    private void applySafely(Collection<ChangedRow> rows) {
+        synchronized (applying) {
+            try {
+                List<IndexChange> changes = readCurrent(rows);
+                withWriteLock(() -> {
+                    changes.forEach(change -> change.applyTo(bitmaps));
+                    if (replay != null) {
+                        replay.addAll(changes);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                ready = false;
+                LOGGER.error("Filter index out of sync, listings read from the database until it is rebuilt", ex);
+            }
+        }
+    }
+
+    /**
+     * @return the state of each row, a removal for the users and pets that no longer exist
+     */
+    private List<IndexChange> readCurrent(Collection<ChangedRow> rows) {
+        Set<Integer> addressIds = new LinkedHashSet<>();
+        Set<Integer> userIds = new LinkedHashSet<>();
+        Set<Integer> petIds = new LinkedHashSet<>();
+        Map<Integer, Set<Integer>> ownersByPet = new LinkedHashMap<>();
+        for (ChangedRow row : rows) {
+            switch (row) {
+                case ChangedRow.AddressRow address -> addressIds.add(Math.toIntExact(address.id()));
+                case ChangedRow.UserRow user -> userIds.add(Math.toIntExact(user.id()));
+                case ChangedRow.PetRow pet -> petIds.add(Math.toIntExact(pet.id()));
+                case ChangedRow.OwnershipRow ownership -> ownersByPet
+                        .computeIfAbsent(Math.toIntExact(ownership.petId()), pet -> new LinkedHashSet<>())
+                        .add(Math.toIntExact(ownership.userId()));
+            }
+        }
+
+        List<IndexChange> changes = new ArrayList<>();
+        queryIn("SELECT id, city FROM address WHERE id IN (?)", addressIds,
+                rs -> changes.add(new IndexChange.AddressChange(id(rs, 1), rs.getString(2))));
+
+        Set<Integer> removedUsers = new LinkedHashSet<>(userIds);
+        queryIn("SELECT u.id, u.address_id, a.city, u.gender, u.deceased FROM \"user\" u "
+                        + "JOIN address a ON a.id = u.address_id WHERE u.id IN (?)", userIds,
+                rs -> {
+                    removedUsers.remove(id(rs, 1));
+                    changes.add(new IndexChange.UserChange(id(rs, 1), id(rs, 2), rs.getString(3), rs.getString(4),
+                            rs.getBoolean(5)));
+                });
+        removedUsers.forEach(id -> changes.add(new IndexChange.UserRemoval(id)));
+
+        Set<Integer> removedPets = new LinkedHashSet<>(petIds);
+        queryIn("SELECT id, name, type, deceased FROM pet WHERE id IN (?)", petIds,
+                rs -> {
+                    removedPets.remove(id(rs, 1));
+                    changes.add(new IndexChange.PetChange(id(rs, 1), rs.getString(2), rs.getString(3), rs.getBoolean(4)));
+                });
+        removedPets.forEach(id -> changes.add(new IndexChange.PetRemoval(id)));
+
+        Map<Integer, Set<Integer>> owned = new HashMap<>();
+        queryIn("SELECT pet_id, user_id FROM user_pet WHERE pet_id IN (?)", ownersByPet.keySet(),
+                rs -> owned.computeIfAbsent(id(rs, 1), pet -> new HashSet<>()).add(id(rs, 2)));
+        ownersByPet.forEach((pet, users) -> users.forEach(user -> changes.add(new IndexChange.OwnershipChange(
+                user, pet, owned.getOrDefault(pet, Set.of()).contains(user)))));
+        return changes;
+    }
+
+    /**
+     * Runs the query with its {@code IN (?)} expanded to the ids, {@link #MAX_IN_LIST} at a time.
+     */
+    private void queryIn(String sql, Collection<Integer> ids, RowCallbackHandler handler) {
+        List<Integer> list = List.copyOf(ids);
+        for (int from = 0; from < list.size(); from += MAX_IN_LIST) {
+            List<Integer> chunk = list.subList(from, Math.min(list.size(), from + MAX_IN_LIST));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query(sql.replace("IN (?)", "IN (" + placeholders + ")"), handler, chunk.toArray());
+        }
+    }
+
+    private Bitmaps load() {
+        Bitmaps loaded = new Bitmaps();
+        jdbcTemplate.query("SELECT id, city FROM address",
+                (RowCallbackHandler) rs -> loaded.putAddress(id(rs, 1), rs.getString(2)));
+        jdbcTemplate.query("SELECT id, address_id, gender, deceased FROM \"user\"",
+                (RowCallbackHandler) rs -> loaded.putUser(id(rs, 1), id(rs, 2), rs.getString(3), rs.getBoolean(4)));
+        jdbcTemplate.query("SELECT id, name, type, deceased FROM pet",
+                (RowCallbackHandler) rs -> loaded.putPet(id(rs, 1), rs.getString(2), rs.getString(3), rs.getBoolean(4)));
+        jdbcTemplate.query("SELECT user_id, pet_id FROM user_pet",
+                (RowCallbackHandler) rs -> loaded.addOwnership(id(rs, 1), id(rs, 2)));
+        loaded.deriveAll();
+        return loaded;
+    }
+
+    private static int id(ResultSet rs, int column) throws SQLException {
+        return Math.toIntExact(rs.getLong(column));
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.petmanagement.index;
+
+import com.example.petmanagement.model.Address;
+import com.example.petmanagement.model.Pet;
+import com.example.petmanagement.model.User;
+import com.example.petmanagement.model.UserPet;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entity listener of {@link User}, {@link Pet}, {@link Address} and {@link UserPet} forwarding their flushed changes to the
+ * {@link FilterIndex}. Hibernate gets it from Spring; contexts without the index (repository slices) ignore changes.
+ * <p>
+ * Nothing is loaded here: only the keys of the written rows are forwarded, the index reads their committed state.
+ */
+@Component
+public class FilterIndexListener {
+
+    private final ObjectProvider<FilterIndex> filterIndex;
+
+    public FilterIndexListener(ObjectProvider<FilterIndex> filterIndex) {
+        this.filterIndex = filterIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void onChange(Object entity) {
+        FilterIndex index = filterIndex.getIfAvailable();
+        if (index == null) {
+            return;
+        }
+        switch (entity) {
+            case User user -> index.record(new ChangedRow.UserRow(user.getId()));
+            case Pet pet -> index.record(new ChangedRow.PetRow(pet.getId()));
+            case Address address -> index.record(new ChangedRow.AddressRow(address.getId()));
+            case UserPet userPet -> index.record(
+                    new ChangedRow.OwnershipRow(userPet.getId().getUserId(), userPet.getId().getPetId()));
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.petmanagement.index;
+
+/**
+ * The committed state of an indexed row, read by {@link FilterIndex} for a {@link ChangedRow}.
+ * Changes replace the indexed values of their entity, so applying one twice is harmless.
+ */
+sealed interface IndexChange {
+
+    void applyTo(Bitmaps bitmaps);
+
+    /**
+     * @param city city of the address of the user
+     */
+    record UserChange(int id, int addressId, String city, String gender, boolean deceased) implements IndexChange {
+        @Override
+        public void applyTo(Bitmaps bitmaps) {
+            bitmaps.putAddress(addressId, city);
+            bitmaps.putUser(id, addressId, gender, deceased);
+        }
+    }
+
+    record UserRemoval(int id) implements IndexChange {
+        @Override
+        public void applyTo(Bitmaps bitmaps) {
+            bitmaps.removeUser(id);
+        }
+    }
+
+    record PetChange(int id, String name, String type, boolean deceased) implements IndexChange {
+        @Override
+        public void applyTo(Bitmaps bitmaps) {
+            bitmaps.putPet(id, name, type, deceased);
+        }
+    }
+
+    record PetRemoval(int id) implements IndexChange {
+        @Override
+        public void applyTo(Bitmaps bitmaps) {
+            bitmaps.removePet(id);
+        }
+    }
+
+    /**
+     * @param owned true when the user_pet row was inserted, false when it was deleted
+     */
+    record OwnershipChange(int userId, int petId, boolean owned) implements IndexChange {
+        @Override
+        public void applyTo(Bitmaps bitmaps) {
+            bitmaps.putOwnership(userId, petId, owned);
+        }
+    }
+
+    record AddressChange(int id, String city) implements IndexChange {
+        @Override
+        public void applyTo(Bitmaps bitmaps) {
+            bitmaps.putAddress(id, city);
+        }
+    }
+}
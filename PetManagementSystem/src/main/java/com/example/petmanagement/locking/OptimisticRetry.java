@@ -0,0 +1,68 @@
+package com.example.petmanagement.locking;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs a transaction again when it lost a race: its version check failed (a row it changed was changed and
+ * committed by another transaction since it read it), or the database chose it as a deadlock or lock timeout victim.
+ * Each attempt starts from a fresh read, so the rules are checked against the state that won.
+ * <p>
+ * At most {@code optimistic-retry.max-attempts} attempts are made, separated by a randomized, doubling pause
+ * starting at {@code optimistic-retry.backoff-ms}, so that contenders spread out instead of colliding again;
+ * the last failure is then thrown (409 Conflict). A call made within a transaction runs once: the failure has
+ * marked that transaction for rollback, only its owner can start over.
+ */
+@Component
+public class OptimisticRetry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OptimisticRetry.class);
+
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public OptimisticRetry(@Value("${optimistic-retry.max-attempts:5}") int maxAttempts,
+                           @Value("${optimistic-retry.backoff-ms:5}") long backoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("optimistic-retry.max-attempts must be positive, was " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    /**
+     * @param transaction starts and completes its own transaction on every call
+     * @throws ConcurrencyFailureException the failure of the last attempt
+     */
+    public <T> T call(Supplier<T> transaction) {
+        int attempts = TransactionSynchronizationManager.isActualTransactionActive() ? 1 : maxAttempts;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.get();
+            } catch (ConcurrencyFailureException ex) {
+                if (attempt >= attempts) {
+                    LOGGER.warn("Concurrent update still failing after {} attempts", attempt);
+                    throw ex;
+                }
+                LOGGER.debug("Attempt {} lost a concurrent update, retrying: {}", attempt, ex.getMessage());
+                pause(attempt);
+            }
+        }
+    }
+
+    private void pause(int attempt) {
+        long bound = backoffMillis << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(bound / 2 + ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", ex);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.petmanagement.locking;
+
+import com.example.petmanagement.exception.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the ownership changes of a pet within this process: each pet id maps to one of
+ * {@code pet-locks.stripes} locks, so that memory stays fixed whatever the number of pets, at the cost of
+ * unrelated pets sometimes sharing a lock. A caller holds a single lock at a time, which rules out deadlocks,
+ * and waits at most {@code pet-locks.acquire-timeout-ms} before being rejected with 503 and Retry-After.
+ * <p>
+ * Other nodes, and writers that do not take the lock, are caught by the optimistic version check instead, see
+ * {@link OptimisticRetry}: the lock only keeps the threads of one node from failing it against each other.
+ * The locks are {@link ReentrantLock}s, which do not pin virtual threads.
+ */
+@Component
+public class PetLocks {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PetLocks.class);
+
+    private final ReentrantLock[] stripes;
+    private final long acquireTimeoutMillis;
+
+    public PetLocks(@Value("${pet-locks.stripes:64}") int stripes,
+                    @Value("${pet-locks.acquire-timeout-ms:2000}") long acquireTimeoutMillis) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("pet-locks.stripes must be positive, was " + stripes);
+        }
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /**
+     * Runs the action holding the lock of the pet. Run the whole transaction in it, commit included: a lock
+     * released before the commit would let the next caller read the state the commit replaces.
+     *
+     * @throws ServiceUnavailableException if the lock is not acquired within the timeout
+     */
+    public <T> T callLocked(long petId, Supplier<T> action) {
+        ReentrantLock lock = stripes[Math.floorMod(Long.hashCode(petId), stripes.length)];
+        try {
+            if (!lock.tryLock(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Gave up waiting {} ms for the lock of pet {}", acquireTimeoutMillis, petId);
+                throw new ServiceUnavailableException("Pet " + petId + " is being changed, retry later");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for the lock of pet " + petId);
+        }
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.petmanagement.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps one out of {@code n} INFO, DEBUG and TRACE events of each logger under a configured prefix,
+ * starting with the first one; WARN and ERROR events are never dropped.
+ * It runs before the event is created, so a dropped event costs neither the formatting of its arguments
+ * (e.g. the {@code toString()} of a request DTO) nor a slot in the appender queue.
+ * Rates are configured in logback.xml, the longest matching prefix wins:
+ * <pre>
+ * &lt;turboFilter class="com.example.petmanagement.logging.SamplingTurboFilter"&gt;
+ *     &lt;sample&gt;com.example.petmanagement.controller=10&lt;/sample&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private static final Sampler NOT_SAMPLED = new Sampler(1);
+
+    private final Map<String, Integer> rates = new ConcurrentHashMap<>();
+    private final Map<String, Sampler> samplers = new ConcurrentHashMap<>();
+
+    /**
+     * @param sample {@code <logger name prefix>=<keep one out of>}, e.g. {@code org.hibernate.SQL_SLOW=5}
+     * @throws IllegalArgumentException if the sample is malformed or its rate is not positive
+     */
+    public void addSample(String sample) {
+        int separator = sample.lastIndexOf('=');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Expected <logger>=<rate>, got '" + sample + "'");
+        }
+        int rate = Integer.parseInt(sample.substring(separator + 1).trim());
+        if (rate < 1) {
+            throw new IllegalArgumentException("The rate of '" + sample + "' must be at least 1");
+        }
+        rates.put(sample.substring(0, separator).trim(), rate);
+        samplers.clear();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // A null format is an isXxxEnabled() check, not an event; disabled events must not use up a sample
+        if (format == null || level.isGreaterOrEqual(Level.WARN)
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        Sampler sampler = samplers.computeIfAbsent(logger.getName(), this::samplerOf);
+        return sampler.keep() ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private Sampler samplerOf(String loggerName) {
+        String prefix = null;
+        for (String candidate : rates.keySet()) {
+            if ((loggerName.equals(candidate) || loggerName.startsWith(candidate + "."))
+                    && (prefix == null || candidate.length() > prefix.length())) {
+                prefix = candidate;
+            }
+        }
+        return prefix == null || rates.get(prefix) == 1 ? NOT_SAMPLED : new Sampler(rates.get(prefix));
+    }
+
+    private static final class Sampler {
+        private final int rate;
+        private final AtomicLong events = new AtomicLong();
+
+        private Sampler(int rate) {
+            this.rate = rate;
+        }
+
+        private boolean keep() {
+            return rate == 1 || events.getAndIncrement() % rate == 0;
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.example.petmanagement.model;
 
+import com.example.petmanagement.index.FilterIndexListener;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 /**
  * Represents an Address entity in the system.
@@ -10,17 +15,24 @@ import lombok.Setter;
  * It contains details about the address such as city, type, name, and number.
  */
 @Entity
-@Table(name = "address")
+@EntityListeners(FilterIndexListener.class)
+@Table(name = "address",
+        uniqueConstraints = @UniqueConstraint(
+                columnNames = {"city", "type", "address_name", "number"}))
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "address")
+@DynamicUpdate
 @Getter
 @Setter
 public class Address extends Auditable {
 
     /**
      * The unique identifier for the address.
-     * It is auto-generated using the IDENTITY strategy.
+     * It is generated from the "address_seq" sequence with a pooled optimizer, so ids are reserved
+     * in blocks of allocationSize and inserts can be batched by Hibernate.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "address_seq")
+    @SequenceGenerator(name = "address_seq", sequenceName = "address_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -30,6 +42,14 @@ public class Address extends Auditable {
     @Column(nullable = false)
     private String city;
 
+    /**
+     * The city in lower case, for case-insensitive searches through an index.
+     * It is computed by the database from {@link #city}, hence read only, and not read back after a persist.
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "city_lower", insertable = false, updatable = false)
+    private String cityLower;
+
     /**
      * The type of the address, e.g., road, street, avenue.
      * This field is mandatory.
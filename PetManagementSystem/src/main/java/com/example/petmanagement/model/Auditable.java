@@ -29,6 +29,14 @@ public abstract class Auditable {
     @Column(name = "last_update_time")
     private LocalDateTime lastUpdateTime;
 
+    /**
+     * Incremented by every update of the row: a concurrent update of the same row fails instead of being lost.
+     * Null until the entity is persisted.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         this.createdTime = LocalDateTime.now();
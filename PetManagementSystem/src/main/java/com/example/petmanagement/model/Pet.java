@@ -1,30 +1,42 @@
 package com.example.petmanagement.model;
 
+import com.example.petmanagement.index.FilterIndexListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Represents a Pet entity in the system.
  * This class is mapped to the "pet" table in the database.
  * It contains details about the pet such as name, age, type, and deceased status.
- * Additionally, it establishes a many-to-many relationship with the User entity.
+ * Additionally, it is owned by users through {@link UserPet} rows.
+ * Updates made through the entity, like the version bump of an assignment, write only the changed columns.
  */
 @Entity
+@EntityListeners(FilterIndexListener.class)
 @Table(name = "pet")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "pet")
+@DynamicUpdate
 @Getter
 @Setter
 public class Pet extends Auditable{
 
     /**
      * The unique identifier for the pet.
-     * It is auto-generated using the IDENTITY strategy.
+     * It is generated from the "pet_seq" sequence with a pooled optimizer, so ids are reserved
+     * in blocks of allocationSize and inserts can be batched by Hibernate.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pet_seq")
+    @SequenceGenerator(name = "pet_seq", sequenceName = "pet_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -56,10 +68,18 @@ public class Pet extends Auditable{
     private boolean deceased = false;
 
     /**
-     * The set of owners associated with the pet.
-     * This establishes a many-to-many relationship with the User entity.
-     * The relationship is mapped by the "pets" field in the User entity.
+     * The ownerships of the pet, rows of the "user_pet" join table (see {@link UserPet}).
+     * When it is not fetched with the pet, the ownerships of up to 50 loaded pets are initialized in one query.
      */
-    @ManyToMany(mappedBy = "pets", cascade = CascadeType.ALL)
-    private Set<User> owners = new HashSet<>();
+    @OneToMany(mappedBy = "pet")
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "pet-owners")
+    private Set<UserPet> ownerships = new HashSet<>();
+
+    /**
+     * @return the owners of the pet, a read-only view of its ownerships
+     */
+    public Set<User> getOwners() {
+        return ownerships.stream().map(UserPet::getUser).collect(Collectors.toUnmodifiableSet());
+    }
 }
\ No newline at end of file
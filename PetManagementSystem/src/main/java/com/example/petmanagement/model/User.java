@@ -1,11 +1,17 @@
 package com.example.petmanagement.model;
 
+import com.example.petmanagement.index.FilterIndexListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Represents a User entity in the system.
@@ -13,19 +19,33 @@ import java.util.Set;
  * It contains details about the user such as name, first name, age, gender, address, and associated pets.
  */
 @Entity
+@EntityListeners(FilterIndexListener.class)
+@NamedEntityGraph(name = User.WITH_ADDRESS_AND_PETS, attributeNodes = {
+        @NamedAttributeNode("address"),
+        @NamedAttributeNode(value = "ownerships", subgraph = "ownerships")
+}, subgraphs = @NamedSubgraph(name = "ownerships", attributeNodes = @NamedAttributeNode("pet")))
 @Table(name = "\"user\"",
         uniqueConstraints = @UniqueConstraint(
                 columnNames = {"name", "first_name"}))
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
+@DynamicUpdate
 @Getter
 @Setter
 public class User extends Auditable {
 
+    /**
+     * Entity graph loading the address and pets with the user, everything {@code mapToUserResponse} reads.
+     */
+    public static final String WITH_ADDRESS_AND_PETS = "User.withAddressAndPets";
+
     /**
      * The unique identifier for the user.
-     * It is auto-generated using the IDENTITY strategy.
+     * It is generated from the "user_seq" sequence with a pooled optimizer, so ids are reserved
+     * in blocks of allocationSize and inserts can be batched by Hibernate.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -78,21 +98,19 @@ public class User extends Auditable {
     private boolean deceased = false;
 
     /**
-     * The set of pets associated with the user.
-     * This establishes a many-to-many relationship with the Pet entity.
-     * The relationship is mapped through the "user_pet" join table.
+     * The ownerships of the user, rows of the "user_pet" join table (see {@link UserPet}).
+     * Pets are assigned and removed by inserting and deleting those rows, never through this collection.
+     * When it is not fetched with the user, the ownerships of up to 50 loaded users are initialized in one query.
      */
-    @ManyToMany
-    @JoinTable(
-            name = "user_pet",
-            joinColumns = @JoinColumn(name = "user_id"),
-            inverseJoinColumns = @JoinColumn(name = "pet_id")
-    )
-    private Set<Pet> pets = new HashSet<>();
+    @OneToMany(mappedBy = "user")
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-pets")
+    private Set<UserPet> ownerships = new HashSet<>();
 
-    public void addPet(Pet pet) {
-        if (pet == null) return;
-        this.pets.add(pet);
-        pet.getOwners().add(this); // Maintain bidirectional relationship
+    /**
+     * @return the pets of the user, a read-only view of its ownerships
+     */
+    public Set<Pet> getPets() {
+        return ownerships.stream().map(UserPet::getPet).collect(Collectors.toUnmodifiableSet());
     }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.example.petmanagement.model;
+
+import com.example.petmanagement.index.FilterIndexListener;
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Represents the ownership of a pet by a user, a row of the "user_pet" table.
+ * Assigning a pet inserts one and removing it deletes one, whatever the number of pets of the user or owners of
+ * the pet: neither {@link User#getOwnerships()} nor {@link Pet#getOwnerships()} has to be loaded for that.
+ * Rows are never updated; the cached collections of both ends are evicted when a row is inserted or deleted
+ * (hibernate.cache.auto_evict_collection_cache).
+ */
+@Entity
+@EntityListeners(FilterIndexListener.class)
+@Table(name = "user_pet")
+@Immutable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-pet")
+@Getter
+@NoArgsConstructor
+public class UserPet implements Persistable<UserPetId> {
+
+    @EmbeddedId
+    private UserPetId id;
+
+    /**
+     * The owner, the "user_id" column of the key.
+     */
+    @MapsId("userId")
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    /**
+     * The owned pet, the "pet_id" column of the key.
+     */
+    @MapsId("petId")
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "pet_id")
+    private Pet pet;
+
+    /**
+     * Its key is assigned, so the repository is told whether it is new here: saving it is a plain insert,
+     * without the select a merge would issue first.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private boolean persisted;
+
+    /**
+     * Creates the ownership and adds it to the collections of both ends that are already loaded; the others
+     * read it from the database once it is flushed.
+     *
+     * @param user the owner, persisted
+     * @param pet  the owned pet, persisted
+     */
+    public UserPet(User user, Pet pet) {
+        this.id = new UserPetId(user.getId(), pet.getId());
+        this.user = user;
+        this.pet = pet;
+        if (Hibernate.isInitialized(user.getOwnerships())) {
+            user.getOwnerships().add(this);
+        }
+        if (Hibernate.isInitialized(pet.getOwnerships())) {
+            pet.getOwnerships().add(this);
+        }
+    }
+
+    /**
+     * Removes the ownership from the collections of both ends that are already loaded, before it is deleted.
+     */
+    public void detach() {
+        if (Hibernate.isInitialized(user.getOwnerships())) {
+            user.getOwnerships().remove(this);
+        }
+        if (Hibernate.isInitialized(pet.getOwnerships())) {
+            pet.getOwnerships().remove(this);
+        }
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        persisted = true;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof UserPet userPet && id.equals(userPet.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+}
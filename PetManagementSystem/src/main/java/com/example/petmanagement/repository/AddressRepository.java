@@ -7,7 +7,7 @@ import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
 @Repository
-public interface AddressRepository extends JpaRepository<Address, Long> {
+public interface AddressRepository extends JpaRepository<Address, Long>, AddressRepositoryCustom {
     Optional<Address> findByCityAndTypeAndAddressNameAndNumber(
             String city, String type, String addressName, String number);
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+package com.example.petmanagement.repository;
+
+import com.example.petmanagement.model.Address;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set based address operations that cannot be expressed as a single Spring Data query method.
+ */
+public interface AddressRepositoryCustom {
+
+    /**
+     * Inserts those of the addresses whose (city, type, address name, number) does not exist yet, with a single
+     * statement that leaves existing rows untouched: no write, no row lock.
+     * <p>
+     * Runs in a savepoint of the current transaction, which it requires: when a concurrent transaction inserted the
+     * same new address first, the unique constraint fails this statement only, and the surrounding transaction can
+     * go on, e.g. to try again.
+     *
+     * @param addresses transient addresses carrying city, type, address name and number (distinct tuples)
+     * @return the number of addresses inserted
+     * @throws org.springframework.dao.DataIntegrityViolationException if an address was inserted concurrently
+     */
+    int insertMissing(Collection<Address> addresses);
+
+    /**
+     * Reads the stored addresses having the tuples of the given ones, with a single statement.
+     *
+     * @param addresses transient addresses carrying city, type, address name and number
+     * @return the stored addresses, in no particular order
+     */
+    List<Address> findAllMatching(Collection<Address> addresses);
+}
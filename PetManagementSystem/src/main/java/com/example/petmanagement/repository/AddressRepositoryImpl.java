@@ -0,0 +1,98 @@
+package com.example.petmanagement.repository;
+
+import com.example.petmanagement.model.Address;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Spring Data picks this class up as the implementation of {@link AddressRepositoryCustom}.
+ * The insert goes through JDBC, on the connection of the current transaction: a constraint violation raised by the
+ * entity manager would mark the whole transaction for rollback, and JPA transactions do not offer savepoints.
+ */
+class AddressRepositoryImpl implements AddressRepositoryCustom {
+
+    private static final String TUPLE = "(CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), "
+            + "CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)))";
+    private static final String MATCHES = "a.city = s.city AND a.type = s.type "
+            + "AND a.address_name = s.address_name AND a.number = s.number";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    AddressRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int insertMissing(Collection<Address> addresses) {
+        if (addresses.isEmpty()) {
+            return 0;
+        }
+        String sql = "INSERT INTO address (id, city, type, address_name, number, created_time) " +
+                "SELECT NEXT VALUE FOR address_seq, s.city, s.type, s.address_name, s.number, CURRENT_TIMESTAMP " +
+                "FROM " + values(addresses.size()) + " s(city, type, address_name, number) " +
+                "WHERE NOT EXISTS (SELECT 1 FROM address a WHERE " + MATCHES + ")";
+        Object[] arguments = tuples(addresses).toArray();
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                new ArgumentPreparedStatementSetter(arguments).setValues(statement);
+                int inserted = statement.executeUpdate();
+                connection.releaseSavepoint(savepoint);
+                return inserted;
+            } catch (SQLException ex) {
+                connection.rollback(savepoint);
+                throw ex;
+            }
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Address> findAllMatching(Collection<Address> addresses) {
+        if (addresses.isEmpty()) {
+            return List.of();
+        }
+        Query query = entityManager.createNativeQuery("SELECT a.* FROM address a " +
+                "JOIN " + values(addresses.size()) + " s(city, type, address_name, number) ON " + MATCHES,
+                Address.class);
+        int parameter = 1;
+        for (Object value : tuples(addresses)) {
+            query.setParameter(parameter++, value);
+        }
+        return query.getResultList();
+    }
+
+    private static String values(int rows) {
+        StringJoiner values = new StringJoiner(", ", "(VALUES ", ")");
+        for (int i = 0; i < rows; i++) {
+            values.add(TUPLE);
+        }
+        return values.toString();
+    }
+
+    private static List<Object> tuples(Collection<Address> addresses) {
+        List<Object> tuples = new ArrayList<>(addresses.size() * 4);
+        for (Address address : addresses) {
+            tuples.add(address.getCity());
+            tuples.add(address.getType());
+            tuples.add(address.getAddressName());
+            tuples.add(address.getNumber());
+        }
+        return tuples;
+    }
+}
@@ -1,50 +1,256 @@
 package com.example.petmanagement.repository;
 
+import com.example.petmanagement.dto.PetOwnerRowDto;
+import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.dto.PetVersionRowDto;
 import com.example.petmanagement.model.Pet;
 import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.lang.Nullable;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for managing Pet entities and their associations.
  * Provides custom queries for user-pet relationships and location-based searches.
  */
 @Repository
-public interface PetRepository extends JpaRepository<Pet, Long> {
+public interface PetRepository extends JpaRepository<Pet, Long>, PetRepositoryCustom {
 
     /**
      * Finds active/alive pets by the owner's ID.
+     * Like every listing query below, it selects the response columns straight into {@link PetResponseDto}:
+     * no entity is hydrated, snapshotted or dirty checked for read only results.
      *
      * @param userId the ID of the owner for which pets needs to be find out
      * @return a list of pets owned by the specified owner
      */
-    @Query("SELECT p FROM Pet p JOIN p.owners u WHERE u.id = :userId and p.deceased = false")
-    List<Pet> findByOwnerId(Long userId);
+    @Query("SELECT new com.example.petmanagement.dto.PetResponseDto(p.id, p.name, p.age, p.type, p.deceased) " +
+            "FROM Pet p JOIN p.ownerships o WHERE o.user.id = :userId and p.deceased = false")
+    List<PetResponseDto> findByOwnerId(@Param("userId") Long userId);
+
+    /**
+     * Ids and versions of the pets {@link #findByOwnerId} returns, what its ETag is computed from.
+     *
+     * @param userId the ID of the owner
+     * @return (id, version) pairs
+     */
+    @Query("SELECT p.id, p.version FROM Pet p JOIN p.ownerships o WHERE o.user.id = :userId and p.deceased = false")
+    List<Object[]> findVersionsByOwnerId(@Param("userId") Long userId);
+
+    /**
+     * {@link #findByOwnerId} with the version of every pet, for the listing and its ETag in one statement.
+     *
+     * @param userId the ID of the owner
+     * @return a list of pets owned by the specified owner, with their versions
+     */
+    @Query("SELECT new com.example.petmanagement.dto.PetVersionRowDto(p.id, p.name, p.age, p.type, p.deceased, " +
+            "p.version) FROM Pet p JOIN p.ownerships o WHERE o.user.id = :userId and p.deceased = false")
+    List<PetVersionRowDto> findVersionRowsByOwnerId(@Param("userId") Long userId);
 
     /**
      * find active pets in the specified city
+     * The owners sub query is uncorrelated for the same reason as in {@link #findPetsByWomenOwnersInCity}.
      * @param city  The city name to filter pets by (case-sensitive). Must not be blank or empty.
      * @param pageable pagination data like page number,page size,sorting criteria
      * @return active page for the given size
      */
-    @Query("SELECT p FROM Pet p JOIN p.owners u WHERE u.address.city = :city and p.deceased = false")
-    Page<Pet> findByCity(
+    @Query(value = "SELECT new com.example.petmanagement.dto.PetResponseDto(p.id, p.name, p.age, p.type, p.deceased) " +
+            "FROM Pet p " +
+            "WHERE p.deceased = false " +
+            "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.address.city = :city)",
+            countQuery = "SELECT COUNT(p) FROM Pet p " +
+                    "WHERE p.deceased = false " +
+                    "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.address.city = :city)")
+    Page<PetResponseDto> findByCity(
             @Param("city") @Nullable String city,
             Pageable pageable
     );
 
     /**
-     * fetch active pets for female user in city
-     * @param city The city name to filter pets by (case-sensitive). Must not be blank or empty.
+     * Ids and versions of the pets of the {@link #findByCity} page, with its total: what its ETag is computed from.
+     *
+     * @param city     The city name to filter pets by (case-sensitive)
+     * @param pageable the same page as {@link #findByCity}
+     * @return page of (id, version) pairs
+     */
+    @Query(value = "SELECT p.id, p.version FROM Pet p " +
+            "WHERE p.deceased = false " +
+            "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.address.city = :city)",
+            countQuery = "SELECT COUNT(p) FROM Pet p " +
+                    "WHERE p.deceased = false " +
+                    "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.address.city = :city)")
+    Page<Object[]> findVersionsByCity(@Param("city") String city, Pageable pageable);
+
+    /**
+     * {@link #findByCity} with the version of every pet, for the page and its ETag without a second page query.
+     *
+     * @param city     The city name to filter pets by (case-sensitive)
+     * @param pageable the page, sorted like {@link #findByCity}
+     * @return page of pets with their versions
+     */
+    @Query(value = "SELECT new com.example.petmanagement.dto.PetVersionRowDto(p.id, p.name, p.age, p.type, " +
+            "p.deceased, p.version) FROM Pet p " +
+            "WHERE p.deceased = false " +
+            "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.address.city = :city)",
+            countQuery = "SELECT COUNT(p) FROM Pet p " +
+                    "WHERE p.deceased = false " +
+                    "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.address.city = :city)")
+    Page<PetVersionRowDto> findVersionRowsByCity(@Param("city") String city, Pageable pageable);
+
+    /**
+     * Count-free variant of {@link #findVersionRowsByCity}, for a page with an approximate total.
+     *
+     * @param city     The city name to filter pets by (case-sensitive)
+     * @param pageable the page, sorted like {@link #findByCity}
+     * @return slice of pets with their versions
+     */
+    @Query("SELECT new com.example.petmanagement.dto.PetVersionRowDto(p.id, p.name, p.age, p.type, " +
+            "p.deceased, p.version) FROM Pet p " +
+            "WHERE p.deceased = false " +
+            "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.address.city = :city)")
+    Slice<PetVersionRowDto> findVersionRowSliceByCity(@Param("city") String city, Pageable pageable);
+
+    /**
+     * Count-free variant of {@link #findByCity}: one row more than the page is read to tell whether another page
+     * follows, and no total is computed.
+     *
+     * @param city     The city name to filter pets by (case-sensitive)
+     * @param pageable pagination data like page number,page size,sorting criteria
+     * @return active slice for the given size
+     */
+    @Query("SELECT new com.example.petmanagement.dto.PetResponseDto(p.id, p.name, p.age, p.type, p.deceased) " +
+            "FROM Pet p " +
+            "WHERE p.deceased = false " +
+            "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.address.city = :city)")
+    Slice<PetResponseDto> findSliceByCity(@Param("city") String city, Pageable pageable);
+
+    /**
+     * Count-free variant of {@link #findVersionsByCity}, for an ETag computed with an approximate total.
+     *
+     * @param city     The city name to filter pets by (case-sensitive)
+     * @param pageable the same page as {@link #findSliceByCity}
+     * @return slice of (id, version) pairs
+     */
+    @Query("SELECT p.id, p.version FROM Pet p " +
+            "WHERE p.deceased = false " +
+            "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.address.city = :city)")
+    Slice<Object[]> findVersionSliceByCity(@Param("city") String city, Pageable pageable);
+
+    /**
+     * Active pets per city of their owners, all cities in one grouped pass, for approximate page totals.
+     * A pet is counted once per city, like {@link #findByCity} lists it.
+     *
+     * @return rows of [city, count]
+     */
+    @Query("SELECT a.city, COUNT(DISTINCT o.pet.id) FROM UserPet o JOIN o.user u JOIN u.address a " +
+            "WHERE o.pet.deceased = false GROUP BY a.city")
+    List<Object[]> countActiveByCity();
+
+    /**
+     * Active pets having a female owner per lower case city, all cities in one grouped pass, for approximate
+     * page totals of {@link #findPetsByWomenOwnersInCity}.
+     *
+     * @return rows of [lower case city, count]
+     */
+    @Query("SELECT a.cityLower, COUNT(DISTINCT o.pet.id) FROM UserPet o JOIN o.user u JOIN u.address a " +
+            "WHERE u.gender = 'FEMALE' AND o.pet.deceased = false GROUP BY a.cityLower")
+    List<Object[]> countActiveOfWomenByCity();
+
+    /**
+     * Active pets having a female owner in any city, for the approximate page totals of
+     * {@link #findPetsByWomenOwnersInCity} without city. Counted apart: a pet whose female owners live in two cities
+     * is counted in both of them.
+     *
+     * @return the number of such pets
+     */
+    @Query("SELECT COUNT(DISTINCT o.pet.id) FROM UserPet o JOIN o.user u " +
+            "WHERE u.gender = 'FEMALE' AND o.pet.deceased = false")
+    long countActiveOfWomen();
+
+    /**
+     * Streams active pets in the specified city in id order through a forward-only cursor, for exports.
+     * Rows are read with a JDBC fetch size.
+     * Unlike the listings, the owners are checked per pet with a correlated EXISTS: an IN sub query would be
+     * materialized by the database, one id per exported pet, before the first row is streamed.
+     * Must be consumed inside a transaction and closed afterwards.
+     * @param city The city name to filter pets by (case-sensitive).
+     * @return stream of pets
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT new com.example.petmanagement.dto.PetResponseDto(p.id, p.name, p.age, p.type, p.deceased) " +
+            "FROM Pet p " +
+            "WHERE p.deceased = false " +
+            "AND EXISTS (SELECT 1 FROM p.ownerships o WHERE o.user.address.city = :city) " +
+            "ORDER BY p.id")
+    Stream<PetResponseDto> streamByCity(@Param("city") String city);
+
+    /**
+     * Keyset variant of {@link #findByCity}: active pets in the city ordered by (name, id),
+     * starting right after the given position. No count query is issued.
+     * The position is written as a range on the name, like {@link #findActiveNamesAfter}: the database seeks to it in
+     * idx_pet_active_name (deceased, name, id) and reads on in index order, so deep slices cost the same as the first.
+     * @param city  The city name to filter pets by (case-sensitive).
+     * @param afterName name of the last pet of the previous slice, "" for the first slice
+     * @param afterId id of the last pet of the previous slice, 0 for the first slice
+     * @param limit only the page size of it is used, request one extra row to detect a next slice
+     * @return pets following the given position
+     */
+    @Query("SELECT new com.example.petmanagement.dto.PetResponseDto(p.id, p.name, p.age, p.type, p.deceased) " +
+            "FROM Pet p " +
+            "WHERE p.deceased = false " +
+            "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.address.city = :city) " +
+            "AND p.name >= :afterName AND (p.name > :afterName OR p.id > :afterId) " +
+            "ORDER BY p.deceased, p.name, p.id")
+    List<PetResponseDto> findByCityAfter(
+            @Param("city") String city,
+            @Param("afterName") String afterName,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    /**
+     * Keyset variant of {@link #findPetsByWomenOwnersInCity}: active pets having a female owner
+     * in the city ordered by (name, id), starting right after the given position. No count query is issued.
+     * It seeks to the position in the name index like {@link #findByCityAfter}.
+     * @param city The city name to filter pets by (case-insensitive). Null means every city.
+     * @param afterName name of the last pet of the previous slice, "" for the first slice
+     * @param afterId id of the last pet of the previous slice, 0 for the first slice
+     * @param limit only the page size of it is used, request one extra row to detect a next slice
+     * @return pets following the given position
+     */
+    @Query("SELECT new com.example.petmanagement.dto.PetResponseDto(p.id, p.name, p.age, p.type, p.deceased) " +
+            "FROM Pet p " +
+            "WHERE p.deceased = false " +
+            "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.gender = 'FEMALE' " +
+            "AND (:city IS NULL OR u.address.cityLower = LOWER(:city))) " +
+            "AND p.name >= :afterName AND (p.name > :afterName OR p.id > :afterId) " +
+            "ORDER BY p.deceased, p.name, p.id")
+    List<PetResponseDto> findPetsByWomenOwnersInCityAfter(
+            @Param("city") @Nullable String city,
+            @Param("afterName") String afterName,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    /**
+     * fetch active pets for female user in city.
+     * The IN sub query keeps one row per pet, so limit/offset and the count are done in SQL.
+     * It does not depend on the outer pet: the database reads the matching owners once, from the city
+     * through the address and user indexes, then looks their pets up by id. A correlated EXISTS was planned
+     * from the city for every single pet, which made the count quadratic in large cities.
+     * @param city The city name to filter pets by (case-insensitive). Null means every city.
      * @param pageable pagination data like page number,page size,sorting criteria
      * @return Pet with given page size
      */
@@ -52,18 +258,112 @@ public interface PetRepository extends JpaRepository<Pet, Long> {
             @QueryHint(name = "org.hibernate.fetchSize", value = "50"),
             @QueryHint(name = "org.hibernate.cacheable", value = "true")
     })
-    @Query("SELECT DISTINCT p FROM Pet p JOIN FETCH p.owners u " +
-            "WHERE u.gender = 'FEMALE' " +
-            "AND p.deceased = false " +
-            "AND (:city IS NULL OR LOWER(u.address.city) = LOWER(:city)) " +
-            "ORDER BY p.name")
-    Page<Pet> findPetsByWomenOwnersInCity(
+    @Query(value = "SELECT new com.example.petmanagement.dto.PetResponseDto(p.id, p.name, p.age, p.type, p.deceased) " +
+            "FROM Pet p " +
+            "WHERE p.deceased = false " +
+            "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.gender = 'FEMALE' " +
+            "AND (:city IS NULL OR u.address.cityLower = LOWER(:city)))",
+            countQuery = "SELECT COUNT(p) FROM Pet p " +
+                    "WHERE p.deceased = false " +
+                    "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.gender = 'FEMALE' " +
+                    "AND (:city IS NULL OR u.address.cityLower = LOWER(:city)))")
+    Page<PetResponseDto> findPetsByWomenOwnersInCity(
             @Param("city") @Nullable String city,
             Pageable pageable
     );
 
+    /**
+     * Count-free variant of {@link #findPetsByWomenOwnersInCity}: one row more than the page is read to tell
+     * whether another page follows, and no total is computed.
+     * @param city The city name to filter pets by (case-insensitive). Null means every city.
+     * @param pageable pagination data like page number,page size,sorting criteria
+     * @return Pet slice with given page size
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "50"))
+    @Query("SELECT new com.example.petmanagement.dto.PetResponseDto(p.id, p.name, p.age, p.type, p.deceased) " +
+            "FROM Pet p " +
+            "WHERE p.deceased = false " +
+            "AND p.id IN (SELECT op.pet.id FROM User u JOIN u.ownerships op WHERE u.gender = 'FEMALE' " +
+            "AND (:city IS NULL OR u.address.cityLower = LOWER(:city)))")
+    Slice<PetResponseDto> findSliceOfPetsByWomenOwnersInCity(
+            @Param("city") @Nullable String city,
+            Pageable pageable
+    );
+
+    /**
+     * Reads pets whose ids were already resolved, by the filter index.
+     * @param ids ids of the pets to read, a bounded IN list
+     * @param pageable sorting, and limit/offset within the ids
+     * @return pets with the given ids
+     */
+    @Query("SELECT new com.example.petmanagement.dto.PetResponseDto(p.id, p.name, p.age, p.type, p.deceased) " +
+            "FROM Pet p WHERE p.id IN :ids")
+    List<PetResponseDto> findByIdIn(@Param("ids") Collection<Long> ids, Pageable pageable);
+
+    /**
+     * Active pets in page order (name, id) starting right after the given position, as [id, name] rows read
+     * from idx_pet_active_name alone. The lower bound on the name lets the index seek to the position, and
+     * ordering by its constant first column too is what makes H2 read it in order and stop at the limit.
+     * @param afterName name of the last pet read, empty to start from the first one
+     * @param afterId id of the last pet read, 0 to start from the first one
+     * @param limit only the page size of it is used
+     * @return rows of [id, name]
+     */
+    @Query("SELECT p.id, p.name FROM Pet p " +
+            "WHERE p.deceased = false AND p.name >= :afterName " +
+            "AND (p.name > :afterName OR p.id > :afterId) " +
+            "ORDER BY p.deceased, p.name, p.id")
+    List<Object[]> findActiveNamesAfter(
+            @Param("afterName") String afterName,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    /**
+     * Next chunk of the active pets of a user, in id order, for bulk updates.
+     *
+     * @param afterId id of the last pet of the previous chunk, 0 for the first chunk
+     * @param limit   only the chunk size of it is used
+     */
+    @Query("SELECT o.pet.id FROM UserPet o WHERE o.user.id = :userId AND o.pet.deceased = false " +
+            "AND o.pet.id > :afterId ORDER BY o.pet.id")
+    List<Long> findActiveIdsByOwnerAfter(@Param("userId") Long userId, @Param("afterId") Long afterId,
+                                         Pageable limit);
+
+    /**
+     * Next chunk of the active pets owned by users of an address, in id order, for bulk updates.
+     *
+     * @param afterId id of the last pet of the previous chunk, 0 for the first chunk
+     * @param limit   only the chunk size of it is used
+     */
+    @Query("SELECT DISTINCT o.pet.id FROM UserPet o WHERE o.user.address.id = :addressId " +
+            "AND o.pet.deceased = false AND o.pet.id > :afterId ORDER BY o.pet.id")
+    List<Long> findActiveIdsByAddressAfter(@Param("addressId") Long addressId, @Param("afterId") Long afterId,
+                                           Pageable limit);
 
-    @Query("SELECT p FROM Pet p LEFT JOIN FETCH p.owners o LEFT JOIN FETCH o.address " +
-            "WHERE p.id = :id AND p.deceased = false")
-    Optional<Pet> findActivePetWithOwners(@Param("id") Long id);
+    /**
+     * @return the ids among the given ones of pets that exist and are active
+     */
+    @Query("SELECT p.id FROM Pet p WHERE p.id IN :ids AND p.deceased = false")
+    List<Long> findActiveIdsIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Set based variant of {@link #markDeceased}, for a chunk of pets.
+     *
+     * @return number of pets marked, those already deceased are not counted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Pet p SET p.deceased = true, p.lastUpdateTime = :now, p.version = p.version + 1 " +
+            "WHERE p.id IN :ids AND p.deceased = false")
+    int markAllDeceased(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * Reads a pet back after a targeted update, with the id and city of each of its owners, in one statement.
+     *
+     * @return one row per owner, a single row with null owner columns for a pet without owner, none if no pet has this id
+     */
+    @Query("SELECT new com.example.petmanagement.dto.PetOwnerRowDto(p.id, p.name, p.age, p.type, p.deceased, " +
+            "u.id, a.city) " +
+            "FROM Pet p LEFT JOIN p.ownerships o LEFT JOIN o.user u LEFT JOIN u.address a WHERE p.id = :id")
+    List<PetOwnerRowDto> findRowsWithOwners(@Param("id") Long id);
 }
\ No newline at end of file
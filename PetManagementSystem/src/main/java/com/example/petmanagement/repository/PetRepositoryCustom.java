@@ -0,0 +1,28 @@
+package com.example.petmanagement.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Targeted pet updates that cannot be expressed as a single Spring Data query method.
+ */
+public interface PetRepositoryCustom {
+
+    /**
+     * Updates the supplied columns of an active pet, plus its last update time and version, in one statement
+     * without loading it.
+     *
+     * @param name new name, null to keep it
+     * @param age  new age, null to keep it
+     * @param type new type, null to keep it
+     * @return 1 if the pet was updated, 0 if no active pet has this id
+     */
+    int patchActive(Long id, String name, Integer age, String type, LocalDateTime now);
+
+    /**
+     * Marks an active pet deceased in one statement without loading it, bumping its version and last update time.
+     * Like {@link #patchActive}, it flushes the persistence context before and clears it after.
+     *
+     * @return 1 if the pet was marked, 0 if it does not exist or is already deceased
+     */
+    int markDeceased(Long id, LocalDateTime now);
+}
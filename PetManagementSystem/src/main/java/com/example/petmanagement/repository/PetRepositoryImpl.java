@@ -0,0 +1,32 @@
+package com.example.petmanagement.repository;
+
+import com.example.petmanagement.model.Pet;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDateTime;
+
+/**
+ * Spring Data picks this class up as the implementation of {@link PetRepositoryCustom}.
+ */
+class PetRepositoryImpl implements PetRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int patchActive(Long id, String name, Integer age, String type, LocalDateTime now) {
+        return new TargetedUpdate<>(entityManager, Pet.class)
+                .setIfPresent("name", name)
+                .setIfPresent("age", age)
+                .setIfPresent("type", type)
+                .executeOnActive(id, now);
+    }
+
+    @Override
+    public int markDeceased(Long id, LocalDateTime now) {
+        return new TargetedUpdate<>(entityManager, Pet.class)
+                .setIfPresent("deceased", true)
+                .executeOnActive(id, now);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.petmanagement.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.query.NativeQuery;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the UPDATE of a single active (not deceased) row setting only the supplied attributes, plus its last update
+ * time and version, for the targeted update methods of the repository fragments. No entity is loaded or dirty checked.
+ * <p>
+ * As a bulk statement it bypasses the entity listeners, callers notify the filter index themselves. A JPQL update
+ * would make Hibernate drop the whole second level cache region of the entity; this one is a native statement
+ * synchronized on no table, and only the cached entry of the updated row is locked until the transaction completes,
+ * the way Hibernate does for an entity update. The cached queries on the table are invalidated as before.
+ *
+ * @param <T> an entity with {@code id}, {@code deceased}, {@code lastUpdateTime} and {@code version} attributes
+ */
+final class TargetedUpdate<T> {
+
+    private final EntityManager entityManager;
+    private final AbstractEntityPersister persister;
+    private final StringBuilder assignments = new StringBuilder();
+    private final List<Object> values = new ArrayList<>();
+
+    TargetedUpdate(EntityManager entityManager, Class<T> type) {
+        this.entityManager = entityManager;
+        this.persister = (AbstractEntityPersister) entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel()
+                .getEntityDescriptor(type);
+    }
+
+    /**
+     * Sets the attribute, unless the value was not supplied (null). A to-one attribute takes the id of its target.
+     */
+    <V> TargetedUpdate<T> setIfPresent(String attribute, V value) {
+        if (value != null) {
+            values.add(value);
+            assignments.append(column(attribute)).append(" = ?").append(values.size()).append(", ");
+        }
+        return this;
+    }
+
+    /**
+     * Runs the statement. Pending changes are flushed first, and the persistence context is cleared afterwards so
+     * that the row is read again, like a {@code @Modifying(flushAutomatically = true, clearAutomatically = true)}
+     * query.
+     *
+     * @return 1 if the row was updated, 0 if it does not exist or is deceased
+     */
+    int executeOnActive(Long id, LocalDateTime now) {
+        setIfPresent("lastUpdateTime", now);
+        values.add(id);
+        String version = column("version");
+        String sql = "UPDATE " + persister.getTableName(0)
+                + " SET " + assignments + version + " = " + version + " + 1"
+                + " WHERE " + persister.getIdentifierColumnNames()[0] + " = ?" + values.size()
+                + " AND " + column("deceased") + " = false";
+
+        entityManager.flush();
+        NativeQuery<?> query = entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                // No table: Hibernate would otherwise evict every cached entity of the ones listed
+                .addSynchronizedQuerySpace("");
+        for (int i = 0; i < values.size(); i++) {
+            query.setParameter(i + 1, values.get(i));
+        }
+        int updated = query.executeUpdate();
+        entityManager.clear();
+        if (updated > 0) {
+            invalidateCached(id);
+        }
+        return updated;
+    }
+
+    /**
+     * Locks the cached entry of the row until the transaction completes, so that no transaction caches what it read
+     * before, and invalidates the cached queries on the table at commit.
+     */
+    private void invalidateCached(Long id) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        SessionFactoryImplementor factory = session.getFactory();
+        if (factory.getSessionFactoryOptions().isQueryCacheEnabled()) {
+            String[] spaces = Arrays.stream(persister.getQuerySpaces()).map(String.class::cast).toArray(String[]::new);
+            factory.getCache().getTimestampsCache().preInvalidate(spaces, session);
+            session.getActionQueue().registerProcess((success, completed) ->
+                    factory.getCache().getTimestampsCache().invalidate(spaces, completed));
+        }
+        if (persister.canWriteToCache()) {
+            EntityDataAccess cache = persister.getCacheAccessStrategy();
+            Object key = cache.generateCacheKey(id, persister, factory, session.getTenantIdentifier());
+            SoftLock lock = cache.lockItem(session, key, null);
+            session.getActionQueue().registerProcess((success, completed) -> cache.unlockItem(completed, key, lock));
+        }
+    }
+
+    private String column(String attribute) {
+        return persister.getPropertyColumnNames(attribute)[0];
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.petmanagement.repository;
+
+import com.example.petmanagement.model.UserPet;
+import com.example.petmanagement.model.UserPetId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for the ownerships of pets by users, one {@link UserPet} per row of the user_pet table.
+ */
+@Repository
+public interface UserPetRepository extends JpaRepository<UserPet, UserPetId> {
+
+    /**
+     * Outcome of {@link #checkAssignment}.
+     */
+    enum Assignability {
+        ASSIGNABLE,
+        ALREADY_ASSIGNED,
+        /**
+         * The pet has owners, none of them at the address of the user
+         */
+        OWNED_ELSEWHERE
+    }
+
+    /**
+     * Evaluates the assignment rules of a pet to a user in one statement reading only the user_pet rows of the pet,
+     * through the primary key, and their owners: the (pet, user) row itself, then whether the pet has owners but
+     * none at the address of the user. Owners of a pet may live at different addresses (one of them moved, or the
+     * data was loaded so), so every owner is considered rather than one.
+     *
+     * @param userId    the future owner
+     * @param addressId the address of the future owner
+     * @param petId     the pet to assign
+     * @return whether the pet can be assigned to the user, or the rule preventing it
+     */
+    @Query(value = "SELECT CASE " +
+            "WHEN EXISTS (SELECT 1 FROM user_pet WHERE pet_id = :petId AND user_id = :userId) THEN 'ALREADY_ASSIGNED' " +
+            "WHEN EXISTS (SELECT 1 FROM user_pet WHERE pet_id = :petId) " +
+            "AND NOT EXISTS (SELECT 1 FROM user_pet up JOIN \"user\" u ON u.id = up.user_id " +
+            "WHERE up.pet_id = :petId AND u.address_id = :addressId) THEN 'OWNED_ELSEWHERE' " +
+            "ELSE 'ASSIGNABLE' END",
+            nativeQuery = true)
+    Assignability checkAssignment(@Param("userId") Long userId,
+                                  @Param("addressId") Long addressId,
+                                  @Param("petId") Long petId);
+
+    /**
+     * Owners of some pets, e.g. to publish the change of their listings after a bulk update.
+     *
+     * @return rows of [userId, city], one per owner
+     */
+    @Query("SELECT DISTINCT u.id, a.city FROM UserPet o JOIN o.user u JOIN u.address a WHERE o.pet.id IN :petIds")
+    List<Object[]> findOwnerIdsAndCities(@Param("petIds") Collection<Long> petIds);
+}
@@ -1,30 +1,86 @@
 package com.example.petmanagement.repository;
 
+import com.example.petmanagement.dto.UserPetRowDto;
 import com.example.petmanagement.model.User;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for managing User entities and their associations.
  * Provides custom queries for user-pet relationships and location-based searches.
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 
     /**
-     * Finds active users who own a specific active pet type in a given city.
+     * Finds active users who own a specific active pet type in a given city, ordered by id, as
+     * [user, address, pet] rows read in one statement without hydrating entities.
+     * Rows of a user are consecutive, one per pet it owns (all of them, not only the matching type).
      *
      * @param petType the type of pet to filter by (e.g., "dog", "cat")
      * @param city    the city name to filter by
-     * @return list of matching users (empty if none found)
+     * @return rows of the matching users (empty if none found)
      */
-    @Query("SELECT u FROM User u JOIN u.pets p WHERE p.type = :petType AND u.address.city = :city and u.deceased = false and p.deceased = false")
-    List<User> findUserByPetTypeAndCity(String petType, String city);
+    @Query("SELECT new com.example.petmanagement.dto.UserPetRowDto(u.id, u.name, u.firstName, " +
+            "a.city, a.type, a.addressName, a.number, u.age, u.gender, u.deceased, " +
+            "p.id, p.name, p.age, p.type, p.deceased) " +
+            "FROM User u JOIN u.address a LEFT JOIN u.ownerships o LEFT JOIN o.pet p " +
+            "WHERE u.deceased = false AND a.city = :city " +
+            "AND EXISTS (SELECT 1 FROM u.ownerships t WHERE t.pet.type = :petType AND t.pet.deceased = false) " +
+            "ORDER BY u.id, p.id")
+    List<UserPetRowDto> findUserByPetTypeAndCity(@Param("petType") String petType, @Param("city") String city);
+
+    /**
+     * Rows of {@link #findUserByPetTypeAndCity} among users whose ids were already resolved, by the filter index.
+     * The index only narrows the candidates: its ids are checked against the same conditions, so a user it has not
+     * caught up with yet is left out rather than listed.
+     *
+     * @param ids     ids of the candidate users, a bounded IN list
+     * @param petType the type of pet to filter by (e.g., "dog", "cat")
+     * @param city    the city name to filter by
+     * @return rows of the matching users ordered by user id then pet id
+     */
+    @Query("SELECT new com.example.petmanagement.dto.UserPetRowDto(u.id, u.name, u.firstName, " +
+            "a.city, a.type, a.addressName, a.number, u.age, u.gender, u.deceased, " +
+            "p.id, p.name, p.age, p.type, p.deceased) " +
+            "FROM User u JOIN u.address a LEFT JOIN u.ownerships o LEFT JOIN o.pet p " +
+            "WHERE u.id IN :ids AND u.deceased = false AND a.city = :city " +
+            "AND EXISTS (SELECT 1 FROM u.ownerships t WHERE t.pet.type = :petType AND t.pet.deceased = false) " +
+            "ORDER BY u.id, p.id")
+    List<UserPetRowDto> findUserRowsByIds(@Param("ids") Collection<Long> ids, @Param("petType") String petType,
+                                          @Param("city") String city);
+
+    /**
+     * Streams the rows of {@link #findUserByPetTypeAndCity} through a forward-only cursor, for exports.
+     * Must be consumed inside a transaction and closed afterwards.
+     *
+     * @param petType the type of pet to filter by (e.g., "dog", "cat")
+     * @param city    the city name to filter by
+     * @return stream of user rows
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT new com.example.petmanagement.dto.UserPetRowDto(u.id, u.name, u.firstName, " +
+            "a.city, a.type, a.addressName, a.number, u.age, u.gender, u.deceased, " +
+            "p.id, p.name, p.age, p.type, p.deceased) " +
+            "FROM User u JOIN u.address a LEFT JOIN u.ownerships o LEFT JOIN o.pet p " +
+            "WHERE u.deceased = false AND a.city = :city " +
+            "AND EXISTS (SELECT 1 FROM u.ownerships t WHERE t.pet.type = :petType AND t.pet.deceased = false) " +
+            "ORDER BY u.id, p.id")
+    Stream<UserPetRowDto> streamUsersWithPetsByPetTypeAndCity(@Param("petType") String petType,
+                                                              @Param("city") String city);
 
     /**
      * Finds an active (non-deceased) user with their address eagerly loaded.
@@ -36,7 +92,62 @@ public interface UserRepository extends JpaRepository<User, Long> {
             "WHERE u.id = :id AND u.deceased = false")
     Optional<User> findActiveUserWithAddress(@Param("id") Long id);
 
-    @Query("SELECT COUNT(u) > 0 FROM User u WHERE u.name = :name AND u.firstName = :firstName and u.deceased = false")
+    /**
+     * Finds an active (non-deceased) user with their address and pets loaded in one statement.
+     *
+     * @param id the user ID to search for (must not be null)
+     * @return Optional containing the user if found and active, empty otherwise
+     */
+    @EntityGraph(User.WITH_ADDRESS_AND_PETS)
+    @Query("SELECT u FROM User u WHERE u.id = :id AND u.deceased = false")
+    Optional<User> findActiveUserWithAddressAndPets(@Param("id") Long id);
+
+    @Query("SELECT u FROM User u WHERE u.name = :name AND u.firstName = :firstName and u.deceased = false")
     List<User> homonymExists(@Param("name") String name, @Param("firstName") String firstName);
 
+    /**
+     * Set based lookup of existing (name, firstName) pairs, deceased users included since the unique constraint covers them.
+     * It may return pairs that were not asked for (names and first names are matched independently), callers filter.
+     *
+     * @param names      names to look for
+     * @param firstNames first names to look for
+     * @return rows of [name, firstName]
+     */
+    @Query("SELECT u.name, u.firstName FROM User u WHERE u.name IN :names AND u.firstName IN :firstNames")
+    List<Object[]> findNamePairs(@Param("names") Collection<String> names,
+                                 @Param("firstNames") Collection<String> firstNames);
+
+    /**
+     * City of an active user, read from the user and address rows without loading either entity.
+     */
+    @Query("SELECT a.city FROM User u JOIN u.address a WHERE u.id = :id AND u.deceased = false")
+    Optional<String> findActiveUserCity(@Param("id") Long id);
+
+    /**
+     * Next chunk of the active users of an address, in id order, for bulk updates.
+     *
+     * @param afterId id of the last user of the previous chunk, 0 for the first chunk
+     * @param limit   only the chunk size of it is used
+     */
+    @Query("SELECT u.id FROM User u WHERE u.address.id = :addressId AND u.deceased = false AND u.id > :afterId " +
+            "ORDER BY u.id")
+    List<Long> findActiveIdsByAddressAfter(@Param("addressId") Long addressId, @Param("afterId") Long afterId,
+                                           Pageable limit);
+
+    /**
+     * @return the ids among the given ones of users that exist and are active
+     */
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids AND u.deceased = false")
+    List<Long> findActiveIdsIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Set based variant of {@link #markDeceased}, for a chunk of users.
+     *
+     * @return number of users marked, those already deceased are not counted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.deceased = true, u.lastUpdateTime = :now, u.version = u.version + 1 " +
+            "WHERE u.id IN :ids AND u.deceased = false")
+    int markAllDeceased(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
 }
\ No newline at end of file
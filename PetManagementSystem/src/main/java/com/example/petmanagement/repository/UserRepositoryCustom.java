@@ -0,0 +1,33 @@
+package com.example.petmanagement.repository;
+
+import com.example.petmanagement.model.Address;
+
+import java.time.LocalDateTime;
+
+/**
+ * Targeted user updates that cannot be expressed as a single Spring Data query method.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Updates the supplied columns of an active user, plus its last update time and version, in one statement
+     * without loading it.
+     *
+     * @param name      new name, null to keep it
+     * @param firstName new first name, null to keep it
+     * @param age       new age, null to keep it
+     * @param gender    new gender, null to keep it
+     * @param address   new stored address, null to keep it
+     * @return 1 if the user was updated, 0 if no active user has this id
+     */
+    int patchActive(Long id, String name, String firstName, Integer age, String gender, Address address,
+                    LocalDateTime now);
+
+    /**
+     * Marks an active user deceased in one statement without loading it, bumping its version and last update time.
+     * Like {@link #patchActive}, it flushes the persistence context before and clears it after.
+     *
+     * @return 1 if the user was marked, 0 if it does not exist or is already deceased
+     */
+    int markDeceased(Long id, LocalDateTime now);
+}
@@ -0,0 +1,36 @@
+package com.example.petmanagement.repository;
+
+import com.example.petmanagement.model.Address;
+import com.example.petmanagement.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDateTime;
+
+/**
+ * Spring Data picks this class up as the implementation of {@link UserRepositoryCustom}.
+ */
+class UserRepositoryImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int patchActive(Long id, String name, String firstName, Integer age, String gender, Address address,
+                           LocalDateTime now) {
+        return new TargetedUpdate<>(entityManager, User.class)
+                .setIfPresent("name", name)
+                .setIfPresent("firstName", firstName)
+                .setIfPresent("age", age)
+                .setIfPresent("gender", gender)
+                .setIfPresent("address", address == null ? null : address.getId())
+                .executeOnActive(id, now);
+    }
+
+    @Override
+    public int markDeceased(Long id, LocalDateTime now) {
+        return new TargetedUpdate<>(entityManager, User.class)
+                .setIfPresent("deceased", true)
+                .executeOnActive(id, now);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.petmanagement.responsecache;
+
+import com.example.petmanagement.service.PetListingsChangedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Encoded JSON responses of the hot listings, kept outside of the heap in direct buffers so that thousands of
+ * them neither grow the heap nor get copied by the garbage collector. Entries are evicted least recently used
+ * first once their total size exceeds {@code response-cache.max-bytes}; the memory of a dropped buffer is
+ * released when the buffer object is collected. Size {@code -XX:MaxDirectMemorySize} accordingly.
+ * <p>
+ * Each entry has a tag naming the data it shows, e.g. {@code user:1} or {@code city:Paris}, and is dropped by the
+ * {@link PetListingsChangedEvent} of a committed transaction naming it. A response read while such a transaction
+ * committed is not stored: every invalidation moves a generation that {@link #put} checks.
+ * <p>
+ * Exports {@code response.cache.requests} (tagged hit or miss, the hit ratio being hits over both),
+ * {@code response.cache.size} (off-heap bytes) and {@code response.cache.entries}.
+ */
+@Component
+public class ResponseCache implements MeterBinder {
+
+    /**
+     * A single response may take at most this fraction of the capacity.
+     */
+    private static final int MAX_ENTRY_FRACTION = 16;
+
+    private final boolean enabled;
+    private final long maxBytes;
+
+    /**
+     * In access order, eldest first. Guarded by {@code this}, like {@link #keysByTag} and {@link #bytes}.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Set<String>> keysByTag = new HashMap<>();
+    private long bytes;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ResponseCache(@Value("${response-cache.enabled:true}") boolean enabled,
+                         @Value("${response-cache.max-bytes:16777216}") long maxBytes) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the cached response, or null (counted as a miss)
+     */
+    public Entry get(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        (entry == null ? misses : hits).increment();
+        return entry;
+    }
+
+    /**
+     * @return the current generation, to pass to {@link #put} once the response is produced
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Copies the body off the heap and stores it, unless it is too large or an invalidation happened since
+     * {@code generation} was read: the response may show data changed by it.
+     */
+    public void put(String key, String tag, String contentType, String eTag, byte[] body, long generation) {
+        if (body.length > maxBytes / MAX_ENTRY_FRACTION) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(body.length).put(body).flip();
+        Entry entry = new Entry(buffer.asReadOnlyBuffer(), contentType, eTag, tag);
+        synchronized (this) {
+            if (this.generation.get() != generation) {
+                return;
+            }
+            remove(key);
+            entries.put(key, entry);
+            keysByTag.computeIfAbsent(tag, t -> new HashSet<>()).add(key);
+            bytes += entry.size();
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> evicted = eldest.next();
+                eldest.remove();
+                forget(evicted.getKey(), evicted.getValue());
+            }
+        }
+    }
+
+    /**
+     * Drops the responses showing the pets of the owners and cities of a committed change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPetListingsChanged(PetListingsChangedEvent event) {
+        Set<String> tags = new HashSet<>();
+        event.userIds().forEach(userId -> tags.add(ResponseCacheFilter.userTag(userId)));
+        event.cities().forEach(city -> tags.add(ResponseCacheFilter.cityTag(city)));
+        invalidate(tags);
+    }
+
+    public synchronized void invalidate(Set<String> tags) {
+        generation.incrementAndGet();
+        for (String tag : tags) {
+            Set<String> keys = keysByTag.get(tag);
+            if (keys != null) {
+                new HashSet<>(keys).forEach(this::remove);
+            }
+        }
+    }
+
+    /**
+     * Drops everything, e.g. after rows were written without the services.
+     */
+    public synchronized void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+        keysByTag.clear();
+        bytes = 0;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("response.cache.requests", hits, LongAdder::sum)
+                .description("Requests of the cached endpoints").tag("result", "hit").register(registry);
+        FunctionCounter.builder("response.cache.requests", misses, LongAdder::sum)
+                .description("Requests of the cached endpoints").tag("result", "miss").register(registry);
+        Gauge.builder("response.cache.size", this, cache -> cache.size())
+                .description("Off-heap bytes of the cached responses").baseUnit("bytes").register(registry);
+        Gauge.builder("response.cache.entries", this, cache -> cache.entries())
+                .description("Cached responses").register(registry);
+    }
+
+    synchronized long size() {
+        return bytes;
+    }
+
+    synchronized int entries() {
+        return entries.size();
+    }
+
+    private void remove(String key) {
+        forget(key, entries.remove(key));
+    }
+
+    private void forget(String key, Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        bytes -= entry.size();
+        Set<String> keys = keysByTag.get(entry.tag());
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByTag.remove(entry.tag());
+        }
+    }
+
+    /**
+     * @param body read only, shared by the requests: write a {@link ByteBuffer#duplicate()} of it
+     * @param eTag ETag header of the response, null if it had none
+     */
+    public record Entry(ByteBuffer body, String contentType, String eTag, String tag) {
+        int size() {
+            return body.capacity();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.petmanagement.responsecache;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Serves {@code GET /api/pets/by-city} and {@code GET /api/pets/{userId}/pets} from the {@link ResponseCache}:
+ * a hit writes the stored bytes without running the controller, the service or Jackson; a miss runs them, sends
+ * the response and stores its body if it is a 200 JSON one. The key is the path and the parameters, sorted.
+ * Requests made within a transaction, which may show its uncommitted changes, pass through.
+ * <p>
+ * The ETag of the response is stored with it: a hit whose If-None-Match holds it is answered 304 Not Modified.
+ * <p>
+ * On Tomcat the stored direct buffer is handed to the connector as is, without a copy on the heap; other
+ * containers (MockMvc) get it through a small heap buffer.
+ */
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    static final String BY_CITY = "/api/pets/by-city";
+    static final String PETS_OF_USER = "/api/pets/{userId}/pets";
+
+    private static final PathPattern PETS_OF_USER_PATTERN = PathPatternParser.defaultInstance.parse(PETS_OF_USER);
+
+    private final ResponseCache cache;
+
+    public ResponseCacheFilter(ResponseCache cache) {
+        this.cache = cache;
+    }
+
+    static String userTag(Long userId) {
+        return "user:" + userId;
+    }
+
+    static String cityTag(String city) {
+        return "city:" + city;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !cache.isEnabled() || !HttpMethod.GET.matches(request.getMethod()) || pattern(request) == null
+                || TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String pattern = pattern(request);
+        String tag = tag(request, pattern);
+        if (tag == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String key = key(request);
+        ResponseCache.Entry cached = cache.get(key);
+        if (cached != null) {
+            // The handler mapping, skipped, would have named the endpoint of the http.server.requests metrics
+            ServerHttpObservationFilter.findObservationContext(request)
+                    .ifPresent(context -> context.setPathPattern(pattern));
+            if (cached.eTag() == null || !new ServletWebRequest(request, response).checkNotModified(cached.eTag())) {
+                write(cached, response);
+            }
+            return;
+        }
+        long generation = cache.generation();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, wrapper);
+            if (wrapper.getStatus() == HttpServletResponse.SC_OK && isJson(wrapper.getContentType())) {
+                cache.put(key, tag, wrapper.getContentType(), wrapper.getHeader(HttpHeaders.ETAG),
+                        wrapper.getContentAsByteArray(), generation);
+            }
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private static String key(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        char separator = '?';
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            for (String value : parameter.getValue()) {
+                key.append(separator).append(URLEncoder.encode(parameter.getKey(), StandardCharsets.UTF_8))
+                        .append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    private static String pattern(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (BY_CITY.equals(path)) {
+            return BY_CITY;
+        }
+        return PETS_OF_USER_PATTERN.matches(PathContainer.parsePath(path)) ? PETS_OF_USER : null;
+    }
+
+    /**
+     * @return the tag of the data the response shows, null if it cannot be cached (e.g. a malformed id)
+     */
+    private static String tag(HttpServletRequest request, String pattern) {
+        if (BY_CITY.equals(pattern)) {
+            String city = request.getParameter("city");
+            return city == null ? null : cityTag(city);
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String userId = PETS_OF_USER_PATTERN.matchAndExtract(PathContainer.parsePath(path)).getUriVariables().get("userId");
+        try {
+            // Normalized, so that /01/pets is dropped with /1/pets
+            return userTag(Long.valueOf(userId));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static boolean isJson(String contentType) {
+        return contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+    }
+
+    private static void write(ResponseCache.Entry cached, HttpServletResponse response) throws IOException {
+        ByteBuffer body = cached.body().duplicate();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cached.contentType());
+        response.setContentLength(body.remaining());
+        ServletOutputStream output = response.getOutputStream();
+        if (output instanceof CoyoteOutputStream coyote) {
+            coyote.write(body);
+        } else {
+            Channels.newChannel(output).write(body);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.petmanagement.seed;
+
+import com.example.petmanagement.index.FilterIndex;
+import com.example.petmanagement.responsecache.ResponseCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Seeds the database with synthetic addresses, users, pets and ownerships at production scale.
+ * Rows are written by set based {@code INSERT ... SELECT} statements over H2's {@code SYSTEM_RANGE}, one statement
+ * per chunk of ids and chunks in parallel, so nothing goes through the persistence context. Tables are filled in
+ * foreign key order, each one once the previous one is complete, with the constraints left on: other transactions
+ * running meanwhile keep their foreign key checks.
+ * Values are hashes of the row number and the plan's seed: the same plan always produces the same data.
+ * <p>
+ * The data is skewed like real data: cities are named {@code City1} (the largest) to {@code City<cities>}, with
+ * {@code City1} holding the most addresses; users share a small set of family names (homonyms), as do pets, and
+ * dogs and cats outnumber the other types. Part of the pets have a second owner and part of the users and pets
+ * are deceased.
+ * <p>
+ * Ids are taken after the highest id and sequence value of every table, and the sequences are moved past the
+ * generated ids, so the application keeps creating rows normally afterwards.
+ */
+@Component
+public class DataGenerator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataGenerator.class);
+
+    /**
+     * Allocation size of the entity id sequences.
+     */
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final long HASH_BUCKETS = 4294967296L;
+
+    private static final String PET_TYPES = "ARRAY['dog', 'cat', 'bird', 'rabbit', 'fish', 'hamster', 'snake']";
+    private static final String FIRST_NAMES = "ARRAY['Emma', 'Louis', 'Jade', 'Gabriel', 'Alice', 'Raphael', "
+            + "'Chloe', 'Arthur', 'Lina', 'Jules', 'Rose', 'Adam', 'Anna', 'Hugo', 'Mia', 'Leo']";
+    private static final String PET_NAMES = "ARRAY['Max', 'Bella', 'Luna', 'Charlie', 'Lucy', 'Cooper', "
+            + "'Daisy', 'Milo', 'Oscar', 'Simba', 'Nala', 'Rocky', 'Coco', 'Felix', 'Toby', 'Kiwi']";
+
+    /**
+     * What to generate.
+     *
+     * @param users           number of users
+     * @param pets            number of pets, every pet has an owner
+     * @param addresses       number of addresses, users are spread over them uniformly
+     * @param cities          number of cities the addresses are spread over
+     * @param citySkew        exponent of the city distribution, 1 for uniform; with 3 and 1000 cities,
+     *                        {@code City1} gets a tenth of the addresses
+     * @param familyNames     number of distinct user names, drawn with a skew so that some are very common
+     * @param multiOwnerRatio share of pets having a second owner
+     * @param deceasedRatio   share of users, and of pets, marked as deceased
+     * @param threads         statements run in parallel
+     * @param chunkSize       rows per statement
+     * @param seed            seed of the generated values
+     */
+    public record Plan(long users,
+                       long pets,
+                       long addresses,
+                       int cities,
+                       double citySkew,
+                       int familyNames,
+                       double multiOwnerRatio,
+                       double deceasedRatio,
+                       int threads,
+                       int chunkSize,
+                       long seed) {
+
+        public Plan {
+            if (users < 2 || pets < 1 || addresses < 1 || cities < 1 || familyNames < 1
+                    || threads < 1 || chunkSize < 1 || citySkew <= 0) {
+                throw new IllegalArgumentException("Invalid seed plan " + this);
+            }
+        }
+
+        /**
+         * Proportions observed in production: as many pets as users, four users per address, a tenth of the pets
+         * shared by two owners and 5% deceased.
+         */
+        public static Plan of(long users) {
+            long addresses = Math.max(1, users / 4);
+            return new Plan(users, users, addresses, (int) Math.min(1000, addresses), 3.0,
+                    (int) Math.max(1, Math.min(5000, users / 100)), 0.1, 0.05,
+                    Runtime.getRuntime().availableProcessors(), 50_000, 42);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final FilterIndex filterIndex;
+    private final ResponseCache responseCache;
+
+    public DataGenerator(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory, FilterIndex filterIndex,
+                         ResponseCache responseCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.filterIndex = filterIndex;
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Adds the rows of the plan to the existing data.
+     *
+     * @param plan what to generate
+     */
+    public void generate(Plan plan) {
+        LOGGER.info("Seeding {}", plan);
+        long start = System.nanoTime();
+        long addressBase = reserveIds("address", "address_seq", plan.addresses());
+        long userBase = reserveIds("\"user\"", "user_seq", plan.users());
+        long petBase = reserveIds("pet", "pet_seq", plan.pets());
+
+        ExecutorService executor = Executors.newFixedThreadPool(plan.threads());
+        try {
+            run(executor, plan, plan.addresses(), "INSERT INTO address "
+                    + "(id, city, type, address_name, number, created_by, created_time) "
+                    + "SELECT " + addressBase + " + X, "
+                    + "CONCAT('City', " + index(plan.cities(), uniform(plan, 0), plan.citySkew()) + " + 1), "
+                    + "'street', CONCAT('Seed ', MOD(X, 1000)), CAST(" + addressBase + " + X AS VARCHAR), "
+                    + "'seed', CURRENT_TIMESTAMP "
+                    + "FROM SYSTEM_RANGE(%d, %d)");
+            run(executor, plan, plan.users(), "INSERT INTO \"user\" "
+                    + "(id, name, first_name, address_id, age, gender, deceased, created_by, created_time) "
+                    + "SELECT " + userBase + " + X, "
+                    + "CONCAT('Family', " + index(plan.familyNames(), uniform(plan, 1), 2) + " + 1), "
+                    // (name, first_name) is unique, homonyms differ by the id suffixing their first name
+                    + "CONCAT(" + FIRST_NAMES + "[" + index(16, uniform(plan, 2), 1) + " + 1], "
+                    + userBase + " + X), "
+                    + addressBase + " + 1 + " + index(plan.addresses(), uniform(plan, 3), 1) + ", "
+                    + "18 + " + index(72, uniform(plan, 4), 1) + ", "
+                    + "CASEWHEN(" + uniform(plan, 5) + " < 0.5, 'FEMALE', 'MALE'), "
+                    + uniform(plan, 6) + " < " + plan.deceasedRatio() + ", 'seed', CURRENT_TIMESTAMP "
+                    + "FROM SYSTEM_RANGE(%d, %d)");
+            run(executor, plan, plan.pets(), "INSERT INTO pet "
+                    + "(id, name, age, type, deceased, created_by, created_time) "
+                    + "SELECT " + petBase + " + X, "
+                    + PET_NAMES + "[" + index(16, uniform(plan, 1), 2) + " + 1], "
+                    + index(20, uniform(plan, 4), 1.5) + ", "
+                    + PET_TYPES + "[" + index(7, uniform(plan, 2), 2.5) + " + 1], "
+                    + uniform(plan, 6) + " < " + plan.deceasedRatio() + ", 'seed', CURRENT_TIMESTAMP "
+                    + "FROM SYSTEM_RANGE(%d, %d)");
+            String owner = index(plan.users(), uniform(plan, 7), 1);
+            run(executor, plan, plan.pets(), "INSERT INTO user_pet (user_id, pet_id) "
+                    + "SELECT " + userBase + " + 1 + " + owner + ", " + petBase + " + X "
+                    + "FROM SYSTEM_RANGE(%d, %d)");
+            // the second owner is another user than the first one
+            run(executor, plan, plan.pets(), "INSERT INTO user_pet (user_id, pet_id) "
+                    + "SELECT " + userBase + " + 1 + MOD(" + owner + " + 1 + "
+                    + index(plan.users() - 1, uniform(plan, 8), 1) + ", " + plan.users() + "), " + petBase + " + X "
+                    + "FROM SYSTEM_RANGE(%d, %d) WHERE " + uniform(plan, 9) + " < " + plan.multiOwnerRatio());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // rows written behind Hibernate's back make cached query results, the filter index and the cached
+        // responses stale
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        filterIndex.rebuild();
+        responseCache.clear();
+        LOGGER.info("Seeded {} addresses, {} users and {} pets in {} ms", plan.addresses(), plan.users(),
+                plan.pets(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Moves the sequence past {@code count} ids following the highest id in use or reserved.
+     * Hibernate's pooled optimizer hands out the {@link #ALLOCATION_SIZE} ids up to each sequence value.
+     *
+     * @return id after which the generated rows are numbered
+     */
+    private long reserveIds(String table, String sequence, long count) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        Long sequenceValue = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+        long base = Math.max(maxId, sequenceValue);
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (base + count + ALLOCATION_SIZE));
+        return base;
+    }
+
+    /**
+     * Runs the statement for rows 1 to {@code rows} in chunks, in parallel, and waits for all of them.
+     *
+     * @param sql statement with the first and last row of the chunk as {@code %d} placeholders
+     */
+    private void run(ExecutorService executor, Plan plan, long rows, String sql) {
+        List<Future<Integer>> chunks = new ArrayList<>();
+        for (long from = 1; from <= rows; from += plan.chunkSize()) {
+            String chunk = String.format(Locale.ROOT, sql, from, Math.min(rows, from + plan.chunkSize() - 1));
+            chunks.add(executor.submit(() -> jdbcTemplate.update(chunk)));
+        }
+        try {
+            for (Future<Integer> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Seeding interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Seeding failed", ex.getCause());
+        }
+    }
+
+    /**
+     * Every attribute hashes the row number with its own hash seed, so that attributes are drawn independently.
+     *
+     * @return SQL of a pseudo random number in [0, 1) derived from the row number X
+     */
+    private static String uniform(Plan plan, int attribute) {
+        long hashSeed = Math.floorMod(plan.seed() * 16 + attribute, HASH_BUCKETS);
+        return "(ORA_HASH(X, " + (HASH_BUCKETS - 1) + ", " + hashSeed + ") / " + HASH_BUCKETS + ".0)";
+    }
+
+    /**
+     * @param skew 1 for a uniform draw, above 1 to favour the lowest indexes
+     * @return SQL of an index in [0, size) drawn from the given uniform number
+     */
+    private static String index(long size, String uniform, double skew) {
+        String draw = skew == 1 ? uniform : "POWER(" + uniform + ", " + skew + ")";
+        return "CAST(FLOOR(" + size + " * " + draw + ") AS BIGINT)";
+    }
+}
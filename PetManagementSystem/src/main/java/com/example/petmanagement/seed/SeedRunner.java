@@ -0,0 +1,44 @@
+package com.example.petmanagement.seed;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Seeds synthetic data at startup when {@code seed.users} is set, e.g. {@code --seed.users=10000000}.
+ * The other values of {@link DataGenerator.Plan} default to {@link DataGenerator.Plan#of} and can be
+ * overridden the same way: {@code seed.pets}, {@code seed.addresses}, {@code seed.cities}, {@code seed.city-skew},
+ * {@code seed.family-names}, {@code seed.multi-owner-ratio}, {@code seed.deceased-ratio}, {@code seed.threads},
+ * {@code seed.chunk-size} and {@code seed.seed}.
+ */
+@Component
+@ConditionalOnProperty("seed.users")
+public class SeedRunner implements ApplicationRunner {
+
+    private final DataGenerator dataGenerator;
+    private final Environment environment;
+
+    public SeedRunner(DataGenerator dataGenerator, Environment environment) {
+        this.dataGenerator = dataGenerator;
+        this.environment = environment;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        DataGenerator.Plan defaults = DataGenerator.Plan.of(environment.getRequiredProperty("seed.users", Long.class));
+        dataGenerator.generate(new DataGenerator.Plan(
+                defaults.users(),
+                environment.getProperty("seed.pets", Long.class, defaults.pets()),
+                environment.getProperty("seed.addresses", Long.class, defaults.addresses()),
+                environment.getProperty("seed.cities", Integer.class, defaults.cities()),
+                environment.getProperty("seed.city-skew", Double.class, defaults.citySkew()),
+                environment.getProperty("seed.family-names", Integer.class, defaults.familyNames()),
+                environment.getProperty("seed.multi-owner-ratio", Double.class, defaults.multiOwnerRatio()),
+                environment.getProperty("seed.deceased-ratio", Double.class, defaults.deceasedRatio()),
+                environment.getProperty("seed.threads", Integer.class, defaults.threads()),
+                environment.getProperty("seed.chunk-size", Integer.class, defaults.chunkSize()),
+                environment.getProperty("seed.seed", Long.class, defaults.seed())));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.dto.AddressDto;
+import com.example.petmanagement.exception.BadRequestException;
+import com.example.petmanagement.model.Address;
+
+/**
+ * Normalized (trimmed, single spaced) address tuple used to canonicalize addresses.
+ * Comparison stays case-sensitive like the unique constraint of the address table.
+ */
+public record AddressKey(String city, String type, String addressName, String number) {
+
+    /**
+     * @param dto address sent by the client
+     * @return the normalized tuple
+     * @throws BadRequestException if the address or one of its fields is missing
+     */
+    public static AddressKey of(AddressDto dto) {
+        if (dto == null) {
+            throw new BadRequestException("Address is required");
+        }
+        return new AddressKey(
+                normalize(dto.city(), "city"),
+                normalize(dto.type(), "type"),
+                normalize(dto.addressName(), "addressName"),
+                normalize(dto.number(), "number"));
+    }
+
+    static AddressKey of(Address address) {
+        return new AddressKey(address.getCity(), address.getType(), address.getAddressName(), address.getNumber());
+    }
+
+    /**
+     * @return a transient address holding this tuple
+     */
+    Address toAddress() {
+        Address address = new Address();
+        address.setCity(city);
+        address.setType(type);
+        address.setAddressName(addressName);
+        address.setNumber(number);
+        return address;
+    }
+
+    private static String normalize(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new BadRequestException("Address " + field + " is required");
+        }
+        return value.trim().replaceAll("\\s+", " ");
+    }
+}
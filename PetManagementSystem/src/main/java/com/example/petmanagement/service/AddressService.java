@@ -1,53 +1,136 @@
 package com.example.petmanagement.service;
 
 import com.example.petmanagement.dto.AddressDto;
+import com.example.petmanagement.exception.BadRequestException;
 import com.example.petmanagement.model.Address;
 import com.example.petmanagement.repository.AddressRepository;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 
 @Service
-@RequiredArgsConstructor
+@Timed(value = "service.invocations", histogram = true)
 public class AddressService {
     private static final Logger LOGGER = LoggerFactory.getLogger(AddressService.class);
 
     private final AddressRepository addressRepository;
 
     /**
-     * This method retrieves address based on give Dto input
+     * Canonical address tuple to address id. Address rows are never deleted, so an id stays valid once committed.
+     */
+    private final Cache<AddressKey, Long> addressIds;
+
+    public AddressService(AddressRepository addressRepository,
+                          @Value("${address.cache.maximum-size:10000}") long maximumSize) {
+        this.addressRepository = addressRepository;
+        this.addressIds = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * This method retrieves address based on give Dto input.
+     * Known addresses are resolved from an in-process cache without touching the database,
+     * unknown ones are inserted if absent, then read.
      * @param addressDto contains address dto from client
      * @return Address
+     * @throws BadRequestException if the address or one of its fields is missing
      */
     @Transactional
     public Address getOrCreateAddress(AddressDto addressDto) {
         LOGGER.info("Fetch address details for the given dto {}",addressDto);
-        Optional<Address> existingAddress = addressRepository.findByCityAndTypeAndAddressNameAndNumber(
-                addressDto.city(),
-                addressDto.type(),
-                addressDto.addressName(),
-                addressDto.number()
-        );
-
-        return existingAddress.orElseGet(() -> createAddress(addressDto));
+        AddressKey key = AddressKey.of(addressDto);
+
+        Long addressId = addressIds.getIfPresent(key);
+        if (addressId != null) {
+            return addressRepository.getReferenceById(addressId);
+        }
+
+        Address address = insertMissingThenRead(List.of(key.toAddress()), () -> addressRepository
+                .findByCityAndTypeAndAddressNameAndNumber(key.city(), key.type(), key.addressName(), key.number())
+                .orElseThrow());
+        cacheAfterCommit(key, address.getId());
+        return address;
     }
 
     /**
-     * This method creates address based on fetched data from the Address table
-     * @param addressDto contains address dto from client
-     * @return Address furnished address object
+     * Set based variant of {@link #getOrCreateAddress} used by bulk operations.
+     * Cached addresses are resolved without SQL, all the others with one multi-row insert if absent, then one read.
+     * @param keys normalized addresses
+     * @return address for every given key
+     */
+    @Transactional
+    public Map<AddressKey, Address> getOrCreateAddresses(Collection<AddressKey> keys) {
+        Map<AddressKey, Address> addresses = new HashMap<>();
+        List<Address> missing = new ArrayList<>();
+        for (AddressKey key : new HashSet<>(keys)) {
+            Long addressId = addressIds.getIfPresent(key);
+            if (addressId != null) {
+                addresses.put(key, addressRepository.getReferenceById(addressId));
+            } else {
+                missing.add(key.toAddress());
+            }
+        }
+        LOGGER.info("Resolving {} addresses, {} of them not cached", keys.size(), missing.size());
+        for (Address address : insertMissingThenRead(missing, () -> addressRepository.findAllMatching(missing))) {
+            AddressKey key = AddressKey.of(address);
+            addresses.put(key, address);
+            cacheAfterCommit(key, address.getId());
+        }
+        return addresses;
+    }
+
+    /**
+     * Inserts the missing addresses, then reads them. Two callers inserting the same new address at once both find
+     * it absent, and the unique constraint fails the later one once the other commits: its insert, run in a
+     * savepoint, is tried once again, now finding the committed row.
+     * @param addresses transient addresses, distinct tuples
+     * @param read reads the stored addresses
+     * @return the result of read
+     */
+    private <T> T insertMissingThenRead(List<Address> addresses, Supplier<T> read) {
+        try {
+            addressRepository.insertMissing(addresses);
+        } catch (DataIntegrityViolationException ex) {
+            LOGGER.info("Address inserted concurrently, trying again: {}", ex.getMessage());
+            addressRepository.insertMissing(addresses);
+        }
+        return read.get();
+    }
+
+    /**
+     * The id is only cached once the transaction that may have inserted the row commits,
+     * so a rolled back insert never leaves a dangling id in the cache
+     * @param key canonical address
+     * @param addressId id of the address row
      */
-    private Address createAddress(AddressDto addressDto) {
-        Address address = new Address();
-        address.setCity(addressDto.city());
-        address.setType(addressDto.type());
-        address.setAddressName(addressDto.addressName());
-        address.setNumber(addressDto.number());
-        return addressRepository.save(address);
+    private void cacheAfterCommit(AddressKey key, Long addressId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            addressIds.put(key, addressId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                addressIds.put(key, addressId);
+            }
+        });
     }
 }
\ No newline at end of file
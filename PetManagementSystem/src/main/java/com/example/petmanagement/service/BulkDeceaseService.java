@@ -0,0 +1,229 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.dto.BulkDeceaseResponseDto;
+import com.example.petmanagement.exception.BadRequestException;
+import com.example.petmanagement.index.FilterIndex;
+import com.example.petmanagement.repository.PetRepository;
+import com.example.petmanagement.repository.UserPetRepository;
+import com.example.petmanagement.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Marks many users or pets as deceased at once: all the pets of an owner or of an address, the users of an address,
+ * or an explicit list of ids. Instead of one transaction loading each entity, the matching active ids are selected
+ * in id order, {@code bulk.decease.chunk-size} at a time, and each chunk is marked by one UPDATE in its own
+ * transaction, so that its row locks are held briefly and a failure keeps the chunks already committed.
+ * <p>
+ * Like the single row targeted updates of {@link PetService} and {@link UserService}, the statements bypass the
+ * entity listeners: every chunk records its ids in the filter index and, for pets, publishes the change of the
+ * listings of their owners. Hibernate invalidates the cached entities and queries of the table.
+ */
+@Service
+public class BulkDeceaseService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkDeceaseService.class);
+
+    private final PetRepository petRepository;
+    private final UserRepository userRepository;
+    private final UserPetRepository userPetRepository;
+    private final FilterIndex filterIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public BulkDeceaseService(PetRepository petRepository,
+                              UserRepository userRepository,
+                              UserPetRepository userPetRepository,
+                              FilterIndex filterIndex,
+                              ApplicationEventPublisher eventPublisher,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${bulk.decease.chunk-size:500}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("bulk.decease.chunk-size must be positive, was " + chunkSize);
+        }
+        this.petRepository = petRepository;
+        this.userRepository = userRepository;
+        this.userPetRepository = userPetRepository;
+        this.filterIndex = filterIndex;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Marks every active pet of a user as deceased, those it shares with other owners included.
+     *
+     * @param userId owner of the pets, an unknown user has no pet
+     * @return number of pets marked deceased
+     */
+    public BulkDeceaseResponseDto markPetsOfOwnerAsDeceased(Long userId) {
+        LOGGER.info("Marking the pets of user {} as deceased", userId);
+        return inChunks(afterId -> keyset(petRepository.findActiveIdsByOwnerAfter(userId, afterId, chunk())),
+                this::markPetChunk);
+    }
+
+    /**
+     * Marks every active pet owned by a user of the address as deceased.
+     *
+     * @param addressId address of the owners, an unknown address has no pet
+     * @return number of pets marked deceased
+     */
+    public BulkDeceaseResponseDto markPetsAtAddressAsDeceased(Long addressId) {
+        LOGGER.info("Marking the pets owned at address {} as deceased", addressId);
+        return inChunks(afterId -> keyset(petRepository.findActiveIdsByAddressAfter(addressId, afterId, chunk())),
+                this::markPetChunk);
+    }
+
+    /**
+     * @param ids ids of the pets, unknown and already deceased ones are skipped
+     * @return number of pets marked deceased
+     * @throws BadRequestException if no id is given
+     */
+    public BulkDeceaseResponseDto markPetsAsDeceased(Collection<Long> ids) {
+        List<Long> sorted = sortedIds(ids, "Pet");
+        LOGGER.info("Marking {} pets as deceased", sorted.size());
+        return inChunks(position -> listChunk(sorted, position, petRepository::findActiveIdsIn), this::markPetChunk);
+    }
+
+    /**
+     * Marks every active user of the address as deceased. Their pets are left as they are.
+     *
+     * @param addressId address of the users, an unknown address has no user
+     * @return number of users marked deceased
+     */
+    public BulkDeceaseResponseDto markUsersAtAddressAsDeceased(Long addressId) {
+        LOGGER.info("Marking the users of address {} as deceased", addressId);
+        return inChunks(afterId -> keyset(userRepository.findActiveIdsByAddressAfter(addressId, afterId, chunk())),
+                this::markUserChunk);
+    }
+
+    /**
+     * @param ids ids of the users, unknown and already deceased ones are skipped
+     * @return number of users marked deceased
+     * @throws BadRequestException if no id is given
+     */
+    public BulkDeceaseResponseDto markUsersAsDeceased(Collection<Long> ids) {
+        List<Long> sorted = sortedIds(ids, "User");
+        LOGGER.info("Marking {} users as deceased", sorted.size());
+        return inChunks(position -> listChunk(sorted, position, userRepository::findActiveIdsIn), this::markUserChunk);
+    }
+
+    /**
+     * Active ids to mark in one transaction, selected in that transaction.
+     *
+     * @param ids      ids to mark, possibly none when every candidate of a list was skipped
+     * @param position where the next chunk starts: the last id selected, or the index of the next id of a list
+     * @param last     no chunk follows
+     */
+    private record Chunk(List<Long> ids, long position, boolean last) {}
+
+    /**
+     * @param position where the next chunk starts
+     * @param marked   number of rows the chunk marked
+     * @param last     no chunk follows
+     */
+    private record Marked(long position, int marked, boolean last) {}
+
+    /**
+     * @param next selects the chunk starting at a position (0 for the first one), null if there is none
+     * @param mark marks the ids of a chunk, in its transaction, and returns the number of rows marked
+     */
+    private BulkDeceaseResponseDto inChunks(LongFunction<Chunk> next, ToIntFunction<List<Long>> mark) {
+        int deceased = 0;
+        int chunks = 0;
+        long position = 0;
+        boolean last = false;
+        while (!last) {
+            long start = position;
+            Marked result = transactionTemplate.execute(status -> {
+                Chunk chunk = next.apply(start);
+                if (chunk == null) {
+                    return null;
+                }
+                int marked = chunk.ids().isEmpty() ? 0 : mark.applyAsInt(chunk.ids());
+                return new Marked(chunk.position(), marked, chunk.last());
+            });
+            if (result == null) {
+                break;
+            }
+            deceased += result.marked();
+            chunks++;
+            position = result.position();
+            last = result.last();
+        }
+        LOGGER.info("Marked {} as deceased in {} chunks", deceased, chunks);
+        return new BulkDeceaseResponseDto(deceased, chunks);
+    }
+
+    private int markPetChunk(List<Long> ids) {
+        int marked = petRepository.markAllDeceased(ids, LocalDateTime.now());
+        filterIndex.recordPets(ids);
+        List<Object[]> owners = userPetRepository.findOwnerIdsAndCities(ids);
+        if (!owners.isEmpty()) {
+            Set<Long> userIds = new HashSet<>();
+            Set<String> cities = new HashSet<>();
+            for (Object[] owner : owners) {
+                userIds.add((Long) owner[0]);
+                cities.add((String) owner[1]);
+            }
+            eventPublisher.publishEvent(new PetListingsChangedEvent(userIds, cities));
+        }
+        return marked;
+    }
+
+    private int markUserChunk(List<Long> ids) {
+        int marked = userRepository.markAllDeceased(ids, LocalDateTime.now());
+        filterIndex.recordUsers(ids);
+        return marked;
+    }
+
+    /**
+     * @param ids active ids returned by a keyset query limited to the chunk size
+     */
+    private Chunk keyset(List<Long> ids) {
+        return ids.isEmpty() ? null : new Chunk(ids, ids.getLast(), ids.size() < chunkSize);
+    }
+
+    /**
+     * @param sorted     distinct ids in ascending order
+     * @param position   index of the first id of the chunk
+     * @param findActive keeps the existing active ids of a chunk
+     */
+    private Chunk listChunk(List<Long> sorted, long position, Function<List<Long>, List<Long>> findActive) {
+        int from = (int) position;
+        if (from >= sorted.size()) {
+            return null;
+        }
+        int to = Math.min(from + chunkSize, sorted.size());
+        return new Chunk(findActive.apply(sorted.subList(from, to)), to, to == sorted.size());
+    }
+
+    private Pageable chunk() {
+        return PageRequest.ofSize(chunkSize);
+    }
+
+    private static List<Long> sortedIds(Collection<Long> ids, String entity) {
+        List<Long> sorted = ids == null ? List.of()
+                : ids.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        if (sorted.isEmpty()) {
+            throw new BadRequestException(entity + " ids must not be empty");
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.petmanagement.service;
+
+/**
+ * A listing with its ETag, both computed from the same rows.
+ *
+ * @param body the listing
+ * @param eTag the quoted strong entity tag of the listing
+ */
+public record ETagged<T>(T body, String eTag) {}
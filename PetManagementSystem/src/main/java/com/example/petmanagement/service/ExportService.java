@@ -0,0 +1,114 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.dto.UserPetRowDto;
+import com.example.petmanagement.dto.UserResponseDto;
+import com.example.petmanagement.exception.BadRequestException;
+import com.example.petmanagement.repository.PetRepository;
+import com.example.petmanagement.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams the results of the listing queries as newline delimited JSON (one DTO per line).
+ * Rows are projected into DTOs, read through forward-only cursors and written as soon as they are read,
+ * so nothing accumulates in the persistence context and the heap stays flat whatever the number of rows.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportService.class);
+
+    private final PetRepository petRepository;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Writes the active pets of the city as NDJSON, same filter as {@link PetService#getPetsByCity}.
+     *
+     * @param city The city name to filter pets by (case-sensitive). Must not be blank or empty.
+     * @param out  target stream, left open
+     * @return number of pets written
+     * @throws BadRequestException if city is blank
+     * @throws IOException         if writing fails
+     */
+    @Transactional(readOnly = true)
+    public long exportPetsByCity(String city, OutputStream out) throws IOException {
+        LOGGER.info("Exporting pets by city: {}", city);
+        if (city == null || city.isBlank()) {
+            throw new BadRequestException("City cannot be empty");
+        }
+        try (Stream<PetResponseDto> pets = petRepository.streamByCity(city);
+             NdjsonWriter writer = new NdjsonWriter(out)) {
+            Iterator<PetResponseDto> rows = pets.iterator();
+            while (rows.hasNext()) {
+                writer.write(rows.next());
+            }
+            LOGGER.info("Exported {} pets for city {}", writer.count, city);
+            return writer.count;
+        }
+    }
+
+    /**
+     * Writes the users of {@link UserService#getUsersByPetTypeAndCity} as NDJSON, each with all of its pets.
+     * The rows arrive grouped by user, so a user is written as soon as its last row is read.
+     *
+     * @param petType the type of pet to filter by (e.g., "dog", "cat")
+     * @param city    the city name to filter by
+     * @param out     target stream, left open
+     * @return number of users written
+     * @throws BadRequestException if petType or city is blank
+     * @throws IOException         if writing fails
+     */
+    @Transactional(readOnly = true)
+    public long exportUsersByPetTypeAndCity(String petType, String city, OutputStream out) throws IOException {
+        LOGGER.info("Exporting users owning {} in city: {}", petType, city);
+        if (petType == null || petType.isBlank() || city == null || city.isBlank()) {
+            throw new BadRequestException("Pet type and city cannot be empty");
+        }
+        try (Stream<UserPetRowDto> userPets = userRepository.streamUsersWithPetsByPetTypeAndCity(petType, city);
+             NdjsonWriter writer = new NdjsonWriter(out)) {
+            Iterator<UserResponseDto> users = new UserRowAssembler(userPets.iterator());
+            while (users.hasNext()) {
+                writer.write(users.next());
+            }
+            LOGGER.info("Exported {} users owning {} in city {}", writer.count, petType, city);
+            return writer.count;
+        }
+    }
+
+    /**
+     * Writes one JSON document per line with Jackson's streaming generator.
+     */
+    private final class NdjsonWriter implements Closeable {
+        private final JsonGenerator generator;
+        private long count;
+
+        private NdjsonWriter(OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        private void write(Object value) throws IOException {
+            objectMapper.writeValue(generator, value);
+            generator.writeRaw('\n');
+            count++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.petmanagement.service;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Strong entity tag of a pet listing, computed from the ids and versions of the pets it shows instead of from
+ * its body: it changes when a pet of the listing is updated, joins or leaves it, or when the total of a page moves.
+ */
+final class ListingETag {
+
+    /**
+     * Bytes of the SHA-256 digest kept in the tag.
+     */
+    private static final int LENGTH = 16;
+
+    private ListingETag() {
+    }
+
+    /**
+     * @param idsAndVersions (id, version) pairs of the listed pets, in any order
+     * @param total          total of a page, or the number of pairs for a plain list
+     * @return the quoted tag, as sent in the ETag header
+     */
+    static String of(List<Object[]> idsAndVersions, long total) {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES * (1 + 2 * idsAndVersions.size())).putLong(total);
+        idsAndVersions.stream()
+                .sorted(Comparator.comparing(row -> (Long) row[0]))
+                .forEach(row -> buffer.putLong((Long) row[0]).putLong((Long) row[1]));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(buffer.array());
+            return '"' + HexFormat.of().formatHex(digest, 0, LENGTH) + '"';
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is available on every JVM", ex);
+        }
+    }
+}
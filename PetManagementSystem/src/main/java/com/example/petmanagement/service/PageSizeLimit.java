@@ -0,0 +1,36 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.exception.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounds the size requested for a page or slice of a listing to {@code pagination.max-size}: one request cannot
+ * make the database read, and the service map, an unbounded number of rows, and the extra row read for a slice
+ * ({@code size + 1}) cannot overflow.
+ */
+@Component
+public class PageSizeLimit {
+
+    private final int maxSize;
+
+    public PageSizeLimit(@Value("${pagination.max-size:1000}") int maxSize) {
+        if (maxSize < 1 || maxSize == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("pagination.max-size must be positive and leave room for one more row, was "
+                    + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @throws BadRequestException if the size is not positive or above the maximum
+     */
+    public void validate(int size) {
+        if (size <= 0) {
+            throw new BadRequestException("Size must be positive");
+        }
+        if (size > maxSize) {
+            throw new BadRequestException("Size must not exceed " + maxSize);
+        }
+    }
+}
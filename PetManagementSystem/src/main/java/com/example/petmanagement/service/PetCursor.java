@@ -0,0 +1,54 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position of a pet listing sorted by (name, id).
+ * It is exchanged with clients as an opaque url safe token.
+ *
+ * @param name name of the last pet returned
+ * @param id   id of the last pet returned, breaks ties between pets with the same name
+ */
+record PetCursor(String name, Long id) {
+
+    private static final char SEPARATOR = '\u0000';
+
+    private static final PetCursor FIRST = new PetCursor("", 0L);
+
+    static PetCursor of(PetResponseDto pet) {
+        return new PetCursor(pet.name(), pet.id());
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @param token cursor token from the client, null or blank for the first slice
+     * @return decoded cursor, or the position before every pet when no token was given: an empty name and id 0,
+     * which the keyset queries compare against without a null check
+     * @throws BadRequestException if the token is malformed
+     */
+    static PetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new BadRequestException("Invalid cursor: " + token);
+            }
+            return new PetCursor(raw.substring(0, separator), Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid cursor: " + token, ex);
+        }
+    }
+
+    String encode() {
+        String raw = name + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
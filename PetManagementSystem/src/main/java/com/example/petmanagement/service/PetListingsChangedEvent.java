@@ -0,0 +1,50 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.dto.PetOwnerRowDto;
+import com.example.petmanagement.model.User;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Published by the services when the pets listed for some owners, and so for their cities, change: a pet of
+ * theirs was updated or died, or was assigned to or removed from them. Listeners that need the change to be
+ * visible in the database, like the response cache, receive it after the commit.
+ *
+ * @param userIds ids of the owners whose pet listings changed
+ * @param cities  cities (as stored) whose pet listings changed
+ */
+public record PetListingsChangedEvent(Set<Long> userIds, Set<String> cities) {
+
+    /**
+     * @param owners owners of the changed pets, their addresses are read for the cities
+     */
+    static PetListingsChangedEvent of(Collection<User> owners) {
+        return new PetListingsChangedEvent(
+                owners.stream().map(User::getId).collect(Collectors.toSet()),
+                owners.stream().map(owner -> owner.getAddress().getCity()).collect(Collectors.toSet()));
+    }
+
+    /**
+     * @param rows a pet read back with its owners, rows without owner are skipped
+     */
+    static PetListingsChangedEvent ofOwnerRows(Collection<PetOwnerRowDto> rows) {
+        return new PetListingsChangedEvent(
+                rows.stream().map(PetOwnerRowDto::ownerId).filter(Objects::nonNull).collect(Collectors.toSet()),
+                rows.stream().map(PetOwnerRowDto::ownerCity).filter(Objects::nonNull).collect(Collectors.toSet()));
+    }
+
+    /**
+     * A user moved: the listings of both cities show its pets differently.
+     */
+    static PetListingsChangedEvent moved(User user, String previousCity) {
+        Set<String> cities = new HashSet<>();
+        cities.add(previousCity);
+        cities.add(user.getAddress().getCity());
+        cities.removeIf(Objects::isNull);
+        return new PetListingsChangedEvent(Set.of(user.getId()), cities);
+    }
+}
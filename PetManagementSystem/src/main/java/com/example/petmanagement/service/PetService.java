@@ -1,31 +1,60 @@
 package com.example.petmanagement.service;
 
+import com.example.petmanagement.coalescing.Coalesced;
+import com.example.petmanagement.counts.ApproximateCounts;
+import com.example.petmanagement.dto.PetOwnerRowDto;
 import com.example.petmanagement.dto.PetRequestDto;
 import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.dto.PetSliceResponseDto;
+import com.example.petmanagement.dto.PetVersionRowDto;
 import com.example.petmanagement.exception.BadRequestException;
 import com.example.petmanagement.exception.ResourceNotFoundException;
+import com.example.petmanagement.index.FilterIndex;
 import com.example.petmanagement.model.Pet;
 import com.example.petmanagement.repository.PetRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.OptionalLong;
 
 /**
  *
  */
 @Service
+@Timed(value = "service.invocations", histogram = true)
 @RequiredArgsConstructor
 public class PetService {
     private static final org.slf4j.Logger LOGGER = org.slf4j.LoggerFactory.getLogger(PetService.class);
 
+    /**
+     * Largest set of indexed pet ids ordered in memory, larger ones are matched against the pets in page order.
+     */
+    private static final int MAX_SORTED_IN_MEMORY = 100_000;
+    /**
+     * Rows of pets read per query when matching indexed ids against the pets in page order.
+     */
+    private static final int SCAN_BATCH = 1000;
+
     private final PetRepository petRepository;
+    private final FilterIndex filterIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ApproximateCounts approximateCounts;
+    private final PageSizeLimit pageSizeLimit;
 
     /**
      * This method create pet.If pet validation failes then it throws BadRequestException
@@ -63,37 +92,128 @@ public class PetService {
      * @return a list of PetResponseDto objects representing the pets owned by the specified owner
      * @throws BadRequestException if ownerId is null
      */
+    @Coalesced
     @Transactional(readOnly = true)
     public List<PetResponseDto> getPetsByOwnerId(Long userId) {
         LOGGER.info("Retrieving pets for user with ID: {}", userId);
         if (userId == null) {
             throw new BadRequestException("userId cannot be null");
         }
-        return petRepository.findByOwnerId(userId)
-                .stream()
-                .map(this::mapToPetResponseDto)
-                .toList();
+        return petRepository.findByOwnerId(userId);
+    }
+
+    /**
+     * ETag of {@link #getPetsByOwnerId}, read from the pet versions only: nothing is mapped.
+     *
+     * @param userId the ID of the pet's owner
+     * @return the quoted strong entity tag
+     * @throws BadRequestException if ownerId is null
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public String getPetsByOwnerIdETag(Long userId) {
+        if (userId == null) {
+            throw new BadRequestException("userId cannot be null");
+        }
+        List<Object[]> versions = petRepository.findVersionsByOwnerId(userId);
+        return ListingETag.of(versions, versions.size());
+    }
+
+    /**
+     * {@link #getPetsByOwnerId} with its ETag, both from one statement: for requests without If-None-Match, which
+     * need the tag for the response only.
+     *
+     * @param userId the ID of the pet's owner
+     * @return the pets owned by the specified owner, with the tag {@link #getPetsByOwnerIdETag} returns for them
+     * @throws BadRequestException if ownerId is null
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public ETagged<List<PetResponseDto>> getPetsByOwnerIdWithETag(Long userId) {
+        LOGGER.info("Retrieving pets with their ETag for user with ID: {}", userId);
+        if (userId == null) {
+            throw new BadRequestException("userId cannot be null");
+        }
+        List<PetVersionRowDto> rows = petRepository.findVersionRowsByOwnerId(userId);
+        return new ETagged<>(rows.stream().map(PetVersionRowDto::toResponse).toList(),
+                ListingETag.of(rows.stream().map(PetVersionRowDto::idAndVersion).toList(), rows.size()));
     }
 
 
     /**
      * etrieves a paginated list of pets located in the specified city, sorted by pet name.
+     * With approximate counts enabled, the page is read without counting and its total is the approximate one.
      *
      * @param city The city name to filter pets by (case-sensitive). Must not be blank or empty.
      * @param page The zero-based page index (0 = first page). Must not be negative.
-     * @param size The number of pets to include per page. Must be greater than 0
+     * @param size The number of pets to include per page. Must be greater than 0 and at most pagination.max-size
      * @throws BadRequestException if an attempt is made to update a deceased pet
      */
+    @Coalesced
     @Transactional(readOnly = true)
     public Page<PetResponseDto> getPetsByCity(String city, int page, int size) {
         LOGGER.info("Retrieving pets by city: {}", city);
         if (city.isEmpty() || city.isBlank()) {
             throw new BadRequestException("City cannot be empty");
         }
-        return petRepository.findByCity(
-                        city,
-                        PageRequest.of(page, size, Sort.by("name")))
-                .map(this::mapToPetResponseDto);
+        pageSizeLimit.validate(size);
+        Pageable pageable = PageRequest.of(page, size, Sort.by("name"));
+        OptionalLong total = approximateCounts.petsByCity(city);
+        if (total.isPresent()) {
+            return approximatePage(petRepository.findSliceByCity(city, pageable), total.getAsLong());
+        }
+        return petRepository.findByCity(city, pageable);
+    }
+
+    /**
+     * ETag of {@link #getPetsByCity}, read from the versions of the pets of the page and its total only.
+     *
+     * @param city The city name to filter pets by (case-sensitive). Must not be blank or empty.
+     * @param page The zero-based page index (0 = first page). Must not be negative.
+     * @param size The number of pets to include per page. Must be greater than 0 and at most pagination.max-size
+     * @return the quoted strong entity tag
+     * @throws BadRequestException if the city is blank
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public String getPetsByCityETag(String city, int page, int size) {
+        if (city.isEmpty() || city.isBlank()) {
+            throw new BadRequestException("City cannot be empty");
+        }
+        pageSizeLimit.validate(size);
+        Pageable pageable = PageRequest.of(page, size, Sort.by("name"));
+        OptionalLong total = approximateCounts.petsByCity(city);
+        Page<Object[]> versions = total.isPresent()
+                ? approximatePage(petRepository.findVersionSliceByCity(city, pageable), total.getAsLong())
+                : petRepository.findVersionsByCity(city, pageable);
+        return ListingETag.of(versions.getContent(), versions.getTotalElements());
+    }
+
+    /**
+     * {@link #getPetsByCity} with its ETag, both from the same page: for requests without If-None-Match, which
+     * need the tag for the response only.
+     *
+     * @param city The city name to filter pets by (case-sensitive). Must not be blank or empty.
+     * @param page The zero-based page index (0 = first page). Must not be negative.
+     * @param size The number of pets to include per page. Must be greater than 0 and at most pagination.max-size
+     * @return the page, with the tag {@link #getPetsByCityETag} returns for it
+     * @throws BadRequestException if the city is blank
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public ETagged<Page<PetResponseDto>> getPetsByCityWithETag(String city, int page, int size) {
+        LOGGER.info("Retrieving pets with their ETag by city: {}", city);
+        if (city.isEmpty() || city.isBlank()) {
+            throw new BadRequestException("City cannot be empty");
+        }
+        pageSizeLimit.validate(size);
+        Pageable pageable = PageRequest.of(page, size, Sort.by("name"));
+        OptionalLong total = approximateCounts.petsByCity(city);
+        Page<PetVersionRowDto> rows = total.isPresent()
+                ? approximatePage(petRepository.findVersionRowSliceByCity(city, pageable), total.getAsLong())
+                : petRepository.findVersionRowsByCity(city, pageable);
+        return new ETagged<>(rows.map(PetVersionRowDto::toResponse),
+                ListingETag.of(rows.map(PetVersionRowDto::idAndVersion).getContent(), rows.getTotalElements()));
     }
 
     /**
@@ -101,27 +221,207 @@ public class PetService {
      *
      * @param city The city name to filter pets by (case-sensitive). Must not be blank or empty.
      * @param page The zero-based page index (0 = first page). Must not be negative.
-     * @param size The number of pets to include per page. Must be greater than 0
+     * @param size The number of pets to include per page. Must be greater than 0 and at most pagination.max-size
      * @return PetResponseDto with the given page size
      * @throws ResourceNotFoundException if the pet with the given ID does not exist
      * @throws BadRequestException       if an attempt is made to update a deceased pet
      */
+    @Coalesced(key = "{#city?.toLowerCase(), #page, #size}")
     @Transactional(readOnly = true)
     public Page<PetResponseDto> getPetsByWomenInCity(String city, int page, int size) {
         LOGGER.info("Retreiving Pets by Women in city: {}", city);
         if (city != null && city.trim().isEmpty()) {
             throw new BadRequestException("City cannot be empty");
         }
-        return petRepository.findPetsByWomenOwnersInCity(
-                city,
-                PageRequest.of(page, size, Sort.by("name"))
-        ).map(this::mapToPetResponseDto);
+        pageSizeLimit.validate(size);
+        if (filterIndex.isUsable()) {
+            return getPetsByWomenInCityFromIndex(city, PageRequest.of(page, size, Sort.by("name", "id")));
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by("name"));
+        OptionalLong total = approximateCounts.petsOfWomen(city);
+        if (total.isPresent()) {
+            return approximatePage(petRepository.findSliceOfPetsByWomenOwnersInCity(city, pageable), total.getAsLong());
+        }
+        return petRepository.findPetsByWomenOwnersInCity(city, pageable);
+    }
+
+    /**
+     * Count-free variant of {@link #getPetsByCity}: retrieves a page of pets located in the specified city,
+     * sorted by pet name then id, and tells whether another page follows instead of counting them all.
+     *
+     * @param city The city name to filter pets by (case-sensitive). Must not be blank or empty.
+     * @param page The zero-based page index (0 = first page). Must not be negative.
+     * @param size The number of pets to include per page. Must be greater than 0 and at most pagination.max-size
+     * @return PetSliceResponseDto with the pets and hasNext, without cursor
+     * @throws BadRequestException if city is blank, page is negative or size is out of range
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public PetSliceResponseDto getPetsByCitySlice(String city, int page, int size) {
+        LOGGER.info("Retrieving slice {} of pets by city: {}", page, city);
+        if (city == null || city.isBlank()) {
+            throw new BadRequestException("City cannot be empty");
+        }
+        Pageable pageable = slicePageable(page, size);
+        return toOffsetSlice(petRepository.findSliceByCity(city, pageable));
+    }
+
+    /**
+     * Count-free variant of {@link #getPetsByWomenInCity}: retrieves a page of pets owned by women in the city,
+     * sorted by pet name then id, and tells whether another page follows. When the filter index is usable its
+     * total is free, so the page is taken from it.
+     *
+     * @param city The city name to filter pets by (case-insensitive). Null means every city.
+     * @param page The zero-based page index (0 = first page). Must not be negative.
+     * @param size The number of pets to include per page. Must be greater than 0 and at most pagination.max-size
+     * @return PetSliceResponseDto with the pets and hasNext, without cursor
+     * @throws BadRequestException if city is empty, page is negative or size is out of range
+     */
+    @Coalesced(key = "{#city?.toLowerCase(), #page, #size}")
+    @Transactional(readOnly = true)
+    public PetSliceResponseDto getPetsByWomenInCitySlice(String city, int page, int size) {
+        LOGGER.info("Retreiving slice {} of Pets by Women in city: {}", page, city);
+        if (city != null && city.trim().isEmpty()) {
+            throw new BadRequestException("City cannot be empty");
+        }
+        Pageable pageable = slicePageable(page, size);
+        if (filterIndex.isUsable()) {
+            return toOffsetSlice(getPetsByWomenInCityFromIndex(city, pageable));
+        }
+        return toOffsetSlice(petRepository.findSliceOfPetsByWomenOwnersInCity(city, pageable));
+    }
+
+    /**
+     * Page of {@link #getPetsByWomenInCity} resolved by the filter index: the total is the cardinality of the id set
+     * and only the pets of the page are read. Up to {@link #MAX_SORTED_IN_MEMORY} ids are put in page order by the
+     * index itself. Larger sets, typically every city at once, are matched against the active pets read in page
+     * order instead, which stops as soon as the page is full.
+     *
+     * @param city     The city name to filter pets by (case-insensitive). Null means every city.
+     * @param pageable page sorted by name then id
+     * @return PetResponseDto with the given page size
+     */
+    private Page<PetResponseDto> getPetsByWomenInCityFromIndex(String city, Pageable pageable) {
+        RoaringBitmap ids = filterIndex.alivePetsOfWomen(city);
+        long total = ids.getLongCardinality();
+        if (pageable.getOffset() >= total) {
+            return new PageImpl<>(List.of(), pageable, total);
+        }
+        List<Long> pageIds = total <= MAX_SORTED_IN_MEMORY
+                ? filterIndex.pageByName(ids, pageable.getOffset(), pageable.getPageSize())
+                : scanPageByName(ids, pageable);
+        List<PetResponseDto> content = pageIds.isEmpty()
+                ? List.of()
+                : petRepository.findByIdIn(pageIds, PageRequest.ofSize(pageIds.size()).withSort(pageable.getSort()));
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Slice of {@link #getPetsByWomenInCityAfter} resolved by the filter index, routed like
+     * {@link #getPetsByWomenInCityFromIndex}: the ids following the cursor are put in order by the index itself up to
+     * {@link #MAX_SORTED_IN_MEMORY} ids, larger sets are matched against the active pets read from the cursor on.
+     *
+     * @param limit number of pets to read, one more than the slice size
+     */
+    private List<PetResponseDto> getPetsByWomenInCityAfterFromIndex(String city, PetCursor after, int limit) {
+        RoaringBitmap ids = filterIndex.alivePetsOfWomen(city);
+        List<Long> sliceIds = ids.getLongCardinality() <= MAX_SORTED_IN_MEMORY
+                ? filterIndex.pageByNameAfter(ids, after.name(), after.id(), limit)
+                : scanByName(ids, after.name(), after.id(), 0, limit);
+        return sliceIds.isEmpty()
+                ? List.of()
+                : petRepository.findByIdIn(sliceIds, PageRequest.ofSize(sliceIds.size()).withSort(Sort.by("name", "id")));
+    }
+
+    private List<Long> scanPageByName(RoaringBitmap ids, Pageable pageable) {
+        return scanByName(ids, "", 0, pageable.getOffset(), pageable.getPageSize());
+    }
+
+    /**
+     * Matches the ids against the active pets read in (name, id) order from the given position on, until enough
+     * of them are found.
+     *
+     * @param skip  number of matching pets to skip
+     * @param limit number of matching pets to return
+     */
+    private List<Long> scanByName(RoaringBitmap ids, String afterName, long afterId, long skip, int limit) {
+        List<Long> pageIds = new ArrayList<>(limit);
+        long matched = 0;
+        while (pageIds.size() < limit) {
+            List<Object[]> rows = petRepository.findActiveNamesAfter(afterName, afterId, PageRequest.ofSize(SCAN_BATCH));
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                if (ids.contains(Math.toIntExact(id)) && matched++ >= skip) {
+                    pageIds.add(id);
+                    if (pageIds.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            if (rows.size() < SCAN_BATCH) {
+                break;
+            }
+            Object[] last = rows.get(rows.size() - 1);
+            afterId = (Long) last[0];
+            afterName = (String) last[1];
+        }
+        return pageIds;
+    }
+
+    /**
+     * Keyset variant of {@link #getPetsByCity}: retrieves the slice of pets in the city that follows the cursor,
+     * sorted by pet name then id. It never counts, so deep slices cost the same as the first one.
+     *
+     * @param city   The city name to filter pets by (case-sensitive). Must not be blank or empty.
+     * @param cursor opaque token returned as nextCursor by the previous slice, null for the first slice
+     * @param size   The number of pets to include per slice. Must be greater than 0 and at most pagination.max-size
+     * @return PetSliceResponseDto with the pets and the cursor of the next slice
+     * @throws BadRequestException if city is blank, size is out of range or the cursor is malformed
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public PetSliceResponseDto getPetsByCityAfter(String city, String cursor, int size) {
+        LOGGER.info("Retrieving pets by city: {} after cursor {}", city, cursor);
+        if (city == null || city.isBlank()) {
+            throw new BadRequestException("City cannot be empty");
+        }
+        pageSizeLimit.validate(size);
+        PetCursor after = PetCursor.decode(cursor);
+        return toSlice(petRepository.findByCityAfter(city, after.name(), after.id(), PageRequest.ofSize(size + 1)),
+                size);
+    }
+
+    /**
+     * Keyset variant of {@link #getPetsByWomenInCity}: retrieves the slice of pets owned by women in the city
+     * that follows the cursor, sorted by pet name then id. It never counts.
+     *
+     * @param city   The city name to filter pets by (case-insensitive). Null means every city.
+     * @param cursor opaque token returned as nextCursor by the previous slice, null for the first slice
+     * @param size   The number of pets to include per slice. Must be greater than 0 and at most pagination.max-size
+     * @return PetSliceResponseDto with the pets and the cursor of the next slice
+     * @throws BadRequestException if city is empty, size is out of range or the cursor is malformed
+     */
+    @Coalesced(key = "{#city?.toLowerCase(), #cursor, #size}")
+    @Transactional(readOnly = true)
+    public PetSliceResponseDto getPetsByWomenInCityAfter(String city, String cursor, int size) {
+        LOGGER.info("Retreiving Pets by Women in city: {} after cursor {}", city, cursor);
+        if (city != null && city.trim().isEmpty()) {
+            throw new BadRequestException("City cannot be empty");
+        }
+        pageSizeLimit.validate(size);
+        PetCursor after = PetCursor.decode(cursor);
+        if (filterIndex.isUsable()) {
+            return toSlice(getPetsByWomenInCityAfterFromIndex(city, after, size + 1), size);
+        }
+        return toSlice(petRepository.findPetsByWomenOwnersInCityAfter(city, after.name(), after.id(),
+                PageRequest.ofSize(size + 1)), size);
     }
 
     /**
      * /**
      * Updates the details of an existing pet.
-     * This method allows updating the name, age, and type of a pet.
+     * This method allows updating the name, age, and type of a pet: a single UPDATE sets the supplied columns
+     * of the row, if it is active, without loading the pet.
      *
      * @param id            the ID of the pet to be updated
      * @param petRequestDto the DTO containing the new details for the pet
@@ -134,17 +434,12 @@ public class PetService {
     public PetResponseDto updatePet(Long id, PetRequestDto petRequestDto) {
         LOGGER.info("Updating pet with ID: {} with details: {}", id, petRequestDto);
         try {
-            Pet pet = petRepository.findById(id)
-                    .filter(u -> !u.isDeceased())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Active pet not found with id: " + id +
-                                    " (either doesn't exist or is deceased)"));
-            if (petRequestDto.name() != null) pet.setName(petRequestDto.name());
-            if (petRequestDto.age() != null) pet.setAge(petRequestDto.age());
-            if (petRequestDto.type() != null) pet.setType(petRequestDto.type());
-
-            Pet updatedPet = petRepository.save(pet);
-            return mapToPetResponseDto(updatedPet);
+            int updated = petRepository.patchActive(id, petRequestDto.name(), petRequestDto.age(),
+                    petRequestDto.type(), LocalDateTime.now());
+            if (updated == 0) {
+                throw activePetNotFound(id);
+            }
+            return afterTargetedUpdate(id);
         } catch (DataAccessException ex) {
             LOGGER.error("Database error while creating Pet", ex);
             throw ex;
@@ -156,20 +451,20 @@ public class PetService {
 
     /**
      * Marks a pet as deceased.
-     * This method updates the deceased status of a pet to true.
+     * This method updates the deceased status of a pet to true, with a single UPDATE of its row if it is active.
      *
      * @param id the ID of the pet to be marked as deceased
-     * @throws ResourceNotFoundException if the pet with the given ID does not exist
+     * @throws ResourceNotFoundException if the pet with the given ID does not exist or is already deceased
      * @throws BadRequestException       if an unexpected error occurs during the operation
      */
     @Transactional
     public void markPetAsDeceased(Long id) {
         LOGGER.info("Mark pet as deceased for the given pet id {}", id);
         try {
-            Pet pet = petRepository.findById(id)
-                    .orElseThrow(() -> new ResourceNotFoundException("Pet not found with id: " + id));
-            pet.setDeceased(true);
-            petRepository.save(pet);
+            if (petRepository.markDeceased(id, LocalDateTime.now()) == 0) {
+                throw activePetNotFound(id);
+            }
+            afterTargetedUpdate(id);
         } catch (Exception e) {
             LOGGER.error("Unexpected error occurred while marking pet as deceased for pet ID {}: {}", id, e.getMessage(), e);
             throw new BadRequestException("Failed to mark pet as deceased due to an unexpected error.", e);
@@ -178,17 +473,19 @@ public class PetService {
 
     /**
      * Find active pet by petid
+     * Its owners are not loaded: ownership rules are checked against the user_pet rows directly.
      *
      * @param petId to find the active pet
      * @return Pet found result
      * @throws ResourceNotFoundException if no Pet found
      */
     @Transactional(readOnly = true)
-    public Pet findActivePetWithOwners(Long petId, boolean activePetRequired) {
-        LOGGER.info("Retrieve  pets along with address underneath for petId {} based on the active or inactive pets requirements", petId);
+    public Pet findPet(Long petId, boolean activePetRequired) {
+        LOGGER.info("Retrieve pet for petId {} based on the active or inactive pets requirements", petId);
 
         if (activePetRequired) {
-            return petRepository.findActivePetWithOwners(petId)
+            return petRepository.findById(petId)
+                    .filter(pet -> !pet.isDeceased())
                     .orElseThrow(() -> new ResourceNotFoundException(
                             "Active pet not found with id: " + petId +
                                     " (either doesn't exist or is deceased)"));
@@ -200,6 +497,25 @@ public class PetService {
         }
     }
 
+    /**
+     * A targeted update bypasses the entity listeners: reads the pet back with the ids and cities of its owners,
+     * in one statement, to update the filter index and publish the change of their listings.
+     *
+     * @return the updated pet
+     */
+    private PetResponseDto afterTargetedUpdate(Long id) {
+        List<PetOwnerRowDto> rows = petRepository.findRowsWithOwners(id);
+        PetOwnerRowDto pet = rows.getFirst();
+        filterIndex.recordPet(pet.id());
+        eventPublisher.publishEvent(PetListingsChangedEvent.ofOwnerRows(rows));
+        return new PetResponseDto(pet.id(), pet.name(), pet.age(), pet.type(), pet.deceased());
+    }
+
+    private static ResourceNotFoundException activePetNotFound(Long id) {
+        return new ResourceNotFoundException(
+                "Active pet not found with id: " + id + " (either doesn't exist or is deceased)");
+    }
+
     public PetResponseDto mapToPetResponseDto(Pet pet) {
         return new PetResponseDto(
                 pet.getId(),
@@ -210,6 +526,49 @@ public class PetService {
         );
     }
 
+    /**
+     * Builds a slice from a keyset query that was asked for one row more than the slice size
+     *
+     * @param pets rows returned by the keyset query, at most size + 1
+     * @param size requested slice size
+     * @return slice with the cursor of its last pet when more rows exist
+     */
+    private PetSliceResponseDto toSlice(List<PetResponseDto> pets, int size) {
+        boolean hasNext = pets.size() > size;
+        List<PetResponseDto> content = hasNext ? pets.subList(0, size) : pets;
+        String nextCursor = hasNext ? PetCursor.of(content.get(size - 1)).encode() : null;
+        return new PetSliceResponseDto(
+                content,
+                size,
+                hasNext,
+                nextCursor);
+    }
+
+    /**
+     * Page of a count-free slice with an approximate total, kept consistent with the slice: never below the rows
+     * seen, and beyond them as long as the slice says more follow.
+     */
+    private static <T> Page<T> approximatePage(Slice<T> slice, long approximateTotal) {
+        long seen = slice.getPageable().getOffset() + slice.getNumberOfElements();
+        long total = slice.hasNext() ? Math.max(approximateTotal, seen + 1) : seen;
+        if (slice.getNumberOfElements() == 0) {
+            total = Math.min(approximateTotal, slice.getPageable().getOffset());
+        }
+        return new PageImpl<>(slice.getContent(), slice.getPageable(), total);
+    }
+
+    private Pageable slicePageable(int page, int size) {
+        if (page < 0) {
+            throw new BadRequestException("Page must not be negative");
+        }
+        pageSizeLimit.validate(size);
+        return PageRequest.of(page, size, Sort.by("name", "id"));
+    }
+
+    private static PetSliceResponseDto toOffsetSlice(Slice<PetResponseDto> slice) {
+        return new PetSliceResponseDto(slice.getContent(), slice.getSize(), slice.hasNext(), null);
+    }
+
     /**
      * Pet validation for the given input dto
      *
@@ -0,0 +1,212 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.dto.UserImportResponseDto;
+import com.example.petmanagement.dto.UserImportResponseDto.RowError;
+import com.example.petmanagement.dto.UserRequestDto;
+import com.example.petmanagement.exception.BadRequestException;
+import com.example.petmanagement.model.Address;
+import com.example.petmanagement.model.User;
+import com.example.petmanagement.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk creation of users, applying the same rules as {@link UserService#createUser} in a set based way.
+ * The input is streamed and handled in chunks: every chunk resolves its addresses and existing homonyms
+ * with one query each, inserts its users through JDBC batches and runs in its own transaction,
+ * so the persistence context never grows beyond one chunk and a bad row never aborts the import.
+ */
+@Service
+public class UserImportService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserImportService.class);
+
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final AddressService addressService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader userReader;
+    private final int chunkSize;
+
+    public UserImportService(UserRepository userRepository,
+                             UserService userService,
+                             AddressService addressService,
+                             EntityManager entityManager,
+                             TransactionTemplate transactionTemplate,
+                             ObjectMapper objectMapper,
+                             @Value("${user.import.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.addressService = addressService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.userReader = objectMapper.readerFor(UserRequestDto.class);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports users from either a JSON array or a newline delimited JSON stream of {@link UserRequestDto}.
+     * Invalid rows, homonyms of existing users and duplicates within the import are reported per row.
+     * Syntactically broken JSON stops the import, rows read before it are kept.
+     *
+     * @param input request body
+     * @return counts and per-row errors
+     * @throws BadRequestException if the body cannot be read at all
+     */
+    public UserImportResponseDto importUsers(InputStream input) {
+        LOGGER.info("Starting bulk user import with chunks of {}", chunkSize);
+        List<RowError> errors = new ArrayList<>();
+        Set<NameKey> seenNames = new HashSet<>();
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        int received = 0;
+        int imported = 0;
+
+        try (MappingIterator<UserRequestDto> rows = userReader.readValues(input)) {
+            while (true) {
+                int row = received + 1;
+                UserRequestDto dto;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    dto = rows.nextValue();
+                    received = row;
+                } catch (JsonParseException ex) {
+                    errors.add(new RowError(row, "Malformed JSON, import stopped: " + ex.getOriginalMessage()));
+                    received = row;
+                    break;
+                } catch (JsonMappingException ex) {
+                    errors.add(new RowError(row, "Invalid row: " + ex.getOriginalMessage()));
+                    received = row;
+                    continue;
+                }
+                chunk.add(new ImportRow(row, dto));
+                if (chunk.size() == chunkSize) {
+                    imported += importChunk(chunk, seenNames, errors);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException ex) {
+            throw new BadRequestException("Unable to read the import: " + ex.getMessage(), ex);
+        }
+        imported += importChunk(chunk, seenNames, errors);
+
+        LOGGER.info("Bulk user import finished: {} received, {} imported, {} rejected", received, imported, errors.size());
+        return new UserImportResponseDto(received, imported, errors);
+    }
+
+    /**
+     * Validates the rows of a chunk and inserts the valid ones in one transaction.
+     * If that transaction fails, the rows are retried one by one to isolate the failing ones.
+     */
+    private int importChunk(List<ImportRow> chunk, Set<NameKey> seenNames, List<RowError> errors) {
+        List<ValidRow> validRows = new ArrayList<>(chunk.size());
+        for (ImportRow importRow : chunk) {
+            try {
+                UserRequestDto dto = importRow.dto();
+                userService.validateUserRequest(dto);
+                AddressKey address = AddressKey.of(dto.address());
+                NameKey name = new NameKey(dto.name(), dto.firstName());
+                if (!seenNames.add(name)) {
+                    throw new BadRequestException(String.format(
+                            "User %s %s appears more than once in the import", dto.name(), dto.firstName()));
+                }
+                validRows.add(new ValidRow(importRow.row(), dto, name, address));
+            } catch (BadRequestException ex) {
+                errors.add(new RowError(importRow.row(), ex.getMessage()));
+            }
+        }
+        if (validRows.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            return insertInTransaction(validRows, errors);
+        } catch (DataAccessException | PersistenceException ex) {
+            LOGGER.warn("Chunk starting at row {} failed, retrying its rows one by one",
+                    validRows.get(0).row(), ex);
+        }
+        int imported = 0;
+        for (ValidRow validRow : validRows) {
+            try {
+                imported += insertInTransaction(List.of(validRow), errors);
+            } catch (DataAccessException | PersistenceException ex) {
+                errors.add(new RowError(validRow.row(),
+                        "Database error: " + NestedExceptionUtils.getMostSpecificCause(ex).getMessage()));
+            }
+        }
+        return imported;
+    }
+
+    /**
+     * Inserts the rows in one transaction. Row errors are only reported once the transaction committed,
+     * so a retried chunk does not report them twice.
+     */
+    private int insertInTransaction(List<ValidRow> validRows, List<RowError> errors) {
+        List<RowError> chunkErrors = new ArrayList<>();
+        Integer imported = transactionTemplate.execute(status -> insert(validRows, chunkErrors));
+        errors.addAll(chunkErrors);
+        return imported == null ? 0 : imported;
+    }
+
+    private int insert(List<ValidRow> validRows, List<RowError> errors) {
+        Set<NameKey> existingNames = userRepository.findNamePairs(
+                        validRows.stream().map(row -> row.name().name()).collect(Collectors.toSet()),
+                        validRows.stream().map(row -> row.name().firstName()).collect(Collectors.toSet()))
+                .stream()
+                .map(pair -> new NameKey((String) pair[0], (String) pair[1]))
+                .collect(Collectors.toSet());
+        List<ValidRow> newRows = new ArrayList<>(validRows.size());
+        for (ValidRow validRow : validRows) {
+            if (existingNames.contains(validRow.name())) {
+                errors.add(new RowError(validRow.row(), String.format("User %s %s already exists",
+                        validRow.name().name(), validRow.name().firstName())));
+            } else {
+                newRows.add(validRow);
+            }
+        }
+        Map<AddressKey, Address> addresses = addressService.getOrCreateAddresses(
+                newRows.stream().map(ValidRow::address).toList());
+
+        for (ValidRow validRow : newRows) {
+            UserRequestDto dto = validRow.dto();
+            User user = new User();
+            user.setName(dto.name());
+            user.setFirstName(dto.firstName());
+            user.setAddress(addresses.get(validRow.address()));
+            user.setAge(dto.age());
+            user.setGender(dto.gender());
+            entityManager.persist(user);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return newRows.size();
+    }
+
+    private record ImportRow(int row, UserRequestDto dto) {}
+
+    private record NameKey(String name, String firstName) {}
+
+    private record ValidRow(int row, UserRequestDto dto, NameKey name, AddressKey address) {}
+}
@@ -0,0 +1,61 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.dto.AddressDto;
+import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.dto.UserPetRowDto;
+import com.example.petmanagement.dto.UserResponseDto;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Assembles {@link UserResponseDto}s from user rows grouped by user, in a single pass.
+ * A user is complete as soon as a row of another user (or the end) is read, so only one user is held at a time
+ * and the rows may come from a list as well as from a cursor.
+ */
+final class UserRowAssembler implements Iterator<UserResponseDto> {
+
+    private final Iterator<UserPetRowDto> rows;
+    private UserPetRowDto pending;
+
+    UserRowAssembler(Iterator<UserPetRowDto> rows) {
+        this.rows = rows;
+        this.pending = rows.hasNext() ? rows.next() : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return pending != null;
+    }
+
+    @Override
+    public UserResponseDto next() {
+        if (pending == null) {
+            throw new NoSuchElementException();
+        }
+        UserPetRowDto user = pending;
+        Set<PetResponseDto> pets = new LinkedHashSet<>();
+        UserPetRowDto row = user;
+        do {
+            if (row.petId() != null) {
+                pets.add(new PetResponseDto(row.petId(), row.petName(), row.petAge(), row.petType(),
+                        Boolean.TRUE.equals(row.petDeceased())));
+            }
+            row = rows.hasNext() ? rows.next() : null;
+        } while (row != null && row.userId().equals(user.userId()));
+        pending = row;
+
+        return new UserResponseDto(
+                user.userId(),
+                user.name(),
+                user.firstName(),
+                new AddressDto(user.city(), user.addressType(), user.addressName(), user.number()),
+                user.age(),
+                user.gender(),
+                user.deceased(),
+                pets
+        );
+    }
+}
\ No newline at end of file
@@ -1,22 +1,36 @@
 package com.example.petmanagement.service;
 
+import com.example.petmanagement.coalescing.Coalesced;
 import com.example.petmanagement.dto.AddressDto;
 import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.dto.UserPetRowDto;
 import com.example.petmanagement.dto.UserRequestDto;
 import com.example.petmanagement.dto.UserResponseDto;
 import com.example.petmanagement.exception.BadRequestException;
 import com.example.petmanagement.exception.ResourceNotFoundException;
+import com.example.petmanagement.index.FilterIndex;
+import com.example.petmanagement.locking.OptimisticRetry;
+import com.example.petmanagement.locking.PetLocks;
 import com.example.petmanagement.model.Address;
 import com.example.petmanagement.model.Pet;
 import com.example.petmanagement.model.User;
+import com.example.petmanagement.model.UserPet;
+import com.example.petmanagement.model.UserPetId;
+import com.example.petmanagement.repository.UserPetRepository;
 import com.example.petmanagement.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -26,13 +40,20 @@ import java.util.stream.Collectors;
  *The user service contains all business logic of pet management system
  */
 @Service
+@Timed(value = "service.invocations", histogram = true)
 @RequiredArgsConstructor
 public class UserService {
     private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
 
     private final UserRepository userRepository;
+    private final UserPetRepository userPetRepository;
     private final AddressService addressService; // I can create new UserFactory class and check there if address exist there.This to avoid using addressService
     private final PetService petService;
+    private final FilterIndex filterIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PetLocks petLocks;
+    private final OptimisticRetry optimisticRetry;
+    private final TransactionTemplate transactionTemplate;
 
 
     /**
@@ -79,19 +100,20 @@ public class UserService {
 
     /**
      * Mark a User as deceased
-     * This method updates the deceased status of a user to true
+     * This method updates the deceased status of a user to true, with a single UPDATE of its row if it is active
      *
      * @param userId the ID of the user to be marked as deceased
-     * @throws ResourceNotFoundException if the user with the given ID does not exist
+     * @throws ResourceNotFoundException if the user with the given ID does not exist or is already deceased
      * @throws BadRequestException       if an unexpected error occurs during the operation
      */
     @Transactional
     public void markUserAsDeceased(Long userId) {
         LOGGER.info("Mark user as deceased for the given user id {}", userId);
         try {
-            User user = loadActiveUserWithAddress(userId);
-            user.setDeceased(true);
-            userRepository.save(user);
+            if (userRepository.markDeceased(userId, LocalDateTime.now()) == 0) {
+                throw activeUserNotFound(userId);
+            }
+            filterIndex.recordUser(userId);
         } catch (Exception e) {
             LOGGER.error("Unexpected error occurred while marking user as deceased for user ID {}: {}", userId, e.getMessage(), e);
             throw new BadRequestException("Failed to mark user as deceased due to an unexpected error.", e);
@@ -100,6 +122,8 @@ public class UserService {
 
     /**
      * Updates an existing user's information with the provided details.
+     * A single UPDATE sets the supplied columns of the row, if it is active, without loading the user first;
+     * when the address changes, the previous city is read beforehand to refresh the listings of both cities.
      *
      * @param id             the ID of the user to update (must not be null)
      * @param userRequestDto the DTO containing the updated user details (must not be null)
@@ -114,24 +138,24 @@ public class UserService {
     public UserResponseDto updateUser(Long id, UserRequestDto userRequestDto) {
         LOGGER.info("Updating user with ID: {} with details: {}", id, userRequestDto);
         try {
-            /*User user = userRepository.findById(id)
-                    .filter(u -> !u.isDeceased())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Active user not found with id: " + id +
-                                    " (either doesn't exist or is deceased)"));*/
-
-            User user = loadActiveUserWithAddress(id);
-
-            if (userRequestDto.name() != null) user.setName(userRequestDto.name());
-            if (userRequestDto.firstName() != null) user.setFirstName(userRequestDto.firstName());
-            if (userRequestDto.age() != null) user.setAge(userRequestDto.age());
-            if (userRequestDto.gender() != null) user.setGender(userRequestDto.gender());
+            String previousCity = null;
+            Address address = null;
             if (userRequestDto.address() != null) {
-                Address address = addressService.getOrCreateAddress(userRequestDto.address());
-                user.setAddress(address);
+                previousCity = userRepository.findActiveUserCity(id).orElseThrow(() -> activeUserNotFound(id));
+                address = addressService.getOrCreateAddress(userRequestDto.address());
+            }
+            int updated = userRepository.patchActive(id, userRequestDto.name(), userRequestDto.firstName(),
+                    userRequestDto.age(), userRequestDto.gender(), address, LocalDateTime.now());
+            if (updated == 0) {
+                throw activeUserNotFound(id);
             }
 
-            User updatedUser = userRepository.save(user);
+            // The targeted update bypassed the entity listeners, and the response lists the pets
+            User updatedUser = loadActiveUserWithAddressAndPets(id);
+            filterIndex.recordUser(updatedUser.getId());
+            if (address != null && !Objects.equals(previousCity, updatedUser.getAddress().getCity())) {
+                eventPublisher.publishEvent(PetListingsChangedEvent.moved(updatedUser, previousCity));
+            }
             return mapToUserResponse(updatedUser);
         } catch (DataAccessException ex) {
             LOGGER.error("Database error while creating user", ex);
@@ -145,6 +169,14 @@ public class UserService {
     /**
      * Assigns an active pet to an active (non-deceased) user from the same address only.
      * Also check if the pet is not assigned to a different users from different addresses. Other wise execution will be failed
+     * <p>
+     * The assignment is a single user_pet insert: neither the pets of the user nor the owners of the pet are loaded,
+     * the rules are evaluated by one query reading the user_pet rows of the pet, see
+     * {@link UserPetRepository#checkAssignment}.
+     * <p>
+     * Two assignments of the same pet must not both pass the address rule on the same owners: the transaction runs
+     * under the pet's {@link PetLocks lock} on this node, and updates the pet row so that one racing on another node
+     * fails its version check at commit. Such failures are retried on fresh data.
      *
      * @param userId the ID of the user to assign the pet to (must not be null)
      * @param petId  the ID of the pet to assign (must not be null)
@@ -152,24 +184,30 @@ public class UserService {
      * @throws ResourceNotFoundException if: User or Pet doesn't exist or is deceased
      * @throws BadRequestException       if: Either ID is null,Pet is already assigned to user ,Pet is deceased<
      * @throws DataAccessException       if there's a database access problem
+     * @throws org.springframework.dao.ConcurrencyFailureException if the assignment kept losing races
+     * @throws com.example.petmanagement.exception.ServiceUnavailableException if the pet's lock stayed busy
      * @see UserResponseDto
      */
-    @Transactional
     public UserResponseDto assignPetToUser(Long userId, Long petId) {
         LOGGER.info("Assign a pet {} to a user {} ", petId, userId);
-        try {
-            // Validation
-            validateIds(userId, petId);
+        // Validation
+        validateIds(userId, petId);
+        return petLocks.callLocked(petId, () -> optimisticRetry.call(() ->
+                transactionTemplate.execute(status -> assign(userId, petId))));
+    }
 
+    private UserResponseDto assign(Long userId, Long petId) {
+        try {
             // Entity loading
             User user = loadActiveUserWithAddress(userId);
-            Pet pet = loadActivePetWithOwners(petId,true);
+            Pet pet = loadPet(petId, true);
 
             // Business rule validation
             validateAssignmentRules(user, pet);
 
             // Assignment execution
             executeAssignment(user, pet);
+            eventPublisher.publishEvent(PetListingsChangedEvent.of(List.of(user)));
 
             return mapToUserResponse(user);
         } catch (DataAccessException ex) {
@@ -183,60 +221,50 @@ public class UserService {
 
     /**
      * Removes a pet assignment from a user if the relationship exists and irrespective of the pet deceased status
-     * Also checks homonyms user and if a pet is not assigned to a given user then we stop the flow there
+     * Homonym users are told apart by id: the (user, pet) row itself is looked up, so a pet of a homonym is not
+     * assigned to this user and the flow stops there
      * Validates both user and pet exist and are active (not deceased).
      * Verifies the pet is currently assigned to the user
-     * Maintains data integrity by properly clearing bidirectional relationships
+     * Deletes the single user_pet row, the pets of the user are not loaded
+     * <p>
+     * Like an assignment, it runs under the pet's {@link PetLocks lock} and updates the pet row: removals and
+     * assignments of the same pet are serialized, and the version of the pet, hence its listings' ETags, changes.
      *
      * @param userId ID of the user (must not be null)
      * @param petId  ID of the pet to remove (must not be null)
      * @throws BadRequestException       if: Either ID is null , Pet is not currently assigned to the user
      * @throws ResourceNotFoundException if: User doesn't exist or is deceased , Pet doesn't exist or is deceased
      * @throws DataAccessException       if there's a database access problem during the operation
+     * @throws org.springframework.dao.ConcurrencyFailureException if the removal kept losing races
+     * @throws com.example.petmanagement.exception.ServiceUnavailableException if the pet's lock stayed busy
      */
-    @Transactional
     public void removePetFromUser(Long userId, Long petId) {
         LOGGER.info("remove pets{} under a user{} ", petId, userId);
-        try {
-            // Validate inputs
-            Objects.requireNonNull(userId, "User ID cannot be null");
-            Objects.requireNonNull(petId, "Pet ID cannot be null");
+        // Validate inputs
+        Objects.requireNonNull(userId, "User ID cannot be null");
+        Objects.requireNonNull(petId, "Pet ID cannot be null");
+        petLocks.callLocked(petId, () -> optimisticRetry.call(() ->
+                transactionTemplate.execute(status -> {
+                    remove(userId, petId);
+                    return null;
+                })));
+    }
 
+    private void remove(Long userId, Long petId) {
+        try {
             User user = loadActiveUserWithAddress(userId);
-            Pet pet = loadActivePetWithOwners(petId,false);
-
-            // Check for homonyms
-            List<User> homonymsUsers = userRepository.homonymExists(
-                    user.getName(), user.getFirstName());
-
-            if (homonymsUsers.size() > 1) {
-                // For homonyms, verify pet is assigned to THIS specific user
-                if (!pet.getOwners().contains(user)) {
-                    throw new BadRequestException(
-                            String.format("Ambiguous removal: Pet %s is not assigned to user %s "
-                                            + "(found %d users with same name)",
-                                    petId, userId, homonymsUsers.size()));
-                }
-
-                // Additional verification - address must match
-                boolean addressMatch = pet.getOwners().stream()
-                        .anyMatch(owner -> owner.getAddress().equals(user.getAddress()));
-
-                if (!addressMatch) {
-                    throw new BadRequestException(
-                            String.format("Address mismatch for pet removal: "
-                                    + "User %s address doesn't match pet's owners", userId));
-                }
-            }
-
-            // Check if pet is assigned to user
-            if (!user.getPets().contains(pet)) {
-                throw new BadRequestException(
-                        String.format("Pet %s is not assigned to user %s", petId, userId));
-            }
-
-            user.getPets().remove(pet);
-            userRepository.save(user);
+            Pet pet = loadPet(petId, false);
+
+            // Check if pet is assigned to this user, not to one of its homonyms
+            UserPet ownership = userPetRepository.findById(new UserPetId(userId, petId))
+                    .orElseThrow(() -> new BadRequestException(
+                            String.format("Pet %s is not assigned to user %s", petId, userId)));
+
+            ownership.detach();
+            userPetRepository.delete(ownership);
+            // Updates the pet row: its version check fails a change of the same pet racing on another node
+            pet.setLastUpdateTime(LocalDateTime.now());
+            eventPublisher.publishEvent(PetListingsChangedEvent.of(List.of(user)));
         } catch (DataAccessException ex) {
             LOGGER.error("Database error while removing Pet {} from User {} ", petId, userId, ex);
             throw ex;
@@ -245,25 +273,42 @@ public class UserService {
 
     /**
      * Retrieves active users of active pets by given city
+     * When the filter index is usable, it resolves the matching user ids first: none means no query, and up to
+     * {@link FilterIndex#MAX_IN_LIST} only their rows are read, by primary key. More users are read by the
+     * filtering join, which reads that many rows faster than as many primary key lookups.
      * @param petType :dog,cat etc
      * @param city give city
      * @return list of users
      */
+    @Coalesced
     @Transactional(readOnly = true)
     public List<UserResponseDto> getUsersByPetTypeAndCity(String petType, String city) {
-        return userRepository.findUserByPetTypeAndCity(petType, city)
-                .stream()
-                .map(this::mapToUserResponse)
-                .toList();
+        List<UserResponseDto> users = new ArrayList<>();
+        List<UserPetRowDto> rows = null;
+        if (filterIndex.isUsable()) {
+            RoaringBitmap ids = filterIndex.aliveUsersOwningAlivePet(petType, city);
+            if (ids.isEmpty()) {
+                return users;
+            }
+            if (ids.getCardinality() <= FilterIndex.MAX_IN_LIST) {
+                rows = userRepository.findUserRowsByIds(FilterIndex.toList(ids), petType, city);
+            }
+        }
+        if (rows == null) {
+            rows = userRepository.findUserByPetTypeAndCity(petType, city);
+        }
+        new UserRowAssembler(rows.iterator()).forEachRemaining(users::add);
+        return users;
     }
 
     /**
      * Maps user data fetched from table to UserResponseDto so that it can be passed on to the client
+     * Package-private for the mapping benchmarks.
      *
      * @param user contains user details
      * @return UserResponseDto generated userresponse
      */
-    private UserResponseDto mapToUserResponse(User user) {
+    UserResponseDto mapToUserResponse(User user) {
         Set<PetResponseDto> petResponses = user.getPets().stream()
                 .map(petService::mapToPetResponseDto)
                 .collect(Collectors.toSet());
@@ -285,7 +330,13 @@ public class UserService {
         );
     }
 
-    private void validateUserRequest(UserRequestDto dto) {
+    /**
+     * Validates the user fields sent by the client. Shared with the bulk import.
+     *
+     * @param dto given dto that contains user details sent from client
+     * @throws BadRequestException if name, age or gender is invalid
+     */
+    void validateUserRequest(UserRequestDto dto) {
 
         if (dto.name() == null || dto.name().trim().isEmpty()) {
             throw new BadRequestException("User name is required");
@@ -308,41 +359,41 @@ public class UserService {
 
     private User loadActiveUserWithAddress(Long userId) {
         return userRepository.findActiveUserWithAddress(userId)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "Active user not found with id: " + userId +
-                                " (either doesn't exist or is deceased)"));
+                .orElseThrow(() -> activeUserNotFound(userId));
+    }
+
+    private User loadActiveUserWithAddressAndPets(Long userId) {
+        return userRepository.findActiveUserWithAddressAndPets(userId)
+                .orElseThrow(() -> activeUserNotFound(userId));
     }
 
-    private Pet loadActivePetWithOwners(Long petId, boolean activePetRequired) {
-        return petService.findActivePetWithOwners(petId, activePetRequired);
+    private ResourceNotFoundException activeUserNotFound(Long userId) {
+        return new ResourceNotFoundException(
+                "Active user not found with id: " + userId +
+                        " (either doesn't exist or is deceased)");
+    }
+
+    private Pet loadPet(Long petId, boolean activePetRequired) {
+        return petService.findPet(petId, activePetRequired);
     }
 
     private void validateAssignmentRules(User user, Pet pet) {
-        if (isAlreadyAssigned(user, pet)) {
-            throw new BadRequestException(
+        switch (userPetRepository.checkAssignment(user.getId(), user.getAddress().getId(), pet.getId())) {
+            case ALREADY_ASSIGNED -> throw new BadRequestException(
                     String.format("Pet %s already assigned to user %s",
                             pet.getId(), user.getId()));
-        }
-
-        if (hasExistingOwnersWithDifferentAddress(user, pet)) {
-            throw new BadRequestException(
+            case OWNED_ELSEWHERE -> throw new BadRequestException(
                     "Cannot assign pet - address doesn't match existing owners");
+            case ASSIGNABLE -> {
+            }
         }
     }
 
-    private boolean isAlreadyAssigned(User user, Pet pet) {
-        return user.getPets().contains(pet);
-    }
-
-    private boolean hasExistingOwnersWithDifferentAddress(User user, Pet pet) {
-        return !pet.getOwners().isEmpty() &&
-                pet.getOwners().stream()
-                        .noneMatch(owner -> owner.getAddress().equals(user.getAddress()));
-    }
-
     private void executeAssignment(User user, Pet pet) {
-        user.addPet(pet);
-        userRepository.save(user);
+        // Flushed right away, so that the pets of the response are read with it
+        userPetRepository.saveAndFlush(new UserPet(user, pet));
+        // Updates the pet row: its version check fails an assignment of the same pet racing on another node
+        pet.setLastUpdateTime(LocalDateTime.now());
         logAssignment(user, pet);
     }
 
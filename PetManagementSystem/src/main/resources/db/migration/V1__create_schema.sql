@@ -0,0 +1,56 @@
+-- Schema as Hibernate created it with ddl-auto=update; later versions change it, never this file
+CREATE SEQUENCE address_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE pet_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE user_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE address (
+    id BIGINT NOT NULL,
+    city VARCHAR(255) NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    address_name VARCHAR(255) NOT NULL,
+    number VARCHAR(255) NOT NULL,
+    created_by VARCHAR(255),
+    created_time TIMESTAMP(6),
+    last_updated_by VARCHAR(255),
+    last_update_time TIMESTAMP(6),
+    CONSTRAINT pk_address PRIMARY KEY (id),
+    CONSTRAINT uk_address UNIQUE (city, type, address_name, number)
+);
+
+CREATE TABLE pet (
+    id BIGINT NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    age INTEGER NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    deceased BOOLEAN DEFAULT FALSE NOT NULL,
+    created_by VARCHAR(255),
+    created_time TIMESTAMP(6),
+    last_updated_by VARCHAR(255),
+    last_update_time TIMESTAMP(6),
+    CONSTRAINT pk_pet PRIMARY KEY (id)
+);
+
+CREATE TABLE "user" (
+    id BIGINT NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    first_name VARCHAR(255) NOT NULL,
+    address_id BIGINT NOT NULL,
+    age INTEGER NOT NULL,
+    gender VARCHAR(255) NOT NULL,
+    deceased BOOLEAN DEFAULT FALSE NOT NULL,
+    created_by VARCHAR(255),
+    created_time TIMESTAMP(6),
+    last_updated_by VARCHAR(255),
+    last_update_time TIMESTAMP(6),
+    CONSTRAINT pk_user PRIMARY KEY (id),
+    CONSTRAINT uk_user_name UNIQUE (name, first_name),
+    CONSTRAINT fk_user_address FOREIGN KEY (address_id) REFERENCES address (id)
+);
+
+CREATE TABLE user_pet (
+    pet_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    CONSTRAINT pk_user_pet PRIMARY KEY (pet_id, user_id),
+    CONSTRAINT fk_user_pet_pet FOREIGN KEY (pet_id) REFERENCES pet (id),
+    CONSTRAINT fk_user_pet_user FOREIGN KEY (user_id) REFERENCES "user" (id)
+);
@@ -0,0 +1,20 @@
+-- One index per access path of the repository queries.
+
+-- Case-insensitive city searches (pets of women in a city) compare the lower-case city, computed by the database
+-- so that every writer, JPA or SQL, keeps it in sync
+ALTER TABLE address ADD COLUMN city_lower VARCHAR(255) GENERATED ALWAYS AS (LOWER(city));
+CREATE INDEX idx_address_city_lower ON address (city_lower);
+-- Exact city searches use uk_address, whose first column is city
+
+-- From an address to its users, filtered on gender and deceased without reading the rows
+CREATE INDEX idx_user_address ON "user" (address_id, gender, deceased);
+-- Women owners in every city (no city given)
+CREATE INDEX idx_user_gender ON "user" (gender, deceased);
+
+-- The primary key covers pet -> owners, this covers user -> pets
+CREATE INDEX idx_user_pet_user ON user_pet (user_id, pet_id);
+
+-- Active pets in page order (name, id): listings and keyset slices read the index in order and stop at the page size
+CREATE INDEX idx_pet_active_name ON pet (deceased, name, id);
+-- Users owning an active pet of a type
+CREATE INDEX idx_pet_type ON pet (type, deceased);
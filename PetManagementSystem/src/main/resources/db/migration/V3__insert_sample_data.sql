@@ -0,0 +1,35 @@
+-- Sample data, formerly data.sql
+-- Sample addresses
+INSERT INTO address (id, city, type, address_name, number,created_by, created_time, last_updated_by, last_update_time) VALUES
+(1, 'Paris', 'road', 'Antoine Lavoisier', '10','admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP),
+(2, 'London', 'street', 'Baker', '221B','admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP),
+(3, 'New York', 'avenue', '5th', '100','admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP),
+(4, 'London', 'ABC', '5th', '500','admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP),
+(5, 'London', 'XYZ', '10th', '600','admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP);
+
+-- Sample users
+INSERT INTO "user" (id, name, first_name, address_id, age, gender, deceased,created_by, created_time, last_updated_by, last_update_time) VALUES
+(1, 'Vasani', 'Samir', 1, 30, 'MALE', false,'admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP),
+(2, 'Vasani', 'Ekta', 1, 25, 'FEMALE', false,'admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP),
+(3, 'Modi', 'Narendra', 2, 60, 'MALE', false,'admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP),
+(4, 'Trump', 'Donald', 3, 50, 'MALE', false,'admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP),
+(5, 'Kohli', 'Virat', 4, 50, 'MALE', false,'admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP),
+(6, 'Lisa', 'Fernades',5, 20, 'FEMALE', false,'admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP);
+
+-- Sample pets
+INSERT INTO pet (id, name, age, type, deceased,created_by, created_time, last_updated_by, last_update_time) VALUES
+(1, 'Fido', 3, 'dog', false,'admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP),
+(2, 'Whiskers', 2, 'cat', false,'admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP),
+(3, 'Slither', 1, 'snake', false,'admin', CURRENT_TIMESTAMP, 'admin', CURRENT_TIMESTAMP);
+
+-- Sample ownerships
+INSERT INTO user_pet (user_id, pet_id) VALUES
+(1, 1),
+(2, 1),
+(3, 2),
+(4, 3);
+
+-- Ids above are explicit, so move the pooled sequences past them
+ALTER SEQUENCE address_seq RESTART WITH 100;
+ALTER SEQUENCE user_seq RESTART WITH 100;
+ALTER SEQUENCE pet_seq RESTART WITH 100;
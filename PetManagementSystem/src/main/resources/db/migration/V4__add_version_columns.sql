@@ -0,0 +1,5 @@
+-- Optimistic locking version of every entity (Auditable.version). Rows inserted without it, by SQL, start at 0.
+-- The pet versions are also what the ETags of the pet listings are computed from.
+ALTER TABLE address ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE pet ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE "user" ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
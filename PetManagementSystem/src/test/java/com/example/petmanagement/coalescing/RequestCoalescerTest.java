@@ -0,0 +1,174 @@
+package com.example.petmanagement.coalescing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class RequestCoalescerTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final RequestCoalescer coalescer = new RequestCoalescer(provider(registry), true, 5000);
+    private final Listings target = new Listings();
+    private final Listings listings = proxy(target);
+
+    @AfterEach
+    void releaseFirstCall() {
+        target.release.countDown();
+    }
+
+    @Test
+    void coalesce_IdenticalConcurrentCalls_ShareOneExecution() throws Exception {
+        FutureTask<List<String>> first = start(() -> listings.pets("London"));
+        target.entered.await(5, TimeUnit.SECONDS);
+        FutureTask<List<String>> second = startWaiting(() -> listings.pets("LONDON"));
+
+        target.release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, target.calls.get());
+        assertEquals(1, count("executed"));
+        assertEquals(1, count("joined"));
+    }
+
+    @Test
+    void coalesce_SequentialCalls_RunEachTime() throws Exception {
+        target.release.countDown();
+
+        List<String> first = listings.pets("London");
+
+        assertNotSame(first, listings.pets("London"));
+        assertEquals(2, count("executed"));
+    }
+
+    @Test
+    void coalesce_OtherKey_RunsOnItsOwn() throws Exception {
+        FutureTask<List<String>> first = start(() -> listings.pets("London"));
+        target.entered.await(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("Paris"), listings.pets("Paris"));
+
+        target.release.countDown();
+        assertEquals(List.of("London"), first.get(5, TimeUnit.SECONDS));
+        assertEquals(2, target.calls.get());
+    }
+
+    @Test
+    void coalesce_WriteCommittedMeanwhile_DoesNotJoinTheEarlierExecution() throws Exception {
+        FutureTask<List<String>> first = start(() -> listings.pets("London"));
+        target.entered.await(5, TimeUnit.SECONDS);
+
+        coalescer.afterCommit(mock(TransactionExecution.class), null);
+
+        assertEquals(List.of("London"), listings.pets("London"));
+        assertEquals(2, target.calls.get());
+        target.release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void coalesce_ExecutionTooSlow_RunsItsOwnAfterTheTimeout() throws Exception {
+        FutureTask<List<String>> first = start(() -> listings.slowPets("London"));
+        target.entered.await(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("London"), listings.slowPets("London"));
+
+        assertEquals(2, target.calls.get());
+        assertEquals(1, count("timed_out"));
+        target.release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void coalesce_InsideATransaction_RunsOnItsOwn() throws Exception {
+        target.release.countDown();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            listings.pets("Paris");
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        assertEquals(1, count("bypassed"));
+    }
+
+    private double count(String result) {
+        return registry.counter(RequestCoalescer.METRIC_NAME, "class", Listings.class.getName(),
+                "method", result.equals("timed_out") ? "slowPets" : "pets", "result", result).count();
+    }
+
+    private static ObjectProvider<MeterRegistry> provider(MeterRegistry registry) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", registry);
+        return beanFactory.getBeanProvider(MeterRegistry.class);
+    }
+
+    private Listings proxy(Listings listings) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(listings);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(coalescer);
+        return factory.getProxy();
+    }
+
+    private static <T> FutureTask<T> start(Callable<T> call) {
+        FutureTask<T> task = new FutureTask<>(call);
+        Thread.ofPlatform().daemon().start(task);
+        return task;
+    }
+
+    /**
+     * Starts the call and returns once it is blocked, waiting for the execution it joined.
+     */
+    private static <T> FutureTask<T> startWaiting(Callable<T> call) throws InterruptedException {
+        FutureTask<T> task = new FutureTask<>(call);
+        Thread thread = Thread.ofPlatform().daemon().start(task);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        return task;
+    }
+
+    /**
+     * Its first call blocks until released, the next ones return right away.
+     */
+    static class Listings {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Coalesced(key = "#city.toLowerCase()")
+        public List<String> pets(String city) throws InterruptedException {
+            return call(city);
+        }
+
+        @Coalesced(timeoutMs = 50)
+        public List<String> slowPets(String city) throws InterruptedException {
+            return call(city);
+        }
+
+        private List<String> call(String city) throws InterruptedException {
+            if (calls.incrementAndGet() == 1) {
+                entered.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return new ArrayList<>(List.of(city));
+        }
+    }
+}
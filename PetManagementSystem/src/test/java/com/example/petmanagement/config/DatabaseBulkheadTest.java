@@ -0,0 +1,72 @@
+package com.example.petmanagement.config;
+
+import com.example.petmanagement.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class DatabaseBulkheadTest {
+
+    // Two requests in progress in all, one per endpoint
+    private final DatabaseBulkhead bulkhead = new DatabaseBulkhead(mock(DataSource.class), 2, 0.5, 10);
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    void preHandle_EndpointAtCapacity_RejectsUntilARequestCompletes() throws Exception {
+        HandlerMethod endpoint = endpoint("toString");
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        MockHttpServletRequest second = new MockHttpServletRequest();
+
+        assertTrue(bulkhead.preHandle(first, response, endpoint));
+        assertThrows(ServiceUnavailableException.class, () -> bulkhead.preHandle(second, response, endpoint));
+
+        bulkhead.afterCompletion(first, response, endpoint, null);
+        assertTrue(bulkhead.preHandle(second, response, endpoint));
+    }
+
+    @Test
+    void preHandle_OtherEndpoint_HasItsOwnPermits() throws Exception {
+        assertTrue(bulkhead.preHandle(new MockHttpServletRequest(), response, endpoint("toString")));
+
+        assertTrue(bulkhead.preHandle(new MockHttpServletRequest(), response, endpoint("hashCode")));
+    }
+
+    @Test
+    void preHandle_AllPermitsInUse_RejectsOtherEndpointsUntilARequestCompletes() throws Exception {
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        assertTrue(bulkhead.preHandle(first, response, endpoint("toString")));
+        assertTrue(bulkhead.preHandle(new MockHttpServletRequest(), response, endpoint("hashCode")));
+
+        HandlerMethod third = endpoint("getClass");
+        assertThrows(ServiceUnavailableException.class,
+                () -> bulkhead.preHandle(new MockHttpServletRequest(), response, third));
+
+        // The rejected request gave its endpoint permit back
+        bulkhead.afterCompletion(first, response, endpoint("toString"), null);
+        assertTrue(bulkhead.preHandle(new MockHttpServletRequest(), response, third));
+    }
+
+    @Test
+    void afterCompletion_RejectedRequest_ReleasesNothing() throws Exception {
+        HandlerMethod endpoint = endpoint("toString");
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        MockHttpServletRequest rejected = new MockHttpServletRequest();
+        bulkhead.preHandle(first, response, endpoint);
+        assertThrows(ServiceUnavailableException.class, () -> bulkhead.preHandle(rejected, response, endpoint));
+
+        bulkhead.afterCompletion(rejected, response, endpoint, null);
+
+        assertThrows(ServiceUnavailableException.class,
+                () -> bulkhead.preHandle(new MockHttpServletRequest(), response, endpoint));
+    }
+
+    private static HandlerMethod endpoint(String method) throws NoSuchMethodException {
+        return new HandlerMethod(new Object(), Object.class.getMethod(method));
+    }
+}
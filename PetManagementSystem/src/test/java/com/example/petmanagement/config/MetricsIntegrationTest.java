@@ -0,0 +1,58 @@
+package com.example.petmanagement.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Reads the sample data only. Keeps the pooled data source: a replaced test database would have no pool metrics.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@DirtiesContext
+class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void prometheus_AfterRequests_ExportsEveryLayer() throws Exception {
+        mockMvc.perform(get("/api/pets/by-city").param("city", "Paris")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/pets/{userId}/pets", 1)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "http_server_requests_seconds_bucket{error=\"none\",exception=\"none\",method=\"GET\","
+                                + "outcome=\"SUCCESS\",status=\"200\",uri=\"/api/pets/by-city\"")))
+                .andExpect(content().string(matchesPattern(
+                        "(?s).*service_invocations_seconds_count\\{class=\"[\\w.]+PetService\",exception=\"none\","
+                                + "method=\"getPetsByCityWithETag\"} 1\n.*")))
+                .andExpect(content().string(matchesPattern(
+                        "(?s).*spring_data_repository_invocations_seconds_bucket\\{[^}]*method=\"findVersionRowsByCity\","
+                                + "repository=\"PetRepository\".*")))
+                .andExpect(content().string(containsString(
+                        "repository_rows_count{method=\"findVersionRowsByOwnerId\",repository=\"PetRepository\"} 1\n")))
+                .andExpect(content().string(containsString(
+                        "repository_rows_sum{method=\"findVersionRowsByOwnerId\",repository=\"PetRepository\"} 1.0")))
+                .andExpect(content().string(matchesPattern(
+                        "(?s).*coalescing_calls_total\\{class=\"[\\w.]+PetService\",method=\"getPetsByCityWithETag\","
+                                + "result=\"executed\"} 1.0\n.*")))
+                .andExpect(content().string(containsString("hikaricp_connections_acquire_seconds_bucket")))
+                .andExpect(content().string(containsString("hikaricp_connections_usage_seconds_bucket")))
+                .andExpect(content().string(containsString("hibernate_entities_loads_total")))
+                .andExpect(content().string(containsString("hibernate_collections_fetches_total")))
+                .andExpect(content().string(containsString("hibernate_second_level_cache_requests_total")));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.petmanagement.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PinningMonitorTest {
+
+    private final Object lock = new Object();
+
+    @Test
+    void report_VirtualThreadBlockingInSynchronized_IsCountedAtItsFrame() throws Exception {
+        PinningMonitor monitor = new PinningMonitor(10);
+        monitor.start();
+        try {
+            Thread.ofVirtual().start(this::sleepHoldingMonitor).join();
+
+            Map<String, PinningMonitor.Pinning> report = monitor.report();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (report.isEmpty() && System.currentTimeMillis() < deadline) {
+                // events reach the stream when the recording is flushed, about once a second
+                Thread.sleep(100);
+                report = monitor.report();
+            }
+
+            assertEquals(1, report.size());
+            Map.Entry<String, PinningMonitor.Pinning> pinning = report.entrySet().iterator().next();
+            assertTrue(pinning.getKey().startsWith("Other: " + PinningMonitorTest.class.getName()), pinning.getKey());
+            assertEquals(1, pinning.getValue().count());
+            assertTrue(pinning.getValue().total().toMillis() >= 40, pinning.getValue().toString());
+        } finally {
+            monitor.stop();
+        }
+    }
+
+    private void sleepHoldingMonitor() {
+        synchronized (lock) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
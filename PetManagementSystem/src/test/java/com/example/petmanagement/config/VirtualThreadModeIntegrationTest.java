@@ -0,0 +1,38 @@
+package com.example.petmanagement.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.threads.virtual.enabled=true")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@DirtiesContext
+class VirtualThreadModeIntegrationTest {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void virtualThreadMode_InstallsBulkheadAndPinningMonitor() throws Exception {
+        assertNotNull(context.getBean(DatabaseBulkhead.class));
+        assertNotNull(context.getBean(PinningMonitor.class));
+
+        mockMvc.perform(get("/api/pets/{userId}/pets", 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Fido"));
+    }
+}
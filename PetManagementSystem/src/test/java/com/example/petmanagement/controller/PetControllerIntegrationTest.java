@@ -4,8 +4,10 @@ import com.example.petmanagement.dto.PetRequestDto;
 import com.example.petmanagement.model.Address;
 import com.example.petmanagement.model.Pet;
 import com.example.petmanagement.model.User;
+import com.example.petmanagement.model.UserPet;
 import com.example.petmanagement.repository.AddressRepository;
 import com.example.petmanagement.repository.PetRepository;
+import com.example.petmanagement.repository.UserPetRepository;
 import com.example.petmanagement.repository.UserRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,6 +16,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
@@ -44,6 +47,9 @@ class PetControllerIntegrationTest {
     @Autowired
     private AddressRepository addressRepository;
 
+    @Autowired
+    private UserPetRepository userPetRepository;
+
     private Pet testPet;
 
     @BeforeEach
@@ -86,6 +92,48 @@ class PetControllerIntegrationTest {
                 .andExpect(jsonPath("$.content", hasSize(greaterThanOrEqualTo(0))));
     }
 
+    @Test
+    void scrollPetsByCity_ValidCity_ReturnsSlice() throws Exception {
+        mockMvc.perform(get("/api/pets/by-city/scroll")
+                        .param("city", "London")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(greaterThanOrEqualTo(0))))
+                .andExpect(jsonPath("$.hasNext", is(false)));
+    }
+
+    @Test
+    void scrollPetsByCity_SizeAboveMaximum_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/pets/by-city/scroll")
+                        .param("city", "London")
+                        .param("size", String.valueOf(Integer.MAX_VALUE)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getPetsByCitySlice_ValidCity_ReturnsSliceWithoutTotal() throws Exception {
+        // The sample data has one pet in London, Whiskers
+        mockMvc.perform(get("/api/pets/by-city/slice")
+                        .param("city", "London")
+                        .param("page", "0")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].name", is("Whiskers")))
+                .andExpect(jsonPath("$.hasNext", is(false)))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void exportPetsByCity_ValidCity_StreamsOnePetPerLine() throws Exception {
+        mockMvc.perform(get("/api/pets/by-city/export")
+                        .param("city", "Paris"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(jsonPath("$.name", is("Fido")))
+                .andExpect(content().string(endsWith("\n")));
+    }
+
     @Test
     void updatePet_ValidRequest_ReturnsUpdatedPet() throws Exception {
         PetRequestDto request = new PetRequestDto("UpdatedPet", 4, "dog");
@@ -107,17 +155,46 @@ class PetControllerIntegrationTest {
     void getUserPets_ValidUserId_ReturnsPets() throws Exception {
         Address address = createAddress("Paris");
         User user = createUser("Owner", "Test", address, "MALE");
-        Pet pet = createPet("TestPet", "dog", user);
+        Pet pet = createPet("TestPet", "dog");
         addressRepository.save(address);
         user = userRepository.save(user);
-        pet.getOwners().add(user);
-        petRepository.save(pet);
+        pet = petRepository.save(pet);
+        userPetRepository.save(new UserPet(user, pet));
 
         mockMvc.perform(get("/api/pets/{userId}/pets", user.getId()))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(1)));
     }
 
+    @Test
+    void getUserPets_MatchingIfNoneMatch_ReturnsNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/api/pets/{userId}/pets", 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/pets/{userId}/pets", 1L).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getPetsByCity_PetUpdated_ChangesTheETag() throws Exception {
+        String eTag = mockMvc.perform(get("/api/pets/by-city").param("city", "Paris"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(patch("/api/pets/{id}", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PetRequestDto("Rex", 5, "dog"))))
+                .andExpect(status().isAccepted());
+
+        mockMvc.perform(get("/api/pets/by-city").param("city", "Paris").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andExpect(jsonPath("$.content[0].name", is("Rex")));
+    }
+
     // Helper methods
     private Address createAddress(String city) {
         Address address = new Address();
@@ -139,14 +216,12 @@ class PetControllerIntegrationTest {
         return user;
     }
 
-    private Pet createPet(String name, String type, User owner) {
+    private Pet createPet(String name, String type) {
         Pet pet = new Pet();
         pet.setName(name);
         pet.setAge(1);
         pet.setType(type);
         pet.setDeceased(false);
-        pet.getOwners().add(owner);
-        owner.getPets().add(pet); // Maintain bidirectional relationship
         return pet;
     }
 
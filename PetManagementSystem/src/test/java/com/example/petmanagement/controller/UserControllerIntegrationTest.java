@@ -1,9 +1,13 @@
 package com.example.petmanagement.controller;
 
 import com.example.petmanagement.dto.AddressDto;
+import com.example.petmanagement.dto.BulkDeceaseResponseDto;
 import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.dto.UserImportResponseDto;
 import com.example.petmanagement.dto.UserRequestDto;
 import com.example.petmanagement.dto.UserResponseDto;
+import com.example.petmanagement.service.BulkDeceaseService;
+import com.example.petmanagement.service.UserImportService;
 import com.example.petmanagement.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -15,7 +19,9 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.InputStream;
 import java.util.Collections;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -41,6 +47,12 @@ class UserControllerIntegrationTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserImportService userImportService;
+
+    @MockBean
+    private BulkDeceaseService bulkDeceaseService;
+
     @Test
     void createUser_ValidRequest_ReturnsCreated() throws Exception {
         UserRequestDto request = new UserRequestDto(
@@ -73,6 +85,18 @@ class UserControllerIntegrationTest {
     }
 
 
+    @Test
+    void importUsers_NdjsonBody_ReturnsSummary() throws Exception {
+        when(userImportService.importUsers(any(InputStream.class)))
+                .thenReturn(new UserImportResponseDto(2, 2, List.of()));
+
+        mockMvc.perform(post("/api/users/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\":\"Doe\"}\n{\"name\":\"Roe\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(2)));
+    }
+
     @Test
     void updateUser_ValidRequest_ReturnsUpdatedUser() throws Exception {
         UserRequestDto request = new UserRequestDto(
@@ -131,6 +155,18 @@ class UserControllerIntegrationTest {
         verify(userService).markUserAsDeceased(1L);
     }
 
+    @Test
+    void markUsersAsDeceased_IdList_ReturnsTheCount() throws Exception {
+        when(bulkDeceaseService.markUsersAsDeceased(List.of(1L, 2L))).thenReturn(new BulkDeceaseResponseDto(2, 1));
+
+        mockMvc.perform(put("/api/users/deceased")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deceased", is(2)))
+                .andExpect(jsonPath("$.chunks", is(1)));
+    }
+
     @Test
     void getUsersByPetTypeAndCity_ValidParams_ReturnsUsers() throws Exception {
         UserResponseDto user = new UserResponseDto(
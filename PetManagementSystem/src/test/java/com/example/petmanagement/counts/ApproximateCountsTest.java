@@ -0,0 +1,51 @@
+package com.example.petmanagement.counts;
+
+import com.example.petmanagement.repository.PetRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ApproximateCountsTest {
+
+    @Mock
+    private PetRepository petRepository;
+
+    @Test
+    void petsByCity_BeforeTheFirstRefresh_IsEmpty() {
+        ApproximateCounts counts = new ApproximateCounts(petRepository, true, 60_000);
+
+        assertEquals(OptionalLong.empty(), counts.petsByCity("Paris"));
+        assertEquals(OptionalLong.empty(), counts.petsOfWomen(null));
+    }
+
+    @Test
+    void refresh_CountsEveryCityAtOnce() {
+        when(petRepository.countActiveByCity())
+                .thenReturn(List.of(new Object[]{"Paris", 3L}, new Object[]{"London", 2L}));
+        when(petRepository.countActiveOfWomenByCity())
+                .thenReturn(List.of(new Object[]{"paris", 1L}, new Object[]{"london", 2L}));
+        // One pet has female owners in both cities
+        when(petRepository.countActiveOfWomen()).thenReturn(2L);
+        ApproximateCounts counts = new ApproximateCounts(petRepository, true, 60_000);
+
+        counts.refresh();
+
+        assertEquals(OptionalLong.of(3), counts.petsByCity("Paris"));
+        assertEquals(OptionalLong.of(0), counts.petsByCity("Lyon"));
+        assertEquals(OptionalLong.of(2), counts.petsOfWomen("LONDON"));
+        assertEquals(OptionalLong.of(2), counts.petsOfWomen(null));
+    }
+
+    @Test
+    void constructor_NonPositivePeriod_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new ApproximateCounts(petRepository, true, 0));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.petmanagement.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitmapsTest {
+
+    private final Bitmaps bitmaps = new Bitmaps();
+
+    @BeforeEach
+    void setUp() {
+        bitmaps.putAddress(1, "Paris");
+        bitmaps.putAddress(2, "London");
+        bitmaps.putPet(10, "Rex", "dog", false);
+        bitmaps.putPet(11, "Felix", "cat", false);
+        // Pet 10 is co-owned by a man and a woman of Paris
+        bitmaps.putUser(1, 1, "MALE", false);
+        bitmaps.putUser(2, 1, "FEMALE", false);
+        bitmaps.putOwnership(1, 10, true);
+        bitmaps.putOwnership(2, 10, true);
+        bitmaps.putOwnership(2, 11, true);
+    }
+
+    @Test
+    void alivePetsOfWomen_CoOwnedPet_StaysWhileAWomanOwnsIt() {
+        assertEquals(RoaringBitmap.bitmapOf(10, 11), bitmaps.alivePetsOfWomen("paris"));
+
+        bitmaps.putOwnership(2, 10, false);
+
+        assertEquals(RoaringBitmap.bitmapOf(11), bitmaps.alivePetsOfWomen("PARIS"));
+        assertEquals(RoaringBitmap.bitmapOf(11), bitmaps.alivePetsOfWomen(null));
+    }
+
+    @Test
+    void aliveUsersOwningAlivePet_DeceasedPetsAndUsers_AreLeftOut() {
+        assertEquals(RoaringBitmap.bitmapOf(1, 2), bitmaps.aliveUsersOwningAlivePet("dog", "Paris"));
+
+        bitmaps.putPet(10, "Rex", "dog", true);
+        assertTrue(bitmaps.aliveUsersOwningAlivePet("dog", "Paris").isEmpty());
+        assertEquals(RoaringBitmap.bitmapOf(11), bitmaps.alivePetsOfWomen("Paris"));
+
+        bitmaps.putUser(2, 1, "FEMALE", true);
+        assertTrue(bitmaps.aliveUsersOwningAlivePet("cat", "Paris").isEmpty());
+    }
+
+    @Test
+    void putPet_Deceased_KeepsItsOtherValues() {
+        bitmaps.putPet(10, "Rex", "dog", true);
+        bitmaps.putUser(1, 1, "MALE", true);
+
+        assertTrue(bitmaps.aliveUsersOwningAlivePet("dog", "Paris").isEmpty());
+        assertEquals(RoaringBitmap.bitmapOf(2), bitmaps.aliveUsersOwningAlivePet("cat", "Paris"));
+        assertEquals(RoaringBitmap.bitmapOf(11), bitmaps.alivePetsOfWomen("Paris"));
+        assertEquals(List.of(10L), bitmaps.pageByName(RoaringBitmap.bitmapOf(10), 0, 1));
+    }
+
+    @Test
+    void putOwnership_NewOwner_ListsThePetForItsCityAndType() {
+        bitmaps.putUser(3, 2, "FEMALE", false);
+        bitmaps.putOwnership(3, 11, true);
+
+        assertEquals(RoaringBitmap.bitmapOf(11), bitmaps.alivePetsOfWomen("london"));
+        assertEquals(RoaringBitmap.bitmapOf(3), bitmaps.aliveUsersOwningAlivePet("cat", "London"));
+    }
+
+    @Test
+    void putAddress_CityChange_MovesUsersAndTheirPets() {
+        bitmaps.putAddress(1, "London");
+
+        assertTrue(bitmaps.alivePetsOfWomen("Paris").isEmpty());
+        assertEquals(RoaringBitmap.bitmapOf(10, 11), bitmaps.alivePetsOfWomen("london"));
+        assertEquals(RoaringBitmap.bitmapOf(1, 2), bitmaps.aliveUsersOwningAlivePet("dog", "London"));
+    }
+
+    @Test
+    void pageByName_SameNames_AreOrderedById() {
+        bitmaps.putPet(12, "Felix", "cat", false);
+        bitmaps.putPet(3, "Rex", "dog", false);
+        RoaringBitmap pets = RoaringBitmap.bitmapOf(3, 10, 11, 12);
+
+        assertEquals(List.of(11L, 12L, 3L), bitmaps.pageByName(pets, 0, 3));
+        assertEquals(List.of(3L, 10L), bitmaps.pageByName(pets, 2, 3));
+        assertEquals(List.of(), bitmaps.pageByName(pets, 4, 3));
+    }
+
+    @Test
+    void pageByNameAfter_SameNames_ResumeAfterTheId() {
+        bitmaps.putPet(12, "Felix", "cat", false);
+        bitmaps.putPet(3, "Rex", "dog", false);
+        RoaringBitmap pets = RoaringBitmap.bitmapOf(3, 10, 11, 12);
+
+        assertEquals(List.of(11L, 12L), bitmaps.pageByNameAfter(pets, "", 0, 2));
+        assertEquals(List.of(12L, 3L, 10L), bitmaps.pageByNameAfter(pets, "Felix", 11, 3));
+        assertEquals(List.of(), bitmaps.pageByNameAfter(pets, "Rex", 10, 3));
+    }
+
+    @Test
+    void removeUser_LastWomanOwner_RemovesHerPets() {
+        bitmaps.removeUser(2);
+
+        assertTrue(bitmaps.alivePetsOfWomen(null).isEmpty());
+        assertEquals(RoaringBitmap.bitmapOf(1), bitmaps.aliveUsersOwningAlivePet("dog", "Paris"));
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.petmanagement.index;
+
+import com.example.petmanagement.dto.AddressDto;
+import com.example.petmanagement.dto.PetRequestDto;
+import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.dto.PetSliceResponseDto;
+import com.example.petmanagement.dto.UserPetRowDto;
+import com.example.petmanagement.dto.UserRequestDto;
+import com.example.petmanagement.dto.UserResponseDto;
+import com.example.petmanagement.repository.PetRepository;
+import com.example.petmanagement.repository.UserRepository;
+import com.example.petmanagement.service.PetService;
+import com.example.petmanagement.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against its own embedded database, dropped afterwards, because its changes are committed.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext
+class FilterIndexIntegrationTest {
+
+    @Autowired
+    private FilterIndex filterIndex;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void bitmaps_SampleData_MatchTheRepositoryQueries() {
+        for (String city : new String[]{"Paris", "London", "New York", "Nowhere"}) {
+            for (String type : new String[]{"dog", "cat", "snake"}) {
+                assertEquals(userIdsFromDatabase(type, city), ids(filterIndex.aliveUsersOwningAlivePet(type, city)),
+                        type + " owners in " + city);
+            }
+            assertEquals(petIdsFromDatabase(city), ids(filterIndex.alivePetsOfWomen(city)), "pets of women in " + city);
+        }
+        assertEquals(petIdsFromDatabase(null), ids(filterIndex.alivePetsOfWomen(null)));
+    }
+
+    @Test
+    void listings_CommittedChanges_AreIndexed() {
+        AddressDto address = new AddressDto("Indexville", "street", "Roaring", "1");
+        UserResponseDto woman = userService.createUser(new UserRequestDto("Index", "Ada", address, 30, "FEMALE"));
+        PetResponseDto dog = petService.createPet(new PetRequestDto("Bitmap", 2, "dog"));
+
+        userService.assignPetToUser(woman.id(), dog.id());
+
+        assertEquals(List.of(dog.id()), ids(filterIndex.alivePetsOfWomen("indexville")));
+        assertEquals(List.of(dog.id()), petService.getPetsByWomenInCity("INDEXVILLE", 0, 10).map(PetResponseDto::id).toList());
+        assertEquals(List.of(woman.id()), userIds(userService.getUsersByPetTypeAndCity("dog", "Indexville")));
+
+        petService.updatePet(dog.id(), new PetRequestDto(null, null, "cat"));
+        assertEquals(List.of(woman.id()), ids(filterIndex.aliveUsersOwningAlivePet("cat", "Indexville")));
+        assertTrue(userService.getUsersByPetTypeAndCity("dog", "Indexville").isEmpty());
+        assertEquals(List.of(woman.id()), userIds(userService.getUsersByPetTypeAndCity("cat", "Indexville")));
+
+        userService.removePetFromUser(woman.id(), dog.id());
+        assertTrue(filterIndex.alivePetsOfWomen("Indexville").isEmpty());
+        assertTrue(petService.getPetsByWomenInCity("Indexville", 0, 10).isEmpty());
+        assertTrue(userService.getUsersByPetTypeAndCity("cat", "Indexville").isEmpty());
+    }
+
+    @Test
+    void getPetsByWomenInCity_SortedInMemory_MatchesTheDatabasePages() {
+        UserResponseDto woman = userService.createUser(new UserRequestDto("Sorted", "Ada",
+                new AddressDto("Sortville", "street", "Order", "1"), 30, "FEMALE"));
+        for (String name : new String[]{"Rex", "Abby", "Rex", "Milo", "Abby", "Zed", "Rex"}) {
+            userService.assignPetToUser(woman.id(), petService.createPet(new PetRequestDto(name, 1, "dog")).id());
+        }
+
+        for (int page = 0; page < 4; page++) {
+            Pageable pageable = PageRequest.of(page, 2, Sort.by("name", "id"));
+            Page<PetResponseDto> expected = petRepository.findPetsByWomenOwnersInCity("Sortville", pageable);
+
+            Page<PetResponseDto> actual = petService.getPetsByWomenInCity("Sortville", page, 2);
+
+            assertEquals(7, actual.getTotalElements());
+            assertEquals(expected.getContent(), actual.getContent(), "page " + page);
+        }
+        assertScrollMatchesTheDatabase("Sortville", 4);
+    }
+
+    @Test
+    void listings_RolledBackChanges_AreNotIndexed() {
+        AddressDto address = new AddressDto("Rollbackville", "street", "Undo", "1");
+        UserResponseDto woman = userService.createUser(new UserRequestDto("Rollback", "Grace", address, 30, "FEMALE"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            PetResponseDto pet = petService.createPet(new PetRequestDto("Ghost", 1, "dog"));
+            userService.assignPetToUser(woman.id(), pet.id());
+            status.setRollbackOnly();
+        });
+
+        assertTrue(filterIndex.alivePetsOfWomen("Rollbackville").isEmpty());
+        assertTrue(petService.getPetsByWomenInCity("Rollbackville", 0, 10).isEmpty());
+    }
+
+    @Test
+    void recordPet_AppliedAfterALaterWrite_IndexesTheCommittedRow() {
+        UserResponseDto woman = userService.createUser(new UserRequestDto("Late", "Ada",
+                new AddressDto("Lateville", "street", "Order", "1"), 30, "FEMALE"));
+        PetResponseDto pet = petService.createPet(new PetRequestDto("Tardy", 1, "dog"));
+        userService.assignPetToUser(woman.id(), pet.id());
+
+        // A later transaction changed the row; an earlier one recording the same pet is applied after it
+        jdbcTemplate.update("UPDATE pet SET type = 'cat' WHERE id = ?", pet.id());
+        filterIndex.recordPet(pet.id());
+        filterIndex.recordPet(pet.id());
+
+        assertTrue(filterIndex.aliveUsersOwningAlivePet("dog", "Lateville").isEmpty());
+        assertEquals(List.of(woman.id()), ids(filterIndex.aliveUsersOwningAlivePet("cat", "Lateville")));
+    }
+
+    @Test
+    void recordPet_IdOutOfIndexRange_TurnsTheIndexOffWithoutFailingTheWrite() {
+        assertDoesNotThrow(() -> transactionTemplate.executeWithoutResult(
+                status -> filterIndex.recordPet(Long.MAX_VALUE)));
+
+        assertEquals(Boolean.FALSE, readOnly().execute(status -> filterIndex.isUsable()));
+        filterIndex.rebuild();
+        assertEquals(Boolean.TRUE, readOnly().execute(status -> filterIndex.isUsable()));
+    }
+
+    @Test
+    void getPetsByWomenInCity_TooManyIdsToSortInMemory_MatchesTheDatabasePages() {
+        // Above the 100 000 alive pets PetService orders in memory, pages are read in name order from the database
+        int pets = 120_000;
+        jdbcTemplate.update("INSERT INTO address (id, city, type, address_name, number) "
+                + "VALUES (5000, 'Scancity', 'street', 'Scan', '1')");
+        jdbcTemplate.update("INSERT INTO \"user\" (id, name, first_name, address_id, age, gender, deceased) "
+                + "VALUES (5000, 'Scan', 'Owner', 5000, 40, 'FEMALE', false)");
+        // Names repeat, so pages are ordered by id within a name; every tenth pet is deceased
+        jdbcTemplate.update("INSERT INTO pet (id, name, age, type, deceased) "
+                + "SELECT 5000 + X, CONCAT('Pet', MOD(X, 7)), 1, 'dog', MOD(X, 10) = 0 FROM SYSTEM_RANGE(1, " + pets + ")");
+        jdbcTemplate.update("INSERT INTO user_pet (user_id, pet_id) "
+                + "SELECT 5000, 5000 + X FROM SYSTEM_RANGE(1, " + pets + ")");
+        filterIndex.rebuild();
+        assertEquals(pets - pets / 10, filterIndex.alivePetsOfWomen("Scancity").getCardinality());
+        assertEquals(Boolean.TRUE, readOnly().execute(status -> filterIndex.isUsable()));
+        assertFalse(filterIndex.isUsable(), "outside of a read only transaction");
+
+        for (int page : new int[]{0, 7, 10_799, 10_800}) {
+            Pageable pageable = PageRequest.of(page, 10, Sort.by("name", "id"));
+            Page<PetResponseDto> expected = petRepository.findPetsByWomenOwnersInCity("Scancity", pageable);
+
+            Page<PetResponseDto> actual = petService.getPetsByWomenInCity("Scancity", page, 10);
+
+            assertEquals(expected.getTotalElements(), actual.getTotalElements());
+            assertEquals(expected.getContent(), actual.getContent(), "page " + page);
+        }
+        assertScrollMatchesTheDatabase("Scancity", 3);
+    }
+
+    /**
+     * Scrolls through the pets of women in the city with the index, and checks every slice against the keyset query.
+     */
+    private void assertScrollMatchesTheDatabase(String city, int slices) {
+        String cursor = null;
+        String afterName = "";
+        long afterId = 0;
+        for (int slice = 0; slice < slices; slice++) {
+            List<PetResponseDto> expected = petRepository.findPetsByWomenOwnersInCityAfter(
+                    city, afterName, afterId, PageRequest.ofSize(2));
+
+            PetSliceResponseDto actual = petService.getPetsByWomenInCityAfter(city, cursor, 2);
+
+            assertEquals(expected, actual.content(), "slice " + slice);
+            if (!actual.hasNext()) {
+                return;
+            }
+            cursor = actual.nextCursor();
+            afterName = expected.get(1).name();
+            afterId = expected.get(1).id();
+        }
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly;
+    }
+
+    private List<Long> userIdsFromDatabase(String type, String city) {
+        return userRepository.findUserByPetTypeAndCity(type, city).stream()
+                .map(UserPetRowDto::userId)
+                .distinct()
+                .toList();
+    }
+
+    private List<Long> petIdsFromDatabase(String city) {
+        return petRepository.findPetsByWomenOwnersInCity(city, PageRequest.of(0, 10_000, Sort.by("id"))).stream()
+                .map(PetResponseDto::id)
+                .toList();
+    }
+
+    private static List<Long> ids(RoaringBitmap bitmap) {
+        return bitmap.stream().mapToObj(id -> (long) id).toList();
+    }
+
+    private static List<Long> userIds(List<UserResponseDto> users) {
+        return users.stream().map(UserResponseDto::id).toList();
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.petmanagement.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Users and pets created through the API before a run, and the state the operations share during it.
+ * Every user lives at the same address of the run's city, so any of their pets can be assigned to any of them.
+ * The first {@code users} pets are assigned one per user, the other pets feed {@link Operation#assignPet}.
+ */
+final class Fixtures {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Pair of ids to assign or remove.
+     */
+    record Assignment(long userId, long petId) {
+    }
+
+    private final HttpClient client;
+    private final LoadTestConfig config;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong nameCounter = new AtomicLong();
+
+    private final List<Long> users = new ArrayList<>();
+    private final List<Long> pets = new ArrayList<>();
+    private final Queue<Long> usersToDecease = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> petsToDecease = new ConcurrentLinkedQueue<>();
+    private final AtomicLong assignments = new AtomicLong();
+    private final Queue<Assignment> assigned = new ConcurrentLinkedQueue<>();
+
+    private Fixtures(HttpClient client, LoadTestConfig config) {
+        this.client = client;
+        this.config = config;
+    }
+
+    /**
+     * Creates the users and pets of the run, plus the ones the deceased operations will consume.
+     *
+     * @throws IllegalStateException if the application rejects a fixture
+     */
+    static Fixtures create(HttpClient client, LoadTestConfig config) throws IOException, InterruptedException {
+        Fixtures fixtures = new Fixtures(client, config);
+        for (int i = 0; i < config.users(); i++) {
+            fixtures.users.add(fixtures.createId(fixtures.post("/api/users", fixtures.newUserJson())));
+        }
+        for (int i = 0; i < config.pets(); i++) {
+            fixtures.pets.add(fixtures.createId(fixtures.post("/api/pets", fixtures.newPetJson())));
+        }
+        for (int i = 0; i < config.users(); i++) {
+            fixtures.send(fixtures.post("/api/users/" + fixtures.users.get(i) + "/pets/" + fixtures.pets.get(i), null));
+        }
+        for (long i = config.expectedCount(Operation.markUserDeceased); i > 0; i--) {
+            fixtures.usersToDecease.add(fixtures.createId(fixtures.post("/api/users", fixtures.newUserJson())));
+        }
+        for (long i = config.expectedCount(Operation.markPetDeceased); i > 0; i--) {
+            fixtures.petsToDecease.add(fixtures.createId(fixtures.post("/api/pets", fixtures.newPetJson())));
+        }
+        return fixtures;
+    }
+
+    HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(config.baseUrl().resolve(path)).timeout(REQUEST_TIMEOUT);
+    }
+
+    HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    /**
+     * @param json body, null for none
+     */
+    HttpRequest post(String path, String json) {
+        return json == null
+                ? request(path).POST(HttpRequest.BodyPublishers.noBody()).build()
+                : request(path).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json)).build();
+    }
+
+    /**
+     * @return a user with a name never used before, living at the run's address
+     */
+    String newUserJson() {
+        long n = nameCounter.incrementAndGet();
+        return "{\"name\":\"Load" + runId + "\",\"firstName\":\"User" + n + "\",\"age\":30,"
+                + "\"gender\":\"" + (n % 2 == 0 ? "FEMALE" : "MALE") + "\","
+                + "\"address\":{\"city\":\"" + config.city() + "\",\"type\":\"street\","
+                + "\"addressName\":\"Load\",\"number\":\"1\"}}";
+    }
+
+    String newPetJson() {
+        long n = nameCounter.incrementAndGet();
+        return "{\"name\":\"Pet" + n + "\",\"age\":2,\"type\":\"" + (n % 2 == 0 ? "dog" : "cat") + "\"}";
+    }
+
+    String encodedCity() {
+        return URLEncoder.encode(config.city(), StandardCharsets.UTF_8);
+    }
+
+    int random(int bound) {
+        return ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    long randomUser() {
+        return users.get(random(users.size()));
+    }
+
+    long randomPet() {
+        return pets.get(random(pets.size()));
+    }
+
+    Long nextUserToDecease() {
+        return usersToDecease.poll();
+    }
+
+    Long nextPetToDecease() {
+        return petsToDecease.poll();
+    }
+
+    /**
+     * Enumerates (user, free pet) pairs so that no pair is assigned twice.
+     *
+     * @return next pair, null once every pair was used
+     */
+    Assignment nextAssignment() {
+        int owners = users.size();
+        int freePets = pets.size() - owners;
+        long k = assignments.getAndIncrement();
+        if (k >= (long) owners * freePets) {
+            return null;
+        }
+        return new Assignment(users.get((int) (k % owners)), pets.get(owners + (int) (k / owners % freePets)));
+    }
+
+    void assigned(Assignment assignment) {
+        assigned.add(assignment);
+    }
+
+    /**
+     * @return a pair assigned during the run, null if none is left
+     */
+    Assignment nextRemoval() {
+        return assigned.poll();
+    }
+
+    private long createId(HttpRequest request) throws IOException, InterruptedException {
+        return objectMapper.readTree(send(request)).get("id").asLong();
+    }
+
+    private String send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException("Fixture request " + request.method() + " " + request.uri()
+                    + " failed with " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.petmanagement.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms of a run, per operation.
+ * The response time of a request is measured from the time the open loop scheduler intended to send it, not from
+ * the time it was actually sent: when the application stalls, requests queue up behind it and their waiting is part
+ * of their latency. This is the coordinated omission correction; the service time (from actual send) is kept too,
+ * and the gap between both shows how much of the latency was spent queueing.
+ */
+final class LatencyReport {
+
+    private static final long HIGHEST_TRACKABLE = TimeUnit.MINUTES.toNanos(5);
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * Percentiles checked against the baseline, by property suffix.
+     */
+    private static final Map<String, Double> PERCENTILES = Map.of("p50", 50.0, "p99", 99.0, "p999", 99.9);
+
+    private static final class Stats {
+        private final Histogram responseTime = new ConcurrentHistogram(HIGHEST_TRACKABLE, 3);
+        private final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_TRACKABLE, 3);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+    }
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    LatencyReport(Collection<Operation> operations) {
+        operations.forEach(operation -> stats.put(operation, new Stats()));
+    }
+
+    /**
+     * @param responseNanos time from the intended send time to the end of the response
+     * @param serviceNanos  time from the actual send time to the end of the response
+     * @param success       whether the response status was 2xx
+     */
+    void record(Operation operation, long responseNanos, long serviceNanos, boolean success) {
+        Stats operationStats = stats.get(operation);
+        operationStats.responseTime.recordValue(Math.min(responseNanos, HIGHEST_TRACKABLE));
+        operationStats.serviceTime.recordValue(Math.min(serviceNanos, HIGHEST_TRACKABLE));
+        if (!success) {
+            operationStats.errors.increment();
+        }
+    }
+
+    void recordSkipped(Operation operation) {
+        stats.get(operation).skipped.increment();
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-24s %8s %7s %7s %10s %10s %10s %10s %12s%n",
+                "operation", "count", "errors", "skipped", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms");
+        stats.forEach((operation, operationStats) -> print(out, operation.name(), operationStats.responseTime,
+                operationStats.serviceTime, operationStats.errors.sum(), operationStats.skipped.sum()));
+        long skipped = stats.values().stream().mapToLong(operationStats -> operationStats.skipped.sum()).sum();
+        print(out, "all", total(true), total(false), errors(), skipped);
+    }
+
+    /**
+     * Writes the full response time distribution of every operation as HdrHistogram percentile files (ms).
+     */
+    void writeDistributions(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            try (PrintStream out = new PrintStream(
+                    Files.newOutputStream(directory.resolve(entry.getKey().name() + ".hgrm")))) {
+                entry.getValue().responseTime.outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+    }
+
+    /**
+     * Compares the response times with the baseline. Keys are {@code <operation>.p50}, {@code .p99},
+     * {@code .p999} and {@code .max} in milliseconds, {@code all.*} for every operation together, and
+     * {@code max-error-rate} as a fraction of the requests.
+     *
+     * @return one message per exceeded limit, empty when the run is within the baseline
+     */
+    List<String> check(Properties baseline) {
+        List<String> violations = new ArrayList<>();
+        stats.forEach((operation, operationStats) ->
+                check(baseline, operation.name(), operationStats.responseTime, violations));
+        check(baseline, "all", total(true), violations);
+
+        String maxErrorRate = baseline.getProperty("max-error-rate");
+        long count = total(true).getTotalCount();
+        if (maxErrorRate != null && count > 0) {
+            double errorRate = (double) errors() / count;
+            if (errorRate > Double.parseDouble(maxErrorRate)) {
+                violations.add(String.format("error rate %.4f exceeds %s", errorRate, maxErrorRate));
+            }
+        }
+        return violations;
+    }
+
+    private void check(Properties baseline, String name, Histogram histogram, List<String> violations) {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        PERCENTILES.forEach((suffix, percentile) ->
+                check(baseline, name + "." + suffix, histogram.getValueAtPercentile(percentile), violations));
+        check(baseline, name + ".max", histogram.getMaxValue(), violations);
+    }
+
+    private void check(Properties baseline, String key, long actualNanos, List<String> violations) {
+        String limit = baseline.getProperty(key);
+        if (limit != null && actualNanos / NANOS_PER_MILLI > Double.parseDouble(limit)) {
+            violations.add(String.format("%s is %.2f ms, baseline %s ms", key, actualNanos / NANOS_PER_MILLI, limit));
+        }
+    }
+
+    private Histogram total(boolean responseTime) {
+        Histogram total = new Histogram(HIGHEST_TRACKABLE, 3);
+        stats.values().forEach(operationStats ->
+                total.add(responseTime ? operationStats.responseTime : operationStats.serviceTime));
+        return total;
+    }
+
+    private long errors() {
+        return stats.values().stream().mapToLong(operationStats -> operationStats.errors.sum()).sum();
+    }
+
+    private static void print(PrintStream out, String name, Histogram responseTime, Histogram serviceTime,
+                              long errors, long skipped) {
+        out.printf("%-24s %8d %7d %7d %10.2f %10.2f %10.2f %10.2f %12.2f%n",
+                name,
+                responseTime.getTotalCount(),
+                errors,
+                skipped,
+                responseTime.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                responseTime.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                responseTime.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                responseTime.getMaxValue() / NANOS_PER_MILLI,
+                serviceTime.getValueAtPercentile(99) / NANOS_PER_MILLI);
+    }
+}
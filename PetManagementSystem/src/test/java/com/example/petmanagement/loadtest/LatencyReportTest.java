@@ -0,0 +1,74 @@
+package com.example.petmanagement.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyReportTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void check_WithinBaseline_ReturnsNoViolation() {
+        LatencyReport report = new LatencyReport(List.of(Operation.petsByCity));
+        for (int i = 0; i < 1000; i++) {
+            report.record(Operation.petsByCity, 5 * MS, 5 * MS, true);
+        }
+
+        assertEquals(List.of(), report.check(baseline("petsByCity.p99", "10", "max-error-rate", "0.01")));
+    }
+
+    @Test
+    void check_QueuedResponses_CountTheirWaitAgainstTheBaseline() {
+        LatencyReport report = new LatencyReport(List.of(Operation.petsByCity));
+        for (int i = 0; i < 1000; i++) {
+            // Served in 5 ms, but 2% of them waited 100 ms behind a stall before being sent
+            report.record(Operation.petsByCity, (i % 50 == 0 ? 105 : 5) * MS, 5 * MS, true);
+        }
+
+        List<String> violations = report.check(baseline("petsByCity.p99", "10", "all.p50", "10"));
+
+        assertEquals(1, violations.size());
+        assertTrue(violations.get(0).startsWith("petsByCity.p99"));
+    }
+
+    @Test
+    void check_ErrorRateAboveBaseline_ReturnsViolation() {
+        LatencyReport report = new LatencyReport(List.of(Operation.assignPet, Operation.petsOfUser));
+        for (int i = 0; i < 100; i++) {
+            report.record(Operation.assignPet, MS, MS, i >= 5);
+            report.record(Operation.petsOfUser, MS, MS, true);
+        }
+
+        List<String> violations = report.check(baseline("max-error-rate", "0.01"));
+
+        assertEquals(List.of("error rate 0.0250 exceeds 0.01"), violations);
+    }
+
+    @Test
+    void operationPicker_FollowsTheWeights() {
+        LoadTest.OperationPicker picker = new LoadTest.OperationPicker(
+                LoadTestConfig.parseMix("petsByCity:80,assignPet:20"), new Random(42));
+        int assignments = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (picker.next() == Operation.assignPet) {
+                assignments++;
+            }
+        }
+
+        assertEquals(2000, assignments, 200);
+    }
+
+    private static Properties baseline(String... keysAndValues) {
+        Properties baseline = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            baseline.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return baseline;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.petmanagement.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open loop HTTP load generator for a running application.
+ * Requests are started at a fixed rate whatever the response times, with a mix of operations picked at random by
+ * weight, and at most {@code concurrency} of them in flight. Latencies are reported per operation by
+ * {@link LatencyReport}, and the run fails when a baseline is given and exceeded.
+ * <p>
+ * Start the application, then e.g.:
+ * {@code mvn -Ploadtest -DskipTests verify -Dloadtest.args="--rate=200 --duration=60
+ * --baseline=src/test/resources/loadtest-baseline.properties"}
+ * See {@link LoadTestConfig} for every option.
+ */
+public final class LoadTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTest.class);
+
+    private final LoadTestConfig config;
+
+    LoadTest(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> violations = new LoadTest(LoadTestConfig.parse(args)).run();
+        if (!violations.isEmpty()) {
+            throw new IllegalStateException("Latency baseline exceeded:\n  " + String.join("\n  ", violations));
+        }
+    }
+
+    /**
+     * @return exceeded baseline limits, empty when within the baseline or without baseline
+     */
+    List<String> run() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        LOGGER.info("Creating {} users and {} pets in {} on {}", config.users(), config.pets(), config.city(),
+                config.baseUrl());
+        Fixtures fixtures = Fixtures.create(client, config);
+        LatencyReport report = new LatencyReport(config.mix().keySet());
+        OperationPicker picker = new OperationPicker(config.mix(), new Random(config.seed()));
+        ExecutorService workers = Executors.newFixedThreadPool(config.concurrency());
+
+        LOGGER.info("Sending {} requests/s for {}s of warmup and {}s recorded, at most {} in flight",
+                config.rate(), config.warmup().toSeconds(), config.duration().toSeconds(), config.concurrency());
+        long start = System.nanoTime();
+        long recordFrom = start + config.warmup().toNanos();
+        long end = recordFrom + config.duration().toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + i * TimeUnit.SECONDS.toNanos(1) / config.rate();
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = picker.next();
+            boolean recorded = intended >= recordFrom;
+            workers.execute(() -> send(client, fixtures, report, operation, intended, recorded));
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(5, TimeUnit.MINUTES)) {
+            workers.shutdownNow();
+        }
+
+        report.print(System.out);
+        report.writeDistributions(config.output());
+        LOGGER.info("Percentile distributions written to {}", config.output().toAbsolutePath());
+        if (config.baseline() == null) {
+            return List.of();
+        }
+        Properties baseline = new Properties();
+        try (InputStream in = Files.newInputStream(config.baseline())) {
+            baseline.load(in);
+        }
+        return report.check(baseline);
+    }
+
+    private void send(HttpClient client, Fixtures fixtures, LatencyReport report, Operation operation,
+                      long intended, boolean recorded) {
+        Operation.Call call = operation.call(fixtures);
+        if (call == null) {
+            if (recorded) {
+                report.recordSkipped(operation);
+            }
+            return;
+        }
+        long sent = System.nanoTime();
+        boolean success;
+        try {
+            HttpResponse<Void> response = client.send(call.request(), HttpResponse.BodyHandlers.discarding());
+            success = response.statusCode() < 300;
+            if (success) {
+                call.onSuccess().run();
+            }
+        } catch (IOException ex) {
+            LOGGER.debug("{} failed", operation, ex);
+            success = false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            success = false;
+        }
+        long done = System.nanoTime();
+        if (recorded) {
+            report.record(operation, done - intended, done - sent, success);
+        }
+    }
+
+    /**
+     * Weighted random choice of the next operation.
+     */
+    static final class OperationPicker {
+        private final Operation[] operations;
+        private final int[] cumulativeWeights;
+        private final Random random;
+
+        OperationPicker(Map<Operation, Integer> mix, Random random) {
+            this.operations = mix.keySet().toArray(Operation[]::new);
+            this.cumulativeWeights = new int[operations.length];
+            int total = 0;
+            for (int i = 0; i < operations.length; i++) {
+                total += mix.get(operations[i]);
+                cumulativeWeights[i] = total;
+            }
+            this.random = random;
+        }
+
+        Operation next() {
+            int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int i = 0;
+            while (cumulativeWeights[i] <= draw) {
+                i++;
+            }
+            return operations[i];
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.petmanagement.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Options of a load test run, read from {@code --name=value} arguments.
+ *
+ * @param baseUrl     root url of the running application
+ * @param rate        requests started per second, whatever the response times (open loop)
+ * @param warmup      time during which requests are sent but not recorded
+ * @param duration    recorded time, after the warmup
+ * @param concurrency maximum number of requests in flight, the others wait (and their wait is recorded)
+ * @param mix         relative weight of every operation, operations left out are not sent
+ * @param baseline    properties file with the latency limits, null to only report
+ * @param output      directory receiving the percentile distribution of every operation
+ * @param city        city of the users and pets created for the run
+ * @param users       number of users created for the run
+ * @param pets        number of pets created for the run
+ * @param seed        seed of the operation picker, so that runs send the same sequence
+ */
+record LoadTestConfig(URI baseUrl,
+                      int rate,
+                      Duration warmup,
+                      Duration duration,
+                      int concurrency,
+                      Map<Operation, Integer> mix,
+                      Path baseline,
+                      Path output,
+                      String city,
+                      int users,
+                      int pets,
+                      long seed) {
+
+    /**
+     * 80% reads spread over the listings, 20% pet assignments.
+     */
+    static final String DEFAULT_MIX = "petsByCity:20,petsByWomenInCity:15,scrollPetsByCity:10,"
+            + "scrollPetsByWomenInCity:10,usersByPetAndCity:15,petsOfUser:10,assignPet:20";
+
+    static LoadTestConfig parse(String... args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.isBlank()) {
+                continue;
+            }
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        LoadTestConfig config = new LoadTestConfig(
+                URI.create(options.getOrDefault("url", "http://localhost:8080")),
+                Integer.parseInt(options.getOrDefault("rate", "50")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10"))),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60"))),
+                Integer.parseInt(options.getOrDefault("concurrency", "32")),
+                parseMix(options.getOrDefault("mix", DEFAULT_MIX)),
+                options.containsKey("baseline") ? Path.of(options.get("baseline")) : null,
+                Path.of(options.getOrDefault("out", "target/loadtest")),
+                options.getOrDefault("city", "Loadcity"),
+                Integer.parseInt(options.getOrDefault("users", "50")),
+                Integer.parseInt(options.getOrDefault("pets", "200")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+        if (config.rate <= 0 || config.concurrency <= 0) {
+            throw new IllegalArgumentException("rate and concurrency must be positive");
+        }
+        if (config.pets <= config.users) {
+            throw new IllegalArgumentException("pets must exceed users, the first pet of every user is preassigned");
+        }
+        return config;
+    }
+
+    /**
+     * @param mix comma separated operation:weight pairs, e.g. {@code petsByCity:80,assignPet:20}
+     * @return weights by operation, in the given order
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight but got " + entry);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight for " + pair[0]);
+            }
+            if (weight > 0) {
+                weights.put(Operation.valueOf(pair[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no operation");
+        }
+        return weights;
+    }
+
+    /**
+     * @return expected number of requests of the operation during the whole run, warmup included
+     */
+    long expectedCount(Operation operation) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        long seconds = warmup.toSeconds() + duration.toSeconds();
+        return (long) Math.ceil((double) rate * seconds * mix.getOrDefault(operation, 0) / total);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.petmanagement.loadtest;
+
+import java.net.http.HttpRequest;
+
+/**
+ * Every endpoint of PetController and UserController, as requests built against the run's fixtures.
+ * An operation returns null when it has nothing left to act on (e.g. no assigned pet to remove); it is counted
+ * as skipped.
+ */
+enum Operation {
+
+    // ===== UserController ===== //
+
+    createUser {
+        @Override
+        Call call(Fixtures fixtures) {
+            return Call.of(fixtures.post("/api/users", fixtures.newUserJson()));
+        }
+    },
+    importUsers {
+        @Override
+        Call call(Fixtures fixtures) {
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < 10; i++) {
+                body.append(fixtures.newUserJson()).append('\n');
+            }
+            return Call.of(fixtures.request("/api/users/bulk")
+                    .header("Content-Type", "application/x-ndjson")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build());
+        }
+    },
+    updateUser {
+        @Override
+        Call call(Fixtures fixtures) {
+            return Call.of(fixtures.request("/api/users/" + fixtures.randomUser())
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString("{\"age\":" + (20 + fixtures.random(50)) + "}"))
+                    .build());
+        }
+    },
+    markUserDeceased {
+        @Override
+        Call call(Fixtures fixtures) {
+            Long user = fixtures.nextUserToDecease();
+            return user == null ? null : Call.of(fixtures.request("/api/users/" + user + "/deceased")
+                    .PUT(HttpRequest.BodyPublishers.noBody())
+                    .build());
+        }
+    },
+    assignPet {
+        @Override
+        Call call(Fixtures fixtures) {
+            Fixtures.Assignment assignment = fixtures.nextAssignment();
+            return assignment == null ? null : new Call(
+                    fixtures.post("/api/users/" + assignment.userId() + "/pets/" + assignment.petId(), null),
+                    () -> fixtures.assigned(assignment));
+        }
+    },
+    removePet {
+        @Override
+        Call call(Fixtures fixtures) {
+            Fixtures.Assignment assignment = fixtures.nextRemoval();
+            return assignment == null ? null : Call.of(
+                    fixtures.request("/api/users/" + assignment.userId() + "/pets/" + assignment.petId())
+                            .DELETE()
+                            .build());
+        }
+    },
+    usersByPetAndCity {
+        @Override
+        Call call(Fixtures fixtures) {
+            return Call.of(fixtures.get("/api/users/by-pet-and-city?petType=dog&city=" + fixtures.encodedCity()));
+        }
+    },
+    exportUsers {
+        @Override
+        Call call(Fixtures fixtures) {
+            return Call.of(fixtures.get("/api/users/by-pet-and-city/export?petType=dog&city="
+                    + fixtures.encodedCity()));
+        }
+    },
+
+    // ===== PetController ===== //
+
+    createPet {
+        @Override
+        Call call(Fixtures fixtures) {
+            return Call.of(fixtures.post("/api/pets", fixtures.newPetJson()));
+        }
+    },
+    petsByCity {
+        @Override
+        Call call(Fixtures fixtures) {
+            return Call.of(fixtures.get("/api/pets/by-city?size=10&page=" + fixtures.random(5)
+                    + "&city=" + fixtures.encodedCity()));
+        }
+    },
+    petsByWomenInCity {
+        @Override
+        Call call(Fixtures fixtures) {
+            return Call.of(fixtures.get("/api/pets/by-women-in-city?size=10&page=" + fixtures.random(5)
+                    + "&city=" + fixtures.encodedCity()));
+        }
+    },
+    scrollPetsByCity {
+        @Override
+        Call call(Fixtures fixtures) {
+            return Call.of(fixtures.get("/api/pets/by-city/scroll?size=10&city=" + fixtures.encodedCity()));
+        }
+    },
+    scrollPetsByWomenInCity {
+        @Override
+        Call call(Fixtures fixtures) {
+            return Call.of(fixtures.get("/api/pets/by-women-in-city/scroll?size=10&city=" + fixtures.encodedCity()));
+        }
+    },
+    exportPets {
+        @Override
+        Call call(Fixtures fixtures) {
+            return Call.of(fixtures.get("/api/pets/by-city/export?city=" + fixtures.encodedCity()));
+        }
+    },
+    updatePet {
+        @Override
+        Call call(Fixtures fixtures) {
+            return Call.of(fixtures.request("/api/pets/" + fixtures.randomPet())
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(fixtures.newPetJson()))
+                    .build());
+        }
+    },
+    markPetDeceased {
+        @Override
+        Call call(Fixtures fixtures) {
+            Long pet = fixtures.nextPetToDecease();
+            return pet == null ? null : Call.of(fixtures.request("/api/pets/" + pet + "/deceased")
+                    .PUT(HttpRequest.BodyPublishers.noBody())
+                    .build());
+        }
+    },
+    petsOfUser {
+        @Override
+        Call call(Fixtures fixtures) {
+            return Call.of(fixtures.get("/api/pets/" + fixtures.randomUser() + "/pets"));
+        }
+    };
+
+    /**
+     * @param fixtures users and pets of the run
+     * @return request to send, null to skip
+     */
+    abstract Call call(Fixtures fixtures);
+
+    /**
+     * A request with what to do once it succeeded.
+     *
+     * @param request   request to send
+     * @param onSuccess run after a 2xx response
+     */
+    record Call(HttpRequest request, Runnable onSuccess) {
+
+        static Call of(HttpRequest request) {
+            return new Call(request, () -> { });
+        }
+    }
+}
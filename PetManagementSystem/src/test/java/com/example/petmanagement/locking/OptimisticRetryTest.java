@@ -0,0 +1,68 @@
+package com.example.petmanagement.locking;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimisticRetryTest {
+
+    private final OptimisticRetry retry = new OptimisticRetry(3, 1);
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    void call_LostRaces_AreRetriedUntilOneWins() {
+        String result = retry.call(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new OptimisticLockingFailureException("version changed");
+            }
+            if (attempts.get() == 2) {
+                throw new CannotAcquireLockException("lock timeout");
+            }
+            return "assigned";
+        });
+
+        assertEquals("assigned", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void call_AlwaysLosing_ThrowsAfterTheLastAttempt() {
+        assertThrows(OptimisticLockingFailureException.class, () -> retry.call(() -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("version changed");
+        }));
+
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void call_OtherFailure_IsNotRetried() {
+        assertThrows(DataIntegrityViolationException.class, () -> retry.call(() -> {
+            attempts.incrementAndGet();
+            throw new DataIntegrityViolationException("duplicate");
+        }));
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void call_InsideATransaction_RunsOnce() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThrows(OptimisticLockingFailureException.class, () -> retry.call(() -> {
+                attempts.incrementAndGet();
+                throw new OptimisticLockingFailureException("version changed");
+            }));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        assertEquals(1, attempts.get());
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.petmanagement.locking;
+
+import com.example.petmanagement.exception.BadRequestException;
+import com.example.petmanagement.index.FilterIndex;
+import com.example.petmanagement.model.Pet;
+import com.example.petmanagement.model.User;
+import com.example.petmanagement.model.UserPet;
+import com.example.petmanagement.repository.UserPetRepository;
+import com.example.petmanagement.repository.UserRepository;
+import com.example.petmanagement.service.PetService;
+import com.example.petmanagement.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against its own embedded database, dropped afterwards, because its changes are committed.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext
+class PetAssignmentConcurrencyIntegrationTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PetAssignmentConcurrencyIntegrationTest.class);
+
+    private static final int ADDRESSES = 4;
+    private static final int USERS_PER_ADDRESS = 4;
+    private static final int PETS = 8;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserPetRepository userPetRepository;
+
+    @Autowired
+    private FilterIndex filterIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM user_pet WHERE pet_id > 9000");
+        jdbcTemplate.update("DELETE FROM pet WHERE id > 9000");
+        jdbcTemplate.update("DELETE FROM \"user\" WHERE id > 9000");
+        jdbcTemplate.update("DELETE FROM address WHERE id > 9000");
+        jdbcTemplate.update("INSERT INTO address (id, city, type, address_name, number) "
+                + "SELECT 9000 + X, 'Stressville', 'street', 'Contention', X FROM SYSTEM_RANGE(1, " + ADDRESSES + ")");
+        jdbcTemplate.update("INSERT INTO \"user\" (id, name, first_name, address_id, age, gender, deceased) "
+                + "SELECT 9000 + X, 'Stress', CONCAT('User', X), 9001 + MOD(X - 1, " + ADDRESSES + "), 30, 'MALE', false "
+                + "FROM SYSTEM_RANGE(1, " + ADDRESSES * USERS_PER_ADDRESS + ")");
+        jdbcTemplate.update("INSERT INTO pet (id, name, age, type, deceased) "
+                + "SELECT 9000 + X, CONCAT('Contended', X), 1, 'dog', false FROM SYSTEM_RANGE(1, " + PETS + ")");
+        entityManagerFactory.getCache().evictAll();
+        filterIndex.rebuild();
+    }
+
+    @Test
+    void assignPetToUser_EveryUserRacingForEveryPet_KeepsTheOwnersOfAPetAtOneAddress() throws Exception {
+        List<long[]> assignments = new ArrayList<>();
+        for (long user = 9001; user <= 9000 + ADDRESSES * USERS_PER_ADDRESS; user++) {
+            for (long pet = 9001; pet <= 9000 + PETS; pet++) {
+                assignments.add(new long[]{user, pet});
+            }
+        }
+        Collections.shuffle(assignments, new Random(20));
+        AtomicInteger assigned = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long began = System.nanoTime();
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (long[] assignment : assignments) {
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        userService.assignPetToUser(assignment[0], assignment[1]);
+                        assigned.incrementAndGet();
+                    } catch (BadRequestException ex) {
+                        rejected.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        failures.put("user " + assignment[0] + ", pet " + assignment[1], ex);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> task : tasks) {
+                task.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        LOGGER.info("{} assignments in {} ms: {} done, {} rejected by the rules", assignments.size(),
+                (System.nanoTime() - began) / 1_000_000, assigned.get(), rejected.get());
+
+        assertEquals(Map.of(), failures);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT up.pet_id FROM user_pet up "
+                + "JOIN \"user\" u ON u.id = up.user_id WHERE up.pet_id > 9000 "
+                + "GROUP BY up.pet_id HAVING COUNT(DISTINCT u.address_id) > 1)", Integer.class));
+        // Every pet went to the first user locking it and to everyone at the same address, no one else
+        assertEquals(PETS * USERS_PER_ADDRESS, assigned.get());
+        assertEquals(assigned.get(), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_pet WHERE pet_id > 9000", Integer.class));
+    }
+
+    @Test
+    void assignment_RacingWithoutTheLock_FailsTheVersionCheck() throws Exception {
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Stands for another node: it finds no owner elsewhere, then assigns the pet once the first one committed
+            Future<?> otherNode = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                User user = userRepository.findActiveUserWithAddress(9002L).orElseThrow();
+                Pet pet = petService.findPet(9001L, true);
+                assertEquals(UserPetRepository.Assignability.ASSIGNABLE,
+                        userPetRepository.checkAssignment(9002L, user.getAddress().getId(), 9001L));
+                read.countDown();
+                await(committed);
+                assign(user, pet);
+            }));
+            await(read);
+            transactionTemplate.executeWithoutResult(status -> assign(
+                    userRepository.findActiveUserWithAddress(9001L).orElseThrow(), petService.findPet(9001L, true)));
+            committed.countDown();
+
+            Exception thrown = assertThrows(Exception.class, () -> otherNode.get(30, TimeUnit.SECONDS));
+            assertInstanceOf(OptimisticLockingFailureException.class, thrown.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(List.of(9001L), jdbcTemplate.queryForList(
+                "SELECT user_id FROM user_pet WHERE pet_id = 9001", Long.class));
+    }
+
+    /**
+     * The writes of an assignment: the user_pet row and the update of the pet row.
+     */
+    private void assign(User user, Pet pet) {
+        userPetRepository.save(new UserPet(user, pet));
+        pet.setLastUpdateTime(LocalDateTime.now());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
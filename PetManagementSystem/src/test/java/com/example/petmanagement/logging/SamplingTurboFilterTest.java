@@ -0,0 +1,79 @@
+package com.example.petmanagement.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SamplingTurboFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final SamplingTurboFilter filter = new SamplingTurboFilter();
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        filter.addSample("com.example.petmanagement.controller=10");
+        filter.addSample("com.example.petmanagement.controller.PetController=2");
+        filter.start();
+        context.addTurboFilter(filter);
+        appender.setContext(context);
+        appender.start();
+        context.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(appender);
+    }
+
+    @Test
+    void decide_SampledLogger_KeepsOneEventOutOfRateStartingWithTheFirst() {
+        Logger logger = context.getLogger("com.example.petmanagement.controller.UserController");
+
+        for (int i = 0; i < 25; i++) {
+            logger.info("Request {}", i);
+        }
+
+        assertEquals(List.of("Request 0", "Request 10", "Request 20"), messages());
+    }
+
+    @Test
+    void decide_WarningsAndOtherLoggers_AreNeverSampled() {
+        Logger sampled = context.getLogger("com.example.petmanagement.controller.UserController");
+        Logger other = context.getLogger("com.example.petmanagement.service.UserService");
+
+        for (int i = 0; i < 3; i++) {
+            sampled.warn("Warning {}", i);
+            other.info("Info {}", i);
+        }
+
+        assertEquals(List.of("Warning 0", "Info 0", "Warning 1", "Info 1", "Warning 2", "Info 2"), messages());
+    }
+
+    @Test
+    void decide_LongestPrefixAndDisabledLevels_DecideTheRate() {
+        Logger logger = context.getLogger("com.example.petmanagement.controller.PetController");
+        logger.setLevel(Level.INFO);
+
+        for (int i = 0; i < 4; i++) {
+            logger.debug("Disabled {}", i);
+            logger.info("Request {}", i);
+        }
+
+        // The disabled DEBUG events did not use up samples
+        assertEquals(List.of("Request 0", "Request 2"), messages());
+    }
+
+    @Test
+    void addSample_InvalidRate_ThrowsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> filter.addSample("com.example=0"));
+        assertThrows(IllegalArgumentException.class, () -> filter.addSample("com.example"));
+    }
+
+    private List<String> messages() {
+        return appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+    }
+}
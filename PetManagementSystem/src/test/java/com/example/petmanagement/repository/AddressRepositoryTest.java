@@ -0,0 +1,110 @@
+package com.example.petmanagement.repository;
+
+import com.example.petmanagement.model.Address;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class AddressRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void insertMissing_NewAddress_InsertsIt() {
+        long before = addressRepository.count();
+
+        assertEquals(1, addressRepository.insertMissing(List.of(address("Rome", "Appia"))));
+
+        Address address = addressRepository.findByCityAndTypeAndAddressNameAndNumber("Rome", "via", "Appia", "1")
+                .orElseThrow();
+        assertNotNull(address.getId());
+        assertEquals(before + 1, addressRepository.count());
+    }
+
+    @Test
+    void insertMissing_ExistingAddress_LeavesItUntouched() {
+        addressRepository.insertMissing(List.of(address("Rome", "Appia")));
+        Address first = addressRepository.findAllMatching(List.of(address("Rome", "Appia"))).get(0);
+        long before = addressRepository.count();
+
+        assertEquals(1, addressRepository.insertMissing(List.of(address("Rome", "Appia"), address("Rome", "Aurelia"))));
+
+        List<Address> stored = addressRepository.findAllMatching(
+                List.of(address("Rome", "Appia"), address("Rome", "Aurelia")));
+        assertEquals(2, stored.size());
+        assertTrue(stored.stream().anyMatch(address -> address.getId().equals(first.getId())));
+        assertEquals(0L, jdbcTemplate.queryForObject(
+                "SELECT version FROM address WHERE id = ?", Long.class, first.getId()));
+        assertEquals(before + 1, addressRepository.count());
+    }
+
+    @Test
+    void insertMissing_ConstraintViolation_RollsBackToItsSavepointOnly() {
+        addressRepository.insertMissing(List.of(address("Rome", "Appia")));
+
+        // The same new tuple twice: both rows pass NOT EXISTS, as two concurrent callers would
+        assertThrows(DataIntegrityViolationException.class, () -> addressRepository.insertMissing(
+                List.of(address("Rome", "Ostiense"), address("Rome", "Ostiense"))));
+
+        assertEquals(1, addressRepository.insertMissing(List.of(address("Rome", "Ostiense"))));
+        assertEquals(2, addressRepository.findAllMatching(
+                List.of(address("Rome", "Appia"), address("Rome", "Ostiense"))).size());
+        TestTransaction.flagForCommit();
+        assertDoesNotThrow(TestTransaction::end);
+        jdbcTemplate.update("DELETE FROM address WHERE city = 'Rome'");
+    }
+
+    @Test
+    void save_DuplicateAddress_ViolatesUniqueConstraint() {
+        addressRepository.insertMissing(List.of(address("Rome", "Appia")));
+
+        Address duplicate = new Address();
+        duplicate.setCity("Rome");
+        duplicate.setType("via");
+        duplicate.setAddressName("Appia");
+        duplicate.setNumber("1");
+
+        assertThrows(DataIntegrityViolationException.class, () -> addressRepository.saveAndFlush(duplicate));
+    }
+
+    @Test
+    void save_NewAddress_DatabaseComputesIndexedLowerCaseCity() {
+        Address address = new Address();
+        address.setCity("Saint-Tropez");
+        address.setType("quai");
+        address.setAddressName("Suffren");
+        address.setNumber("3");
+        Long id = addressRepository.saveAndFlush(address).getId();
+        entityManager.clear();
+
+        assertEquals("saint-tropez", addressRepository.findById(id).orElseThrow().getCityLower());
+        List<String> plan = jdbcTemplate.queryForList(
+                "EXPLAIN SELECT id FROM address WHERE city_lower = 'saint-tropez'", String.class);
+        assertTrue(plan.get(0).contains("IDX_ADDRESS_CITY_LOWER"), plan.get(0));
+    }
+
+    private static Address address(String city, String addressName) {
+        Address address = new Address();
+        address.setCity(city);
+        address.setType("via");
+        address.setAddressName(addressName);
+        address.setNumber("1");
+        return address;
+    }
+}
@@ -1,17 +1,26 @@
 package com.example.petmanagement.repository;
 
+import com.example.petmanagement.dto.PetOwnerRowDto;
+import com.example.petmanagement.dto.PetResponseDto;
 import com.example.petmanagement.model.Address;
 import com.example.petmanagement.model.Pet;
 import com.example.petmanagement.model.User;
+import com.example.petmanagement.model.UserPet;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.slf4j.LoggerFactory;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -32,13 +41,13 @@ class PetRepositoryTest {
         Pet pet = createPet("TestPet", "dog", owner);
 
         // Execute
-        List<Pet> result = petRepository.findByOwnerId(owner.getId());
+        List<PetResponseDto> result = petRepository.findByOwnerId(owner.getId());
 
         // Verify
         assertFalse(result.isEmpty());
         assertEquals(1, result.size());
-        assertEquals(pet.getName(), result.get(0).getName());
-        assertFalse(result.get(0).isDeceased());
+        assertEquals(pet.getName(), result.get(0).name());
+        assertFalse(result.get(0).deceased());
     }
 
     @Test
@@ -49,8 +58,8 @@ class PetRepositoryTest {
         Pet pet = createPet("TestPet", "dog", owner);
 
         // Execute
-        //result return 2 results . 1 from this test case and one from data.sql where owner also owning pet 1,address
-        Page<Pet> result = petRepository.findByCity(
+        //result return 2 results . 1 from this test case and one from the sample data where owner also owning pet 1,address
+        Page<PetResponseDto> result = petRepository.findByCity(
                 "Paris",
                 PageRequest.of(0, 10)
         );
@@ -58,7 +67,7 @@ class PetRepositoryTest {
         // Verify
         assertFalse(result.isEmpty());
         assertEquals(2, result.getTotalElements());
-        assertEquals("Fido", result.getContent().get(0).getName());
+        assertEquals("Fido", result.getContent().get(0).name());
     }
 
     @Test
@@ -69,7 +78,7 @@ class PetRepositoryTest {
         Pet pet = createPet("TestPet", "dog", owner);
 
         // Execute
-        Page<Pet> result = petRepository.findPetsByWomenOwnersInCity(
+        Page<PetResponseDto> result = petRepository.findPetsByWomenOwnersInCity(
                 "London",
                 PageRequest.of(0, 10)
         );
@@ -77,7 +86,7 @@ class PetRepositoryTest {
         // Verify
         assertFalse(result.isEmpty());
         assertEquals(1, result.getTotalElements());
-        assertEquals(pet.getName(), result.getContent().get(0).getName());
+        assertEquals(pet.getName(), result.getContent().get(0).name());
     }
 
     @Test
@@ -92,8 +101,8 @@ class PetRepositoryTest {
         Pet pet2 = createPet("Pet2", "cat", owner2);
 
         // Execute with null city
-        //result return 3 results . 2 from this test case and one from data.sql where owner also owning pet 1
-        Page<Pet> result = petRepository.findPetsByWomenOwnersInCity(
+        //result return 3 results . 2 from this test case and one from the sample data where owner also owning pet 1
+        Page<PetResponseDto> result = petRepository.findPetsByWomenOwnersInCity(
                 null,
                 PageRequest.of(0, 10)
         );
@@ -103,19 +112,187 @@ class PetRepositoryTest {
     }
 
     @Test
-    void findActivePetWithOwners_ActivePet_ReturnsPetWithOwners() {
+    void findPetsByWomenOwnersInCity_PageSmallerThanResult_PagesInSqlNotInMemory() {
+        // Setup - more pets than the page size, one pet co-owned by two women
+        Address address = createAddress("Lyon");
+        User owner1 = createUser("Owner1", "Test1", address, "FEMALE");
+        User owner2 = createUser("Owner2", "Test2", address, "FEMALE");
+        Pet sharedPet = createPet("Aaron", "dog", owner1);
+        entityManager.persist(new UserPet(owner2, sharedPet));
+        createPet("Bella", "cat", owner1);
+        createPet("Coco", "cat", owner2);
+        entityManager.flush();
+        entityManager.clear();
+
+        Logger rootLogger = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        rootLogger.addAppender(appender);
+        Page<PetResponseDto> result;
+        try {
+            // Execute
+            result = petRepository.findPetsByWomenOwnersInCity(
+                    "lyon",
+                    PageRequest.of(0, 2, Sort.by("name"))
+            );
+        } finally {
+            rootLogger.detachAppender(appender);
+        }
+
+        // Verify - no in-memory pagination warning and the co-owned pet is listed once
+        assertTrue(appender.list.stream()
+                        .noneMatch(event -> event.getFormattedMessage().contains("applying in memory")),
+                "Hibernate applied pagination in memory");
+        assertEquals(3, result.getTotalElements());
+        assertEquals(List.of("Aaron", "Bella"),
+                result.getContent().stream().map(PetResponseDto::name).toList());
+    }
+
+    @Test
+    void findByCityAfter_WithPosition_ReturnsPetsAfterIt() {
+        // Setup - two pets with the same name so the id breaks the tie
+        Address address = createAddress("Berlin");
+        User owner = createUser("Owner", "Test", address, "MALE");
+        Pet first = createPet("Max", "dog", owner);
+        Pet second = createPet("Max", "cat", owner);
+        Pet third = createPet("Zorro", "cat", owner);
+
+        // Execute
+        List<PetResponseDto> firstSlice = petRepository.findByCityAfter("Berlin", "", 0L, PageRequest.ofSize(2));
+        List<PetResponseDto> nextSlice = petRepository.findByCityAfter(
+                "Berlin", firstSlice.get(1).name(), firstSlice.get(1).id(), PageRequest.ofSize(2));
+
+        // Verify
+        assertEquals(List.of(first.getId(), second.getId()), firstSlice.stream().map(PetResponseDto::id).toList());
+        assertEquals(List.of(third.getId()), nextSlice.stream().map(PetResponseDto::id).toList());
+    }
+
+    @Test
+    void patchActive_SomeColumns_UpdatesOnlyThemAndTheVersion() {
+        // Setup
+        Address address = createAddress("Nantes");
+        User owner = createUser("Owner", "Patch", address, "MALE");
+        Pet pet = createPet("Patched", "cat", owner);
+        entityManager.flush();
+        long version = pet.getVersion();
+
+        // Execute
+        int updated = petRepository.patchActive(pet.getId(), null, 7, null, LocalDateTime.now());
+
+        // Verify - the persistence context was cleared, the pet is read again
+        assertEquals(1, updated);
+        Pet result = petRepository.findById(pet.getId()).orElseThrow();
+        assertEquals("Patched", result.getName());
+        assertEquals(7, result.getAge());
+        assertEquals("cat", result.getType());
+        assertEquals(version + 1, result.getVersion());
+    }
+
+    @Test
+    void patchActive_DeceasedPet_UpdatesNoRow() {
+        // Setup
+        Address address = createAddress("Nantes");
+        User owner = createUser("Owner", "Patch", address, "MALE");
+        Pet pet = createPet("Gone", "cat", owner);
+        pet.setDeceased(true);
+        entityManager.flush();
+
+        // Execute & Verify
+        assertEquals(0, petRepository.patchActive(pet.getId(), "Back", null, null, LocalDateTime.now()));
+        assertEquals(0, petRepository.patchActive(-1L, "Nobody", null, null, LocalDateTime.now()));
+        assertEquals("Gone", petRepository.findById(pet.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void markDeceased_ActivePet_UpdatesItOnce() {
         // Setup
-        Address address = createAddress("New York");
+        Address address = createAddress("Nantes");
+        User owner = createUser("Owner", "Decease", address, "MALE");
+        Pet pet = createPet("Mortal", "dog", owner);
+        entityManager.flush();
+
+        // Execute & Verify - the second call finds no active row
+        assertEquals(1, petRepository.markDeceased(pet.getId(), LocalDateTime.now()));
+        assertEquals(0, petRepository.markDeceased(pet.getId(), LocalDateTime.now()));
+        assertTrue(petRepository.findById(pet.getId()).orElseThrow().isDeceased());
+    }
+
+    @Test
+    void findRowsWithOwners_ReturnsOneRowPerOwner() {
+        // Setup
+        Address address = createAddress("Nantes");
+        User first = createUser("Owner", "First", address, "MALE");
+        User second = createUser("Owner", "Second", address, "FEMALE");
+        Pet pet = createPet("Shared", "dog", first);
+        entityManager.persist(new UserPet(second, pet));
+        Pet stray = new Pet();
+        stray.setName("Stray");
+        stray.setAge(2);
+        stray.setType("cat");
+        entityManager.persist(stray);
+        entityManager.flush();
+
+        // Execute
+        List<PetOwnerRowDto> rows = petRepository.findRowsWithOwners(pet.getId());
+        List<PetOwnerRowDto> strayRows = petRepository.findRowsWithOwners(stray.getId());
+
+        // Verify
+        assertEquals(2, rows.size());
+        assertTrue(rows.stream().allMatch(row -> "Shared".equals(row.name()) && "Nantes".equals(row.ownerCity())));
+        assertEquals(List.of(new PetOwnerRowDto(stray.getId(), "Stray", 2, "cat", false, null, null)), strayRows);
+    }
+
+    @Test
+    void findSliceByCity_ValidCity_TellsWhetherMoreFollow() {
+        // Setup - with the pet of the sample data, Paris has two pets
+        Address address = createAddress("Paris");
         User owner = createUser("Owner", "Test", address, "MALE");
-        Pet pet = createPet("ActivePet", "cat", owner);
+        createPet("TestPet", "dog", owner);
 
         // Execute
-        Optional<Pet> result = petRepository.findActivePetWithOwners(pet.getId());
+        Slice<PetResponseDto> first = petRepository.findSliceByCity("Paris", PageRequest.of(0, 1, Sort.by("name")));
+        Slice<PetResponseDto> second = petRepository.findSliceByCity("Paris", PageRequest.of(1, 1, Sort.by("name")));
 
         // Verify
-        assertTrue(result.isPresent());
-        assertEquals(pet.getName(), result.get().getName());
-        assertFalse(result.get().getOwners().isEmpty());
+        assertEquals("Fido", first.getContent().get(0).name());
+        assertTrue(first.hasNext());
+        assertEquals("TestPet", second.getContent().get(0).name());
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    void countActiveByCity_SharedPet_CountedOncePerCity() {
+        // Setup
+        Address address = createAddress("Nantes");
+        User first = createUser("Owner", "First", address, "FEMALE");
+        User second = createUser("Owner", "Second", address, "FEMALE");
+        Pet pet = createPet("Shared", "dog", first);
+        entityManager.persist(new UserPet(second, pet));
+        Pet gone = createPet("Gone", "cat", first);
+        gone.setDeceased(true);
+        entityManager.flush();
+
+        // Execute
+        List<Object[]> byCity = petRepository.countActiveByCity();
+        List<Object[]> ofWomenByCity = petRepository.countActiveOfWomenByCity();
+
+        // Verify
+        assertTrue(byCity.stream().anyMatch(row -> "Nantes".equals(row[0]) && ((Long) row[1]) == 1));
+        assertTrue(ofWomenByCity.stream().anyMatch(row -> "nantes".equals(row[0]) && ((Long) row[1]) == 1));
+    }
+
+    @Test
+    void countActiveOfWomen_FemaleOwnersInTwoCities_CountedOnce() {
+        // Setup
+        long before = petRepository.countActiveOfWomen();
+        User first = createUser("Owner", "First", createAddress("Nantes"), "FEMALE");
+        User second = createUser("Owner", "Second", createAddress("Rennes"), "FEMALE");
+        Pet pet = createPet("Shared", "dog", first);
+        entityManager.persist(new UserPet(second, pet));
+        entityManager.flush();
+
+        // Execute & Verify
+        assertEquals(before + 1, petRepository.countActiveOfWomen());
     }
 
     // Helper methods
@@ -145,9 +322,8 @@ class PetRepositoryTest {
         pet.setAge(1);
         pet.setType(type);
         pet.setDeceased(false);
-        pet.getOwners().add(owner);
-        owner.getPets().add(pet); // Maintain bidirectional relationship
-        entityManager.persist(owner); // Re-persist owner to update relationship
-        return entityManager.persist(pet);
+        entityManager.persist(pet);
+        entityManager.persist(new UserPet(owner, pet));
+        return pet;
     }
 }
@@ -0,0 +1,121 @@
+package com.example.petmanagement.repository;
+
+import com.example.petmanagement.model.Address;
+import com.example.petmanagement.model.Pet;
+import com.example.petmanagement.model.User;
+import com.example.petmanagement.model.UserPet;
+import com.example.petmanagement.repository.UserPetRepository.Assignability;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class UserPetRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserPetRepository userPetRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Address home;
+    private User owner;
+    private User flatmate;
+    private Pet pet;
+
+    @BeforeEach
+    void setUp() {
+        home = createAddress("Lyon", "1");
+        owner = createUser("Owner", home);
+        flatmate = createUser("Flatmate", home);
+        pet = createPet("Rex");
+        entityManager.persist(new UserPet(owner, pet));
+        entityManager.flush();
+    }
+
+    @Test
+    void checkAssignment_PetWithoutOwner_IsAssignable() {
+        Pet stray = createPet("Stray");
+        entityManager.flush();
+
+        assertEquals(Assignability.ASSIGNABLE, check(owner, stray));
+    }
+
+    @Test
+    void checkAssignment_OwnerAtTheSameAddress_IsAssignable() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertEquals(Assignability.ASSIGNABLE, check(flatmate, pet));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void checkAssignment_AlreadyOwned_IsAlreadyAssigned() {
+        assertEquals(Assignability.ALREADY_ASSIGNED, check(owner, pet));
+    }
+
+    @Test
+    void checkAssignment_OwnerAtAnotherAddress_IsOwnedElsewhere() {
+        User neighbour = createUser("Neighbour", createAddress("Lyon", "2"));
+        entityManager.flush();
+
+        assertEquals(Assignability.OWNED_ELSEWHERE, check(neighbour, pet));
+    }
+
+    @Test
+    void checkAssignment_CoOwnersAtTwoAddresses_DependsOnAnyOwnerAtTheAddress() {
+        Address other = createAddress("Lyon", "2");
+        User coOwner = createUser("CoOwner", other);
+        entityManager.persist(new UserPet(coOwner, pet));
+        User neighbour = createUser("Neighbour", other);
+        User stranger = createUser("Stranger", createAddress("Lyon", "3"));
+        entityManager.flush();
+
+        assertEquals(Assignability.ASSIGNABLE, check(flatmate, pet));
+        assertEquals(Assignability.ASSIGNABLE, check(neighbour, pet));
+        assertEquals(Assignability.OWNED_ELSEWHERE, check(stranger, pet));
+    }
+
+    // Helper methods
+    private Assignability check(User user, Pet candidate) {
+        return userPetRepository.checkAssignment(user.getId(), user.getAddress().getId(), candidate.getId());
+    }
+
+    private Address createAddress(String city, String number) {
+        Address address = new Address();
+        address.setCity(city);
+        address.setType("street");
+        address.setAddressName("Main");
+        address.setNumber(number);
+        return entityManager.persist(address);
+    }
+
+    private User createUser(String name, Address address) {
+        User user = new User();
+        user.setName(name);
+        user.setFirstName("Test");
+        user.setAddress(address);
+        user.setAge(30);
+        user.setGender("MALE");
+        return entityManager.persist(user);
+    }
+
+    private Pet createPet(String name) {
+        Pet pet = new Pet();
+        pet.setName(name);
+        pet.setAge(1);
+        pet.setType("dog");
+        return entityManager.persist(pet);
+    }
+}
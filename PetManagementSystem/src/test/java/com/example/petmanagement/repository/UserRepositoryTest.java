@@ -1,19 +1,25 @@
 package com.example.petmanagement.repository;
 
+import com.example.petmanagement.dto.UserPetRowDto;
 import com.example.petmanagement.model.Address;
 import com.example.petmanagement.model.Pet;
 import com.example.petmanagement.model.User;
+import com.example.petmanagement.model.UserPet;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 class UserRepositoryTest {
 
     @Autowired
@@ -22,6 +28,9 @@ class UserRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     void findByPetTypeAndCity_ShouldReturnUsers() {
         // Setup
@@ -30,14 +39,111 @@ class UserRepositoryTest {
         createPetWithOwner("Jimmy", "dog", user);
 
         // Execute
-        List<User> result = userRepository.findUserByPetTypeAndCity("dog", "Paris");
+        List<UserPetRowDto> result = userRepository.findUserByPetTypeAndCity("dog", "Paris");
 
         // Verify--because h2 db already adding user name 'Vasani' and that is the first result hence equalizing result with the first returned result[This needs to be handled with profiling]
         assertFalse(result.isEmpty());
-        assertEquals("Vasani", result.get(0).getName());
+        assertEquals("Vasani", result.get(0).name());
+    }
+
+    @Test
+    void findUserRowsByIds_CandidatesNotMatching_AreLeftOut() {
+        Address lyon = createAddress("Lyon");
+        User dogOwner = createUser("Owner", "Dog", lyon, "MALE");
+        createPetWithOwner("Rex", "dog", dogOwner);
+        User catOwner = createUser("Owner", "Cat", lyon, "MALE");
+        createPetWithOwner("Felix", "cat", catOwner);
+        User elsewhere = createUser("Owner", "Elsewhere", createAddress("Lille"), "MALE");
+        createPetWithOwner("Max", "dog", elsewhere);
+
+        // Ids from an index that has not caught up: only the user matching type and city is read
+        List<UserPetRowDto> result = userRepository.findUserRowsByIds(
+                List.of(dogOwner.getId(), catOwner.getId(), elsewhere.getId()), "dog", "Lyon");
+
+        assertEquals(List.of(dogOwner.getId()), result.stream().map(UserPetRowDto::userId).toList());
+    }
+
+    @Test
+    void findByPetTypeAndCity_ShouldReadGroupedRowsWithoutLoadingEntities() {
+        Address address = createAddress("Lyon");
+        for (int i = 0; i < 5; i++) {
+            User user = createUser("Owner" + i, "Lyon", address, "FEMALE");
+            createPetWithOwner("Rex" + i, "dog", user);
+            createPetWithOwner("Tom" + i, "cat", user);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = clearedStatistics();
+
+        List<UserPetRowDto> result = userRepository.findUserByPetTypeAndCity("dog", "Lyon");
+
+        // one row per pet, the rows of a user are consecutive
+        assertEquals(10, result.size());
+        for (int i = 0; i < result.size(); i += 2) {
+            assertEquals(result.get(i).userId(), result.get(i + 1).userId());
+            assertEquals("Lyon", result.get(i).city());
+        }
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findActiveUserWithAddressAndPets_ShouldLoadAddressAndPetsInOneStatement() {
+        Address address = createAddress("Lyon");
+        User user = createUser("Owner", "Graph", address, "FEMALE");
+        createPetWithOwner("Rex", "dog", user);
+        createPetWithOwner("Tom", "cat", user);
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = clearedStatistics();
+
+        User result = userRepository.findActiveUserWithAddressAndPets(user.getId()).orElseThrow();
+
+        assertEquals("Lyon", result.getAddress().getCity());
+        assertEquals(2, result.getPets().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void patchActive_SomeColumns_IsASingleStatementLeavingTheOthers() {
+        Address address = createAddress("Lyon");
+        Address moved = createAddress("Lille");
+        User user = createUser("Owner", "Patch", address, "FEMALE");
+        entityManager.flush();
+        Statistics statistics = clearedStatistics();
+
+        int updated = userRepository.patchActive(user.getId(), null, null, 41, null, moved, LocalDateTime.now());
+
+        assertEquals(1, updated);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        User result = userRepository.findActiveUserWithAddressAndPets(user.getId()).orElseThrow();
+        assertEquals("Owner", result.getName());
+        assertEquals(41, result.getAge());
+        assertEquals("Lille", result.getAddress().getCity());
+        assertEquals(1L, result.getVersion());
+    }
+
+    @Test
+    void markDeceased_ActiveUser_IsASingleStatementUpdatingItOnce() {
+        Address address = createAddress("Lyon");
+        User user = createUser("Owner", "Decease", address, "MALE");
+        entityManager.flush();
+        Statistics statistics = clearedStatistics();
+
+        assertEquals(1, userRepository.markDeceased(user.getId(), LocalDateTime.now()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, userRepository.markDeceased(user.getId(), LocalDateTime.now()));
+        assertEquals(Optional.empty(), userRepository.findActiveUserCity(user.getId()));
     }
 
     // Helper methods
+    private Statistics clearedStatistics() {
+        entityManagerFactory.getCache().evictAll();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
     private Address createAddress(String city) {
         Address address = new Address();
         address.setCity(city);
@@ -64,9 +170,7 @@ class UserRepositoryTest {
         pet.setAge(2);
         pet.setType(petType);
         pet.setDeceased(false);
-        pet.getOwners().add(owner);
-        owner.getPets().add(pet);
         entityManager.persist(pet);
-        entityManager.persist(owner);
+        entityManager.persist(new UserPet(owner, pet));
     }
 }
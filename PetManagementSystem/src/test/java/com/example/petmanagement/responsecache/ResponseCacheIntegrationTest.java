@@ -0,0 +1,111 @@
+package com.example.petmanagement.responsecache;
+
+import com.example.petmanagement.dto.PetRequestDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Runs against its own embedded database, dropped afterwards, because its changes are committed.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@DirtiesContext
+class ResponseCacheIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void listings_SecondRequest_IsServedFromTheCache() throws Exception {
+        String first = mockMvc.perform(get("/api/pets/3/pets"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        double hits = hits();
+
+        mockMvc.perform(get("/api/pets/3/pets"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(first));
+
+        assertEquals(hits + 1, hits());
+    }
+
+    @Test
+    void listings_HitWithMatchingIfNoneMatch_IsNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/api/pets/by-city").param("city", "Paris"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        double hits = hits();
+
+        mockMvc.perform(get("/api/pets/by-city").param("city", "Paris").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+        mockMvc.perform(get("/api/pets/by-city").param("city", "Paris"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+
+        assertEquals(hits + 2, hits());
+    }
+
+    @Test
+    void listings_PetUpdated_AreReadAgain() throws Exception {
+        mockMvc.perform(get("/api/pets/by-city").param("city", "New York"));
+        mockMvc.perform(get("/api/pets/4/pets"));
+
+        mockMvc.perform(patch("/api/pets/3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PetRequestDto("Kaa", 4, "snake"))))
+                .andExpect(status().isAccepted());
+
+        mockMvc.perform(get("/api/pets/by-city").param("city", "New York"))
+                .andExpect(jsonPath("$.content[*].name", contains("Kaa")));
+        mockMvc.perform(get("/api/pets/4/pets"))
+                .andExpect(jsonPath("$[*].name", contains("Kaa")));
+    }
+
+    @Test
+    void listings_PetAssigned_AreReadAgain() throws Exception {
+        String created = mockMvc.perform(post("/api/pets")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PetRequestDto("Whiskers", 1, "cat"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        int petId = objectMapper.readTree(created).get("id").asInt();
+        mockMvc.perform(get("/api/pets/by-city").param("city", "London"))
+                .andExpect(jsonPath("$.content[*].id", not(hasItem(petId))));
+        mockMvc.perform(get("/api/pets/6/pets"))
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        mockMvc.perform(post("/api/users/6/pets/" + petId))
+                .andExpect(status().is2xxSuccessful());
+
+        mockMvc.perform(get("/api/pets/by-city").param("city", "London"))
+                .andExpect(jsonPath("$.content[*].id", hasItem(petId)));
+        mockMvc.perform(get("/api/pets/6/pets"))
+                .andExpect(jsonPath("$[*].id", contains(petId)));
+    }
+
+    private double hits() {
+        return meterRegistry.get("response.cache.requests").tag("result", "hit").functionCounter().count();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.petmanagement.responsecache;
+
+import com.example.petmanagement.service.PetListingsChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private final ResponseCache cache = new ResponseCache(true, 1600);
+
+    @Test
+    void put_StoresTheBodyOffHeap() {
+        cache.put("/api/pets/1/pets", "user:1", "application/json", "\"v1\"", json("[]"), cache.generation());
+
+        ResponseCache.Entry entry = cache.get("/api/pets/1/pets");
+
+        assertTrue(entry.body().isDirect());
+        assertTrue(entry.body().isReadOnly());
+        assertEquals("[]", StandardCharsets.UTF_8.decode(entry.body().duplicate()).toString());
+        assertEquals("application/json", entry.contentType());
+    }
+
+    @Test
+    void put_OverCapacity_EvictsTheLeastRecentlyUsed() {
+        for (int i = 0; i < 16; i++) {
+            cache.put("key" + i, "user:" + i, "application/json", null, new byte[100], cache.generation());
+        }
+        cache.get("key0");
+
+        cache.put("key16", "user:16", "application/json", null, new byte[100], cache.generation());
+
+        assertNotNull(cache.get("key0"));
+        assertNull(cache.get("key1"));
+        assertEquals(1600, cache.size());
+        assertEquals(16, cache.entries());
+    }
+
+    @Test
+    void put_TooLargeForOneEntry_IsNotStored() {
+        cache.put("key", "user:1", "application/json", null, new byte[101], cache.generation());
+
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_InvalidatedSinceTheResponseWasRead_IsNotStored() {
+        long generation = cache.generation();
+
+        cache.invalidate(Set.of("city:Paris"));
+        cache.put("/api/pets/by-city?city=London", "city:London", "application/json", null, json("{}"), generation);
+
+        assertNull(cache.get("/api/pets/by-city?city=London"));
+    }
+
+    @Test
+    void onPetListingsChanged_DropsTheResponsesOfTheNamedOwnersAndCities() {
+        cache.put("/api/pets/1/pets", "user:1", "application/json", null, json("[]"), cache.generation());
+        cache.put("/api/pets/2/pets", "user:2", "application/json", null, json("[]"), cache.generation());
+        cache.put("/api/pets/by-city?city=Paris", "city:Paris", "application/json", null, json("{}"), cache.generation());
+        cache.put("/api/pets/by-city?city=Paris&page=1", "city:Paris", "application/json", null, json("{}"),
+                cache.generation());
+        cache.put("/api/pets/by-city?city=London", "city:London", "application/json", null, json("{}"),
+                cache.generation());
+
+        cache.onPetListingsChanged(new PetListingsChangedEvent(Set.of(1L), Set.of("Paris")));
+
+        assertNull(cache.get("/api/pets/1/pets"));
+        assertNull(cache.get("/api/pets/by-city?city=Paris"));
+        assertNull(cache.get("/api/pets/by-city?city=Paris&page=1"));
+        assertNotNull(cache.get("/api/pets/2/pets"));
+        assertNotNull(cache.get("/api/pets/by-city?city=London"));
+        assertEquals(2, cache.entries());
+    }
+
+    @Test
+    void bindTo_ExportsTheHitsMissesAndOffHeapUsage() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        cache.put("key", "user:1", "application/json", null, new byte[10], cache.generation());
+
+        cache.get("key");
+        cache.get("key");
+        cache.get("other");
+
+        assertEquals(2, registry.get("response.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("response.cache.requests").tag("result", "miss").functionCounter().count());
+        assertEquals(10, registry.get("response.cache.size").gauge().value());
+        assertEquals(1, registry.get("response.cache.entries").gauge().value());
+    }
+
+    private static byte[] json(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.petmanagement.seed;
+
+import com.example.petmanagement.dto.AddressDto;
+import com.example.petmanagement.dto.UserRequestDto;
+import com.example.petmanagement.dto.UserResponseDto;
+import com.example.petmanagement.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against its own embedded database, dropped afterwards.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext
+class DataGeneratorIntegrationTest {
+
+    private static final DataGenerator.Plan PLAN = new DataGenerator.Plan(
+            20_000, 30_000, 5_000, 100, 3.0, 200, 0.1, 0.05, 4, 3_000, 7);
+
+    @Autowired
+    private DataGenerator dataGenerator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void generate_CreatesSkewedDataAndKeepsTheApplicationWorking() {
+        long users = count("SELECT COUNT(*) FROM \"user\"");
+        long pets = count("SELECT COUNT(*) FROM pet");
+        long ownerships = count("SELECT COUNT(*) FROM user_pet");
+        long deceasedPets = count("SELECT COUNT(*) FROM pet WHERE deceased");
+        long city1Addresses = count("SELECT COUNT(*) FROM address WHERE city = 'City1'");
+
+        dataGenerator.generate(PLAN);
+
+        assertEquals(users + 20_000, count("SELECT COUNT(*) FROM \"user\""));
+        assertEquals(pets + 30_000, count("SELECT COUNT(*) FROM pet"));
+        long seededOwnerships = count("SELECT COUNT(*) FROM user_pet") - ownerships;
+        assertEquals(0.1, (seededOwnerships - 30_000) / 30_000.0, 0.01);
+        assertEquals(0.05,
+                (count("SELECT COUNT(*) FROM pet WHERE deceased") - deceasedPets) / 30_000.0, 0.01);
+
+        // City1 holds (1/100)^(1/3), about a fifth, of the addresses, the last city a few
+        long seededCity1Addresses = count("SELECT COUNT(*) FROM address WHERE city = 'City1'") - city1Addresses;
+        assertEquals(0.215, seededCity1Addresses / 5_000.0, 0.03);
+        assertTrue(count("SELECT COUNT(*) FROM address WHERE city = 'City100'") < seededCity1Addresses / 10);
+        // The most common family name is shared by far more users than the average (100)
+        assertTrue(count("SELECT MAX(c) FROM (SELECT COUNT(*) c FROM \"user\" GROUP BY name)") > 1_000);
+        assertTrue(count("SELECT COUNT(*) FROM pet WHERE created_by = 'seed' AND type IN ('dog', 'cat')") > 15_000);
+
+        // Sequences moved past the generated ids
+        UserResponseDto created = userService.createUser(new UserRequestDto(
+                "After", "Seed", new AddressDto("City1", "street", "Seed 1", "new"), 30, "FEMALE"));
+        assertTrue(created.id() > count("SELECT MAX(id) FROM \"user\" WHERE created_by = 'seed'"));
+    }
+
+    @Test
+    void generate_SamePlan_GeneratesTheSameData() {
+        DataGenerator.Plan plan = new DataGenerator.Plan(1_000, 1_000, 100, 10, 3.0, 20, 0.1, 0.05, 2, 300, 11);
+        dataGenerator.generate(plan);
+        String first = jdbcTemplate.queryForObject("SELECT LISTAGG(CONCAT(name, type, age), ',') "
+                + "WITHIN GROUP (ORDER BY id) FROM (SELECT * FROM pet ORDER BY id DESC LIMIT 1000)", String.class);
+
+        dataGenerator.generate(plan);
+
+        String second = jdbcTemplate.queryForObject("SELECT LISTAGG(CONCAT(name, type, age), ',') "
+                + "WITHIN GROUP (ORDER BY id) FROM (SELECT * FROM pet ORDER BY id DESC LIMIT 1000)", String.class);
+        assertEquals(first, second);
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
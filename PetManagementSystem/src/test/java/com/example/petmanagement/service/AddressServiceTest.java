@@ -0,0 +1,75 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.dto.AddressDto;
+import com.example.petmanagement.exception.BadRequestException;
+import com.example.petmanagement.model.Address;
+import com.example.petmanagement.repository.AddressRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AddressServiceTest {
+
+    @Mock
+    private AddressRepository addressRepository;
+
+    private AddressService addressService;
+
+    private Address address;
+
+    @BeforeEach
+    void setUp() {
+        addressService = new AddressService(addressRepository, 100);
+
+        address = new Address();
+        address.setId(1L);
+        address.setCity("Paris");
+        address.setType("street");
+        address.setAddressName("Main");
+        address.setNumber("123");
+    }
+
+    @Test
+    void getOrCreateAddress_SameAddressTwice_InsertsOnce() {
+        when(addressRepository.findByCityAndTypeAndAddressNameAndNumber("Paris", "street", "Main", "123"))
+                .thenReturn(Optional.of(address));
+        when(addressRepository.getReferenceById(1L)).thenReturn(address);
+
+        Address first = addressService.getOrCreateAddress(new AddressDto("Paris", "street", "Main", "123"));
+        Address second = addressService.getOrCreateAddress(new AddressDto(" Paris ", "street", "Main", "123"));
+
+        assertEquals(1L, first.getId());
+        assertEquals(1L, second.getId());
+        verify(addressRepository, times(1)).insertMissing(anyList());
+    }
+
+    @Test
+    void getOrCreateAddress_InsertedConcurrently_TriesAgainOnce() {
+        when(addressRepository.insertMissing(anyList()))
+                .thenThrow(new DuplicateKeyException("uk_address"))
+                .thenReturn(0);
+        when(addressRepository.findByCityAndTypeAndAddressNameAndNumber("Paris", "street", "Main", "123"))
+                .thenReturn(Optional.of(address));
+
+        Address result = addressService.getOrCreateAddress(new AddressDto("Paris", "street", "Main", "123"));
+
+        assertEquals(1L, result.getId());
+        verify(addressRepository, times(2)).insertMissing(anyList());
+    }
+
+    @Test
+    void getOrCreateAddress_MissingField_ThrowsBadRequestException() {
+        assertThrows(BadRequestException.class, () ->
+                addressService.getOrCreateAddress(new AddressDto("Paris", "street", null, "123")));
+        verifyNoInteractions(addressRepository);
+    }
+}
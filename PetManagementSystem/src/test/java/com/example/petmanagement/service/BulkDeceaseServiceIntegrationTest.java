@@ -0,0 +1,136 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.dto.BulkDeceaseResponseDto;
+import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.exception.BadRequestException;
+import com.example.petmanagement.index.FilterIndex;
+import com.example.petmanagement.repository.PetRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against its own embedded database, dropped afterwards, because every chunk is committed.
+ * <p>
+ * Fixture: addresses 8001 and 8002 in Bulkville. Users 8001 and 8002 live at 8001 and share pet 8003;
+ * user 8001 also owns pets 8001, 8002, 8004 and the deceased 8005. Users 8003 and 8004 live at 8002 and
+ * own pets 8006 and 8007. Pets 8008 and 8009 have no owner.
+ */
+@SpringBootTest(properties = "bulk.decease.chunk-size=2")
+@AutoConfigureTestDatabase
+@DirtiesContext
+class BulkDeceaseServiceIntegrationTest {
+
+    @Autowired
+    private BulkDeceaseService bulkDeceaseService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private FilterIndex filterIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM user_pet WHERE pet_id > 8000");
+        jdbcTemplate.update("DELETE FROM pet WHERE id > 8000");
+        jdbcTemplate.update("DELETE FROM \"user\" WHERE id > 8000");
+        jdbcTemplate.update("DELETE FROM address WHERE id > 8000");
+        jdbcTemplate.update("INSERT INTO address (id, city, type, address_name, number) VALUES "
+                + "(8001, 'Bulkville', 'street', 'Shelter', '1'), (8002, 'Bulkville', 'street', 'Shelter', '2')");
+        jdbcTemplate.update("INSERT INTO \"user\" (id, name, first_name, address_id, age, gender, deceased) VALUES "
+                + "(8001, 'Bulk', 'One', 8001, 30, 'FEMALE', false), (8002, 'Bulk', 'Two', 8001, 30, 'MALE', false), "
+                + "(8003, 'Bulk', 'Three', 8002, 30, 'FEMALE', false), (8004, 'Bulk', 'Four', 8002, 30, 'MALE', false)");
+        jdbcTemplate.update("INSERT INTO pet (id, name, age, type, deceased) "
+                + "SELECT 8000 + X, CONCAT('Bulk', X), 1, 'dog', X = 5 FROM SYSTEM_RANGE(1, 9)");
+        jdbcTemplate.update("INSERT INTO user_pet (user_id, pet_id) VALUES (8001, 8001), (8001, 8002), "
+                + "(8001, 8003), (8002, 8003), (8001, 8004), (8001, 8005), (8003, 8006), (8004, 8006), (8004, 8007)");
+        entityManagerFactory.getCache().evictAll();
+        filterIndex.rebuild();
+    }
+
+    @Test
+    void markPetsOfOwnerAsDeceased_MarksItsActivePetsChunkByChunk() {
+        // Cached before, read again after
+        assertFalse(petRepository.findById(8001L).orElseThrow().isDeceased());
+
+        BulkDeceaseResponseDto result = bulkDeceaseService.markPetsOfOwnerAsDeceased(8001L);
+
+        assertEquals(new BulkDeceaseResponseDto(4, 2), result);
+        assertArrayEquals(new long[]{8001, 8002, 8003, 8004, 8005}, deceasedPets(8001, 8009));
+        assertTrue(petRepository.findById(8001L).orElseThrow().isDeceased());
+        // The co-owner lost its only pet, in the database and in the index
+        assertEquals(List.of(), petService.getPetsByOwnerId(8002L));
+        assertTrue(filterIndex.alivePetsOfWomen("Bulkville").contains(8006));
+        assertFalse(filterIndex.alivePetsOfWomen("Bulkville").contains(8001));
+    }
+
+    @Test
+    void markPetsAtAddressAsDeceased_MarksThePetsOfItsUsersOnly() {
+        BulkDeceaseResponseDto result = bulkDeceaseService.markPetsAtAddressAsDeceased(8002L);
+
+        assertEquals(new BulkDeceaseResponseDto(2, 1), result);
+        assertArrayEquals(new long[]{8005, 8006, 8007}, deceasedPets(8001, 8009));
+        assertEquals(List.of(8001L, 8002L, 8003L, 8004L),
+                petService.getPetsByOwnerId(8001L).stream().map(PetResponseDto::id).sorted().toList());
+        assertFalse(filterIndex.alivePetsOfWomen("Bulkville").contains(8006));
+    }
+
+    @Test
+    void markPetsAsDeceased_SkipsUnknownAndDeceasedPets() {
+        BulkDeceaseResponseDto result = bulkDeceaseService.markPetsAsDeceased(
+                Arrays.asList(8009L, 8008L, 8009L, 999_999L, 8005L, null));
+
+        assertEquals(new BulkDeceaseResponseDto(2, 2), result);
+        assertArrayEquals(new long[]{8005, 8008, 8009}, deceasedPets(8001, 8009));
+    }
+
+    @Test
+    void markPetsAsDeceased_NoId_ThrowsBadRequest() {
+        assertThrows(BadRequestException.class, () -> bulkDeceaseService.markPetsAsDeceased(List.of()));
+    }
+
+    @Test
+    void markUsersAtAddressAsDeceased_RemovesThemFromTheIndexedListings() {
+        assertEquals(List.of(8001L, 8002L, 8003L, 8004L), FilterIndex.toList(
+                filterIndex.aliveUsersOwningAlivePet("dog", "Bulkville")));
+
+        BulkDeceaseResponseDto result = bulkDeceaseService.markUsersAtAddressAsDeceased(8001L);
+
+        assertEquals(new BulkDeceaseResponseDto(2, 1), result);
+        assertEquals(List.of(8003L, 8004L), FilterIndex.toList(
+                filterIndex.aliveUsersOwningAlivePet("dog", "Bulkville")));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM \"user\" WHERE id > 8000 AND deceased", Integer.class));
+    }
+
+    @Test
+    void markUsersAsDeceased_CountsOnlyTheUsersItChanged() {
+        assertEquals(new BulkDeceaseResponseDto(1, 1), bulkDeceaseService.markUsersAsDeceased(List.of(8004L, 8999L)));
+        assertEquals(new BulkDeceaseResponseDto(1, 1), bulkDeceaseService.markUsersAsDeceased(List.of(8003L, 8004L)));
+    }
+
+    private long[] deceasedPets(long fromId, long toId) {
+        return jdbcTemplate.queryForList("SELECT id FROM pet WHERE id BETWEEN ? AND ? AND deceased ORDER BY id",
+                Long.class, fromId, toId).stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.dto.UserResponseDto;
+import com.example.petmanagement.exception.BadRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.petmanagement.dto.PetResponseDto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against its own embedded database, dropped afterwards, because it loads pets of its own: a few, and a million
+ * in the heavy test, which only runs with the heavy-tests profile.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext
+class ExportServiceIntegrationTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final long MB = 1024 * 1024;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void exportPetsByCity_FewRows_WritesOnePetPerLineInIdOrder() throws Exception {
+        jdbcTemplate.update("INSERT INTO address (id, city, type, address_name, number) "
+                + "VALUES (900, 'Smallcity', 'street', 'Export', '1')");
+        jdbcTemplate.update("INSERT INTO \"user\" (id, name, first_name, address_id, age, gender, deceased) "
+                + "VALUES (900, 'Small', 'Owner', 900, 40, 'MALE', false)");
+        jdbcTemplate.update("INSERT INTO pet (id, name, age, type, deceased) VALUES "
+                + "(901, 'Alpha', 1, 'fish', false), (902, 'Beta', 2, 'cat', false), (903, 'Gone', 3, 'dog', true)");
+        jdbcTemplate.update("INSERT INTO user_pet (user_id, pet_id) VALUES (900, 901), (900, 902), (900, 903)");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = exportService.exportPetsByCity("Smallcity", out);
+
+        List<PetResponseDto> pets = out.toString().lines()
+                .map(line -> read(line, PetResponseDto.class))
+                .toList();
+        assertEquals(2, written);
+        assertEquals(List.of(new PetResponseDto(901L, "Alpha", 1, "fish", false),
+                new PetResponseDto(902L, "Beta", 2, "cat", false)), pets);
+    }
+
+    @Test
+    @Tag("heavy")
+    void exportPetsByCity_MillionRows_KeepsHeapFlat() throws Exception {
+        jdbcTemplate.update("INSERT INTO address (id, city, type, address_name, number) "
+                + "VALUES (1000, 'Bulkcity', 'street', 'Export', '1')");
+        jdbcTemplate.update("INSERT INTO \"user\" (id, name, first_name, address_id, age, gender, deceased) "
+                + "VALUES (1000, 'Export', 'Owner', 1000, 40, 'FEMALE', false)");
+        jdbcTemplate.update("INSERT INTO pet (id, name, age, type, deceased) "
+                + "SELECT X + 1000, CONCAT('Pet', X), 1, 'fish', false FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        jdbcTemplate.update("INSERT INTO user_pet (user_id, pet_id) "
+                + "SELECT 1000, X + 1000 FROM SYSTEM_RANGE(1, " + ROWS + ")");
+
+        long baseline = usedHeapAfterGc();
+        LineCountingOutputStream out = new LineCountingOutputStream(ROWS / 10);
+
+        long written = exportService.exportPetsByCity("Bulkcity", out);
+
+        assertEquals(ROWS, written);
+        assertEquals(ROWS, out.lines);
+        // The live heap settles after the first cursor buffers and stays there: holding the entities and DTOs
+        // of a million pets would add several hundred MB
+        long peak = out.samples.stream().mapToLong(Long::longValue).max().orElseThrow();
+        long drift = out.samples.get(out.samples.size() - 1) - out.samples.get(1);
+        assertTrue(peak - baseline < 128 * MB, "Heap grew by " + (peak - baseline) / MB + " MB during export");
+        assertTrue(drift < 16 * MB, "Heap drifted by " + drift / MB + " MB between the first and last samples");
+    }
+
+    @Test
+    void exportUsersByPetTypeAndCity_GroupsPetsPerUser() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = exportService.exportUsersByPetTypeAndCity("dog", "Paris", out);
+
+        List<UserResponseDto> users = out.toString().lines()
+                .map(line -> read(line, UserResponseDto.class))
+                .toList();
+        assertEquals(2, written);
+        assertEquals(List.of("Samir", "Ekta"), users.stream().map(UserResponseDto::firstName).toList());
+        users.forEach(user -> assertEquals(1, user.pets().size()));
+        assertEquals("Paris", users.get(0).address().city());
+    }
+
+    @Test
+    void exportPetsByCity_BlankCity_ThrowsBadRequest() {
+        assertThrows(BadRequestException.class,
+                () -> exportService.exportPetsByCity(" ", new ByteArrayOutputStream()));
+    }
+
+    private <T> T read(String line, Class<T> type) {
+        try {
+            return objectMapper.readValue(line, type);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Discards the export, counting lines and sampling the live heap every {@code sampleEvery} lines.
+     */
+    private static final class LineCountingOutputStream extends OutputStream {
+        private final int sampleEvery;
+        private long lines;
+        private final List<Long> samples = new ArrayList<>();
+
+        private LineCountingOutputStream(int sampleEvery) {
+            this.sampleEvery = sampleEvery;
+        }
+
+        @Override
+        public void write(int b) {
+            if (b == '\n' && ++lines % sampleEvery == 0) {
+                samples.add(usedHeapAfterGc());
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.example.petmanagement.service;
 
+import com.example.petmanagement.counts.ApproximateCounts;
+import com.example.petmanagement.dto.PetOwnerRowDto;
 import com.example.petmanagement.dto.PetRequestDto;
 import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.dto.PetSliceResponseDto;
+import com.example.petmanagement.dto.PetVersionRowDto;
 import com.example.petmanagement.exception.BadRequestException;
 import com.example.petmanagement.exception.ResourceNotFoundException;
+import com.example.petmanagement.index.FilterIndex;
 import com.example.petmanagement.model.Pet;
 import com.example.petmanagement.repository.PetRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,15 +16,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.data.domain.*;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,10 +38,23 @@ class PetServiceTest {
     @Mock
     private PetRepository petRepository;
 
+    @Mock
+    private FilterIndex filterIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ApproximateCounts approximateCounts;
+
+    @Spy
+    private PageSizeLimit pageSizeLimit = new PageSizeLimit(100);
+
     @InjectMocks
     private PetService petService;
 
     private Pet pet;
+    private PetResponseDto petResponse;
     private PetRequestDto petRequestDto;
 
     @BeforeEach
@@ -43,6 +66,7 @@ class PetServiceTest {
         pet.setType("dog");
         pet.setDeceased(false);
 
+        petResponse = new PetResponseDto(1L, "Fido", 3, "dog", false);
         petRequestDto = new PetRequestDto("Fido", 3, "dog");
     }
 
@@ -69,9 +93,39 @@ class PetServiceTest {
         assertThrows(BadRequestException.class, () -> petService.createPet(invalidDto));
     }
 
+    @Test
+    void getPetsByOwnerIdETag_SameVersionsInAnyOrder_SameTag() {
+        when(petRepository.findVersionsByOwnerId(1L))
+                .thenReturn(List.of(new Object[]{1L, 0L}, new Object[]{2L, 3L}))
+                .thenReturn(List.of(new Object[]{2L, 3L}, new Object[]{1L, 0L}))
+                .thenReturn(List.of(new Object[]{1L, 1L}, new Object[]{2L, 3L}));
+
+        String eTag = petService.getPetsByOwnerIdETag(1L);
+
+        assertTrue(eTag.matches("\"[0-9a-f]{32}\""));
+        assertEquals(eTag, petService.getPetsByOwnerIdETag(1L));
+        assertNotEquals(eTag, petService.getPetsByOwnerIdETag(1L));
+    }
+
+    @Test
+    void getPetsByCityWithETag_ReadsThePageOnce_SameTagAsTheETagQuery() {
+        Pageable pageable = PageRequest.of(0, 10, Sort.by("name"));
+        when(petRepository.findVersionRowsByCity("Paris", pageable)).thenReturn(
+                new PageImpl<>(List.of(new PetVersionRowDto(1L, "Fido", 3, "dog", false, 4L)), pageable, 1));
+        when(petRepository.findVersionsByCity("Paris", pageable)).thenReturn(
+                new PageImpl<>(List.<Object[]>of(new Object[]{1L, 4L}), pageable, 1));
+
+        ETagged<Page<PetResponseDto>> result = petService.getPetsByCityWithETag("Paris", 0, 10);
+
+        assertEquals(List.of(petResponse), result.body().getContent());
+        assertEquals(1, result.body().getTotalElements());
+        verify(petRepository, never()).findByCity(any(), any());
+        assertEquals(petService.getPetsByCityETag("Paris", 0, 10), result.eTag());
+    }
+
     @Test
     void getPetsByOwnerId_ValidId_ReturnsPetList() {
-        when(petRepository.findByOwnerId(1L)).thenReturn(List.of(pet));
+        when(petRepository.findByOwnerId(1L)).thenReturn(List.of(petResponse));
 
         List<PetResponseDto> result = petService.getPetsByOwnerId(1L);
 
@@ -83,7 +137,7 @@ class PetServiceTest {
     @Test
     void getPetsByCity_ValidCity_ReturnsPage() {
         Pageable pageable = PageRequest.of(0, 10, Sort.by("name"));
-        when(petRepository.findByCity("Paris", pageable)).thenReturn(new PageImpl<>(List.of(pet)));
+        when(petRepository.findByCity("Paris", pageable)).thenReturn(new PageImpl<>(List.of(petResponse)));
 
         Page<PetResponseDto> result = petService.getPetsByCity("Paris", 0, 10);
 
@@ -92,11 +146,38 @@ class PetServiceTest {
         verify(petRepository, times(1)).findByCity("Paris", pageable);
     }
 
+    @Test
+    void getPetsByCity_ApproximateCount_ReadsASliceWithTheApproximateTotal() {
+        Pageable pageable = PageRequest.of(1, 1, Sort.by("name"));
+        when(approximateCounts.petsByCity("Paris")).thenReturn(OptionalLong.of(40));
+        when(petRepository.findSliceByCity("Paris", pageable))
+                .thenReturn(new SliceImpl<>(List.of(petResponse), pageable, true));
+
+        Page<PetResponseDto> result = petService.getPetsByCity("Paris", 1, 1);
+
+        assertEquals(40, result.getTotalElements());
+        assertEquals(List.of(petResponse), result.getContent());
+        verify(petRepository, never()).findByCity(any(), any());
+    }
+
+    @Test
+    void getPetsByCity_ApproximateCountBehind_TotalCoversTheRowsSeen() {
+        Pageable pageable = PageRequest.of(2, 1, Sort.by("name"));
+        when(approximateCounts.petsByCity("Paris")).thenReturn(OptionalLong.of(1));
+        when(petRepository.findSliceByCity("Paris", pageable))
+                .thenReturn(new SliceImpl<>(List.of(petResponse), pageable, false));
+
+        Page<PetResponseDto> result = petService.getPetsByCity("Paris", 2, 1);
+
+        assertEquals(3, result.getTotalElements());
+        assertTrue(result.isLast());
+    }
+
     @Test
     void getPetsByWomenInCity_ValidCity_ReturnsPage() {
         Pageable pageable = PageRequest.of(0, 10, Sort.by("name"));
         when(petRepository.findPetsByWomenOwnersInCity("London", pageable))
-                .thenReturn(new PageImpl<>(List.of(pet)));
+                .thenReturn(new PageImpl<>(List.of(petResponse)));
 
         Page<PetResponseDto> result = petService.getPetsByWomenInCity("London", 0, 10);
 
@@ -105,36 +186,113 @@ class PetServiceTest {
         verify(petRepository, times(1)).findPetsByWomenOwnersInCity("London", pageable);
     }
 
+    @Test
+    void getPetsByCityAfter_MoreRowsThanSize_ReturnsSliceWithNextCursor() {
+        PetResponseDto other = new PetResponseDto(2L, "Rex", 1, "cat", false);
+        when(petRepository.findByCityAfter("Paris", "", 0L, PageRequest.ofSize(2)))
+                .thenReturn(List.of(petResponse, other));
+
+        PetSliceResponseDto result = petService.getPetsByCityAfter("Paris", null, 1);
+
+        assertEquals(1, result.content().size());
+        assertTrue(result.hasNext());
+        assertNotNull(result.nextCursor());
+
+        when(petRepository.findByCityAfter("Paris", "Fido", 1L, PageRequest.ofSize(2)))
+                .thenReturn(List.of(other));
+
+        PetSliceResponseDto next = petService.getPetsByCityAfter("Paris", result.nextCursor(), 1);
+
+        assertEquals("Rex", next.content().get(0).name());
+        assertFalse(next.hasNext());
+        assertNull(next.nextCursor());
+    }
+
+    @Test
+    void getPetsByCitySlice_ValidCity_ReturnsSliceWithoutCounting() {
+        Pageable pageable = PageRequest.of(0, 1, Sort.by("name", "id"));
+        when(petRepository.findSliceByCity("Paris", pageable))
+                .thenReturn(new SliceImpl<>(List.of(petResponse), pageable, true));
+
+        PetSliceResponseDto result = petService.getPetsByCitySlice("Paris", 0, 1);
+
+        assertEquals(List.of(petResponse), result.content());
+        assertTrue(result.hasNext());
+        assertNull(result.nextCursor());
+        verify(petRepository, never()).findByCity(any(), any());
+    }
+
+    @Test
+    void getPetsByWomenInCitySlice_NegativePage_ThrowsBadRequestException() {
+        assertThrows(BadRequestException.class, () -> petService.getPetsByWomenInCitySlice("London", -1, 10));
+    }
+
+    @Test
+    void getPetsByCityAfter_SizeAboveMaximum_ThrowsBadRequestException() {
+        // size + 1 rows would overflow without the bound
+        assertThrows(BadRequestException.class,
+                () -> petService.getPetsByCityAfter("Paris", null, Integer.MAX_VALUE));
+        verifyNoInteractions(petRepository);
+    }
+
+    @Test
+    void getPetsByCity_SizeAboveMaximum_ThrowsBadRequestException() {
+        assertThrows(BadRequestException.class, () -> petService.getPetsByCity("Paris", 0, 101));
+        verifyNoInteractions(petRepository, approximateCounts);
+    }
+
+    @Test
+    void getPetsByWomenInCityAfter_InvalidCursor_ThrowsBadRequestException() {
+        assertThrows(BadRequestException.class,
+                () -> petService.getPetsByWomenInCityAfter("London", "not-a-cursor", 10));
+    }
+
     @Test
     void updatePet_ValidRequest_ReturnsUpdatedPet() {
-        when(petRepository.findById(1L)).thenReturn(Optional.of(pet));
-        when(petRepository.save(any(Pet.class))).thenReturn(pet);
+        when(petRepository.patchActive(eq(1L), eq(null), eq(4), eq(null), any())).thenReturn(1);
+        when(petRepository.findRowsWithOwners(1L)).thenReturn(List.of(
+                new PetOwnerRowDto(1L, "Fido", 4, "dog", false, 7L, "Paris"),
+                new PetOwnerRowDto(1L, "Fido", 4, "dog", false, 8L, "Lyon")));
 
-        PetResponseDto result = petService.updatePet(1L, petRequestDto);
+        PetResponseDto result = petService.updatePet(1L, new PetRequestDto(null, 4, null));
 
-        assertNotNull(result);
-        assertEquals(pet.getId(), result.id());
-        verify(petRepository, times(1)).findById(1L);
-        verify(petRepository, times(1)).save(pet);
+        assertEquals(new PetResponseDto(1L, "Fido", 4, "dog", false), result);
+        verify(petRepository, never()).findById(any());
+        verify(filterIndex).recordPet(1L);
+        verify(eventPublisher).publishEvent(new PetListingsChangedEvent(Set.of(7L, 8L), Set.of("Paris", "Lyon")));
     }
 
     @Test
     void updatePet_NonExistingId_ThrowsResourceNotFoundException() {
-        when(petRepository.findById(1L)).thenReturn(Optional.empty());
+        when(petRepository.patchActive(eq(1L), any(), any(), any(), any())).thenReturn(0);
 
         assertThrows(ResourceNotFoundException.class,
                 () -> petService.updatePet(1L, petRequestDto));
+        verify(petRepository, never()).findRowsWithOwners(any());
+        verifyNoInteractions(filterIndex, eventPublisher);
     }
 
     @Test
     void markPetAsDeceased_ValidId_MarksPetAsDeceased() {
-        when(petRepository.findById(1L)).thenReturn(Optional.of(pet));
+        when(petRepository.markDeceased(eq(1L), any())).thenReturn(1);
+        when(petRepository.findRowsWithOwners(1L)).thenReturn(List.of(
+                new PetOwnerRowDto(1L, "Fido", 3, "dog", true, null, null)));
 
         petService.markPetAsDeceased(1L);
 
-        assertTrue(pet.isDeceased());
-        verify(petRepository, times(1)).findById(1L);
-        verify(petRepository, times(1)).save(pet);
+        verify(petRepository, never()).findById(any());
+        verify(filterIndex).recordPet(1L);
+        verify(eventPublisher, times(1)).publishEvent(new PetListingsChangedEvent(Set.of(), Set.of()));
+    }
+
+    @Test
+    void markPetAsDeceased_AlreadyDeceased_ThrowsBadRequestException() {
+        when(petRepository.markDeceased(eq(1L), any())).thenReturn(0);
+
+        BadRequestException ex = assertThrows(BadRequestException.class, () -> petService.markPetAsDeceased(1L));
+
+        assertInstanceOf(ResourceNotFoundException.class, ex.getCause());
+        verifyNoInteractions(filterIndex, eventPublisher);
     }
 }
 
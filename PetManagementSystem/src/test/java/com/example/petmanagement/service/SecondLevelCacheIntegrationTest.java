@@ -0,0 +1,171 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.dto.AddressDto;
+import com.example.petmanagement.dto.PetRequestDto;
+import com.example.petmanagement.dto.PetResponseDto;
+import com.example.petmanagement.dto.UserRequestDto;
+import com.example.petmanagement.dto.UserResponseDto;
+import com.example.petmanagement.repository.AddressRepository;
+import com.example.petmanagement.repository.PetRepository;
+import com.example.petmanagement.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against its own embedded database, dropped afterwards, because every step commits, so that
+ * the second level cache is really populated and invalidated.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase
+@DirtiesContext
+class SecondLevelCacheIntegrationTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private UserService userService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAddress_ReadTwice_SecondReadIsServedFromCache() {
+        transactionTemplate.executeWithoutResult(status -> addressRepository.findById(2L).orElseThrow());
+        transactionTemplate.executeWithoutResult(status -> addressRepository.findById(2L).orElseThrow());
+
+        assertTrue(statistics.getDomainDataRegionStatistics("address").getHitCount() >= 1);
+    }
+
+    @Test
+    void updatePet_CachedPet_ReturnsNewValues() {
+        transactionTemplate.executeWithoutResult(status -> petRepository.findById(2L).orElseThrow());
+
+        petService.updatePet(2L, new PetRequestDto("Tom", null, null));
+
+        String name = transactionTemplate.execute(status -> petRepository.findById(2L).orElseThrow().getName());
+        assertEquals("Tom", name);
+    }
+
+    @Test
+    void updatePet_OtherCachedPets_StayCached() {
+        transactionTemplate.executeWithoutResult(status -> {
+            petRepository.findById(1L).orElseThrow();
+            petRepository.findById(3L).orElseThrow();
+        });
+
+        petService.updatePet(3L, new PetRequestDto(null, 2, null));
+
+        // Only the entry of the updated pet is invalidated, not the whole region
+        statistics.clear();
+        transactionTemplate.executeWithoutResult(status -> petRepository.findById(1L).orElseThrow());
+        CacheRegionStatistics pets = statistics.getDomainDataRegionStatistics("pet");
+        assertEquals(1, pets.getHitCount());
+        assertEquals(0, pets.getMissCount());
+        Integer age = transactionTemplate.execute(status -> petRepository.findById(3L).orElseThrow().getAge());
+        assertEquals(2, age);
+    }
+
+    @Test
+    void updatePet_CachedQueryOnPets_IsInvalidated() {
+        // Pet 1 is owned by a woman living in Paris
+        assertEquals(List.of("Fido"), petNamesOfWomenIn("Paris"));
+
+        petService.updatePet(1L, new PetRequestDto("Rex", null, null));
+
+        assertEquals(List.of("Rex"), petNamesOfWomenIn("Paris"));
+    }
+
+    @Test
+    void assignPetToUser_CachedOwners_AreInvalidated() {
+        // Pet 1 is owned by two users living at address 1
+        assertEquals(2, countOwners(1L));
+        UserResponseDto user = userService.createUser(new UserRequestDto(
+                "Cache", "Tester", new AddressDto("Paris", "road", "Antoine Lavoisier", "10"), 40, "FEMALE"));
+
+        userService.assignPetToUser(user.id(), 1L);
+
+        assertEquals(3, countOwners(1L));
+    }
+
+    @Test
+    void removePetFromUser_CachedPets_AreInvalidatedWithoutBeingLoaded() {
+        UserResponseDto user = userService.createUser(new UserRequestDto(
+                "Cache", "Remover", new AddressDto("Paris", "road", "Antoine Lavoisier", "10"), 40, "MALE"));
+        userService.assignPetToUser(user.id(), 1L);
+        assertEquals(1, countPets(user.id()));
+        statistics.clear();
+
+        userService.removePetFromUser(user.id(), 1L);
+
+        // One user_pet row deleted, no collection of the user or of the pet loaded or rewritten
+        assertEquals(1, statistics.getEntityDeleteCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+        assertEquals(0, statistics.getCollectionRecreateCount() + statistics.getCollectionUpdateCount()
+                + statistics.getCollectionRemoveCount());
+        assertEquals(0, countPets(user.id()));
+    }
+
+    @Test
+    void markUserAsDeceased_CachedUser_IsInvalidated() {
+        transactionTemplate.executeWithoutResult(status -> userRepository.findById(4L).orElseThrow());
+
+        userService.markUserAsDeceased(4L);
+
+        Boolean deceased = transactionTemplate.execute(status -> userRepository.findById(4L).orElseThrow().isDeceased());
+        assertEquals(Boolean.TRUE, deceased);
+    }
+
+    private List<String> petNamesOfWomenIn(String city) {
+        return transactionTemplate.execute(status -> petRepository
+                .findPetsByWomenOwnersInCity(city, PageRequest.of(0, 10))
+                .map(PetResponseDto::name)
+                .getContent());
+    }
+
+    private int countPets(Long userId) {
+        Integer pets = transactionTemplate.execute(status ->
+                userRepository.findById(userId).orElseThrow().getPets().size());
+        return pets == null ? 0 : pets;
+    }
+
+    private int countOwners(Long petId) {
+        Integer owners = transactionTemplate.execute(status ->
+                petRepository.findById(petId).orElseThrow().getOwners().size());
+        return owners == null ? 0 : owners;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.petmanagement.service;
+
+import com.example.petmanagement.dto.UserImportResponseDto;
+import com.example.petmanagement.dto.UserImportResponseDto.RowError;
+import com.example.petmanagement.repository.AddressRepository;
+import com.example.petmanagement.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against its own embedded database because the import commits chunk by chunk.
+ */
+@SpringBootTest(properties = "user.import.chunk-size=2")
+@AutoConfigureTestDatabase
+class UserImportServiceIntegrationTest {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Test
+    void importUsers_JsonArray_ImportsValidRowsAndReportsTheOthers() {
+        long usersBefore = userRepository.count();
+        long addressesBefore = addressRepository.count();
+        String body = "["
+                + user("Import", "One", "Oslo", 30, "MALE") + ","
+                + user("Import", "Two", "Oslo", 31, "FEMALE") + ","
+                + user("Import", "Three", "Oslo", 32, "UNKNOWN") + ","
+                + user("Import", "One", "Oslo", 33, "MALE") + ","
+                + user("Vasani", "Samir", "Paris", 30, "MALE") + ","
+                + user("Import", "Four", "Bergen", 34, "OTHER")
+                + "]";
+
+        UserImportResponseDto result = userImportService.importUsers(stream(body));
+
+        assertEquals(6, result.received());
+        assertEquals(3, result.imported());
+        assertEquals(List.of(3, 4, 5), result.errors().stream().map(RowError::row).sorted().toList());
+        assertEquals(usersBefore + 3, userRepository.count());
+        // Both Oslo users share one new address, Bergen adds the other one
+        assertEquals(addressesBefore + 2, addressRepository.count());
+    }
+
+    @Test
+    void importUsers_NdjsonWithInvalidRow_ContinuesAfterIt() {
+        String body = user("Stream", "One", "Turin", 30, "MALE") + "\n"
+                + "{\"name\":\"Stream\",\"firstName\":\"Two\",\"age\":\"old\",\"gender\":\"MALE\"}\n"
+                + user("Stream", "Three", "Turin", 40, "FEMALE") + "\n";
+
+        UserImportResponseDto result = userImportService.importUsers(stream(body));
+
+        assertEquals(3, result.received());
+        assertEquals(2, result.imported());
+        assertEquals(1, result.errors().size());
+        assertEquals(2, result.errors().get(0).row());
+    }
+
+    private static String user(String name, String firstName, String city, int age, String gender) {
+        return String.format("{\"name\":\"%s\",\"firstName\":\"%s\",\"age\":%d,\"gender\":\"%s\","
+                        + "\"address\":{\"city\":\"%s\",\"type\":\"street\",\"addressName\":\"Main\",\"number\":\"1\"}}",
+                name, firstName, age, gender, city);
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
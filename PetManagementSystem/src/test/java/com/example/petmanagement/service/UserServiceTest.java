@@ -1,14 +1,21 @@
 package com.example.petmanagement.service;
 
 import com.example.petmanagement.dto.AddressDto;
+import com.example.petmanagement.dto.UserPetRowDto;
 import com.example.petmanagement.dto.UserRequestDto;
 import com.example.petmanagement.dto.UserResponseDto;
 
 import com.example.petmanagement.exception.BadRequestException;
 import com.example.petmanagement.exception.ResourceNotFoundException;
+import com.example.petmanagement.index.FilterIndex;
+import com.example.petmanagement.locking.OptimisticRetry;
+import com.example.petmanagement.locking.PetLocks;
 import com.example.petmanagement.model.User;
 import com.example.petmanagement.model.Pet;
 import com.example.petmanagement.model.Address;
+import com.example.petmanagement.model.UserPet;
+import com.example.petmanagement.model.UserPetId;
+import com.example.petmanagement.repository.UserPetRepository;
 import com.example.petmanagement.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -16,13 +23,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -34,12 +46,30 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserPetRepository userPetRepository;
+
     @Mock
     private AddressService addressService;
 
     @Mock
     private PetService petService;
 
+    @Mock
+    private FilterIndex filterIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private PetLocks petLocks = new PetLocks(4, 100);
+
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry(1, 1);
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private UserService userService;
 
@@ -150,64 +180,58 @@ class UserServiceTest {
 
     @Nested
     class RemovePetTests {
+        @BeforeEach
+        void setUp() {
+            when(transactionTemplate.execute(any()))
+                    .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        }
+
         @Test
         void removePet_WithNoHomonyms_ShouldSucceed() {
-            user.getPets().add(pet);
-            pet.getOwners().add(user);
+            UserPet ownership = new UserPet(user, pet);
 
             when(userRepository.findActiveUserWithAddress(1L)).thenReturn(Optional.of(user));
-            when(petService.findActivePetWithOwners(1L, false)).thenReturn(pet);
-            when(userRepository.homonymExists("Vasani", "Samir")).thenReturn(List.of(user));
+            when(petService.findPet(1L, false)).thenReturn(pet);
+            when(userPetRepository.findById(new UserPetId(1L, 1L))).thenReturn(Optional.of(ownership));
 
             userService.removePetFromUser(1L, 1L);
 
             assertFalse(user.getPets().contains(pet));
-            verify(userRepository).save(user);
+            assertTrue(pet.getOwners().isEmpty());
+            verify(userPetRepository).delete(ownership);
+            verify(userRepository, never()).save(any());
+            verify(petLocks).callLocked(eq(1L), any());
+            assertNotNull(pet.getLastUpdateTime());
+            verify(eventPublisher).publishEvent(new PetListingsChangedEvent(Set.of(1L), Set.of("Paris")));
         }
 
         @Test
-        void removePet_WithHomonymsSameAddress_ShouldSucceed() {
-            List<User> homonyms = createHomonyms("Vasani", "Samir", 2, true);
-            User currentUser = homonyms.get(0);
-            currentUser.getPets().add(pet);
-            pet.getOwners().add(currentUser);
-
-            when(userRepository.findActiveUserWithAddress(1L)).thenReturn(Optional.of(currentUser));
-            when(petService.findActivePetWithOwners(1L, false)).thenReturn(pet);
-            when(userRepository.homonymExists("Vasani", "Samir")).thenReturn(homonyms);
-
-            userService.removePetFromUser(1L, 1L);
-
-            assertFalse(currentUser.getPets().contains(pet));
-            verify(userRepository).save(currentUser);
-        }
-
-        @Test
-        void removePet_WithHomonymsDifferentAddress_ShouldThrow() {
+        void removePet_PetOfAHomonym_ShouldThrowWithoutLoadingOwners() {
             List<User> homonyms = createHomonyms("Vasani", "Samir", 2, false);
             User currentUser = homonyms.get(0);
-            User petOwner = homonyms.get(1);
-            petOwner.getPets().add(pet);
-            pet.getOwners().add(petOwner);
+            Pet owned = mock(Pet.class);
 
             when(userRepository.findActiveUserWithAddress(1L)).thenReturn(Optional.of(currentUser));
-            when(petService.findActivePetWithOwners(1L, false)).thenReturn(pet);
-            when(userRepository.homonymExists("Vasani", "Samir")).thenReturn(homonyms);
+            when(petService.findPet(1L, false)).thenReturn(owned);
+            when(userPetRepository.findById(new UserPetId(1L, 1L))).thenReturn(Optional.empty());
 
             assertThrows(BadRequestException.class, () ->
                             userService.removePetFromUser(1L, 1L),
-                    "Address mismatch for pet removal");
+                    "Pet not assigned to user");
+            verify(owned, never()).getOwners();
+            verify(userRepository, never()).homonymExists(any(), any());
+            verify(userPetRepository, never()).delete(any());
         }
 
         @Test
         void removePet_WhenNotAssigned_ShouldThrow() {
             when(userRepository.findActiveUserWithAddress(1L)).thenReturn(Optional.of(user));
-            when(petService.findActivePetWithOwners(1L, false)).thenReturn(pet);
-            when(userRepository.homonymExists("Vasani", "Samir")).thenReturn(List.of(user));
+            when(petService.findPet(1L, false)).thenReturn(pet);
 
             assertThrows(BadRequestException.class, () ->
                             userService.removePetFromUser(1L, 1L),
                     "Pet not assigned to user");
+            verify(userPetRepository, never()).delete(any());
         }
     }
 
@@ -215,23 +239,40 @@ class UserServiceTest {
     class UpdateUserTests {
         @Test
         void updateUser_ShouldSucceed() {
-            when(userRepository.findActiveUserWithAddress(1L)).thenReturn(Optional.of(user));
+            when(userRepository.findActiveUserCity(1L)).thenReturn(Optional.of("Lyon"));
             when(addressService.getOrCreateAddress(any())).thenReturn(address);
-            when(userRepository.save(any())).thenReturn(user);
+            when(userRepository.patchActive(eq(1L), eq("Vasani"), eq("Samir"), eq(30), eq("MALE"), eq(address), any()))
+                    .thenReturn(1);
+            when(userRepository.findActiveUserWithAddressAndPets(1L)).thenReturn(Optional.of(user));
 
             UserResponseDto result = userService.updateUser(1L, userRequestDto);
 
             assertNotNull(result);
             assertEquals(1L, result.id());
-            verify(userRepository).save(user);
+            verify(userRepository, never()).save(any());
+            verify(filterIndex).recordUser(1L);
+            verify(eventPublisher).publishEvent(new PetListingsChangedEvent(Set.of(1L), Set.of("Lyon", "Paris")));
+        }
+
+        @Test
+        void updateUser_WithoutAddress_UpdatesTheSuppliedColumnsOnly() {
+            when(userRepository.patchActive(eq(1L), eq(null), eq(null), eq(31), eq(null), eq(null), any()))
+                    .thenReturn(1);
+            when(userRepository.findActiveUserWithAddressAndPets(1L)).thenReturn(Optional.of(user));
+
+            userService.updateUser(1L, new UserRequestDto(null, null, null, 31, null));
+
+            verify(userRepository, never()).findActiveUserCity(any());
+            verifyNoInteractions(addressService, eventPublisher);
         }
 
         @Test
         void updateUser_WhenUserNotFound_ShouldThrow() {
-            when(userRepository.findActiveUserWithAddress(1L)).thenReturn(Optional.empty());
+            when(userRepository.findActiveUserCity(1L)).thenReturn(Optional.empty());
 
             assertThrows(ResourceNotFoundException.class, () ->
                     userService.updateUser(1L, userRequestDto));
+            verifyNoInteractions(addressService);
         }
     }
 
@@ -239,12 +280,45 @@ class UserServiceTest {
     class MarkUserAsDeceasedTests {
         @Test
         void markUserAsDeceased_ShouldSucceed() {
-            when(userRepository.findActiveUserWithAddress(1L)).thenReturn(Optional.of(user));
+            when(userRepository.markDeceased(eq(1L), any())).thenReturn(1);
 
             userService.markUserAsDeceased(1L);
 
-            assertTrue(user.isDeceased());
-            verify(userRepository).save(user);
+            verify(userRepository, never()).findActiveUserWithAddress(any());
+            verify(filterIndex).recordUser(1L);
+        }
+
+        @Test
+        void markUserAsDeceased_WhenAlreadyDeceased_ShouldThrow() {
+            when(userRepository.markDeceased(eq(1L), any())).thenReturn(0);
+
+            assertThrows(BadRequestException.class, () -> userService.markUserAsDeceased(1L));
+            verifyNoInteractions(filterIndex);
+        }
+    }
+
+    @Nested
+    class GetUsersByPetTypeAndCityTests {
+        @Test
+        void getUsersByPetTypeAndCity_ShouldGroupRowsPerUser() {
+            when(userRepository.findUserByPetTypeAndCity("dog", "Paris")).thenReturn(List.of(
+                    row(1L, "Samir", 1L, "Fido", "dog"),
+                    row(1L, "Samir", 2L, "Tom", "cat"),
+                    row(2L, "Ekta", 1L, "Fido", "dog")));
+
+            List<UserResponseDto> result = userService.getUsersByPetTypeAndCity("dog", "Paris");
+
+            assertEquals(2, result.size());
+            assertEquals("Samir", result.get(0).firstName());
+            assertEquals(2, result.get(0).pets().size());
+            assertEquals(addressDto, result.get(0).address());
+            assertEquals("Ekta", result.get(1).firstName());
+            assertEquals(1, result.get(1).pets().size());
+        }
+
+        private UserPetRowDto row(Long userId, String firstName, Long petId, String petName, String petType) {
+            return new UserPetRowDto(userId, "Vasani", firstName, "Paris", "street", "Main", "123", 30, "MALE",
+                    false, petId, petName, 3, petType, false);
         }
     }
 }
\ No newline at end of file